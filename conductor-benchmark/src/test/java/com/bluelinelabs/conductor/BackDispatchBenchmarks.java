@@ -0,0 +1,127 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bluelinelabs.conductor.benchmark.Benchmark;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.ParameterizedRobolectricTestRunner.Parameters;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+@RunWith(ParameterizedRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class BackDispatchBenchmarks {
+
+    @Parameters(name = "fanOut={0}, levels={1}")
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(new Object[][] {
+                { 2, 1 }, { 2, 2 }, { 2, 3 },
+                { 4, 1 }, { 4, 2 }, { 4, 3 },
+                { 8, 1 }, { 8, 2 }, { 8, 3 },
+        });
+    }
+
+    private final int fanOut;
+    private final int levels;
+    private BenchmarkHost host;
+
+    public BackDispatchBenchmarks(int fanOut, int levels) {
+        this.fanOut = fanOut;
+        this.levels = levels;
+    }
+
+    @Before
+    public void setup() {
+        host = new BenchmarkHost();
+        host.router.setRoot(RouterTransaction.with(new TreeController(fanOut, levels, true)));
+    }
+
+    @After
+    public void tearDown() {
+        host.destroy();
+    }
+
+    @Test
+    public void handleBack() {
+        final Router router = host.router;
+        Benchmark.measure(name("handleBack"), new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                return router.handleBack();
+            }
+        });
+    }
+
+    private String name(String benchmark) {
+        return "BackDispatchBenchmarks." + benchmark + " fanOut=" + fanOut + " levels=" + levels;
+    }
+
+    /**
+     * Hosts {@code fanOut} child routers, each holding either another TreeController or, on the last level, a
+     * {@link BenchmarkController}. Only the oldest leaf consumes back presses, so back dispatch has to walk the
+     * whole tree first.
+     */
+    public static class TreeController extends Controller {
+
+        private static final String KEY_FAN_OUT = "TreeController.fanOut";
+        private static final String KEY_LEVELS = "TreeController.levels";
+        private static final String KEY_HANDLES_BACK = "TreeController.handlesBack";
+
+        public TreeController(int fanOut, int levels, boolean handlesBack) {
+            this(createArgs(fanOut, levels, handlesBack));
+        }
+
+        public TreeController(@Nullable Bundle args) {
+            super(args);
+        }
+
+        @NonNull @Override
+        protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container, @Nullable Bundle savedViewState) {
+            int fanOut = getArgs().getInt(KEY_FAN_OUT);
+            int levels = getArgs().getInt(KEY_LEVELS);
+            boolean handlesBack = getArgs().getBoolean(KEY_HANDLES_BACK);
+
+            LinearLayout view = new LinearLayout(container.getContext());
+            for (int i = 0; i < fanOut; i++) {
+                FrameLayout childContainer = new FrameLayout(container.getContext());
+                childContainer.setId(i + 1);
+                view.addView(childContainer);
+
+                Router childRouter = getChildRouter(childContainer);
+                if (!childRouter.hasRootController()) {
+                    boolean childHandlesBack = handlesBack && i == 0;
+                    Controller child = levels > 1
+                            ? new TreeController(fanOut, levels - 1, childHandlesBack)
+                            : new BenchmarkController(1, childHandlesBack);
+                    childRouter.setRoot(RouterTransaction.with(child));
+                }
+            }
+            return view;
+        }
+
+        @NonNull
+        private static Bundle createArgs(int fanOut, int levels, boolean handlesBack) {
+            Bundle args = new Bundle();
+            args.putInt(KEY_FAN_OUT, fanOut);
+            args.putInt(KEY_LEVELS, levels);
+            args.putBoolean(KEY_HANDLES_BACK, handlesBack);
+            return args;
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.bluelinelabs.conductor;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A Controller whose view is built in code, so benchmarks don't depend on resources. The size of the view
+ * hierarchy and whether the Controller consumes back presses are configurable through its args, so it survives
+ * being restored from saved state.
+ */
+public class BenchmarkController extends Controller {
+
+    private static final String KEY_VIEW_COUNT = "BenchmarkController.viewCount";
+    private static final String KEY_HANDLES_BACK = "BenchmarkController.handlesBack";
+    private static final String KEY_PAYLOAD = "BenchmarkController.payload";
+
+    public BenchmarkController() {
+        this(1, false);
+    }
+
+    public BenchmarkController(int viewCount, boolean handlesBack) {
+        this(createArgs(viewCount, handlesBack));
+    }
+
+    public BenchmarkController(@Nullable Bundle args) {
+        super(args);
+    }
+
+    @NonNull @Override
+    protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container, @Nullable Bundle savedViewState) {
+        return buildView(container.getContext());
+    }
+
+    @Nullable @Override
+    protected View onPrewarmView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container) {
+        return buildView(inflater.getContext());
+    }
+
+    @Override
+    public boolean handleBack() {
+        return getArgs().getBoolean(KEY_HANDLES_BACK) || super.handleBack();
+    }
+
+    @NonNull
+    private View buildView(@NonNull Context context) {
+        FrameLayout root = new FrameLayout(context);
+        int viewCount = getArgs().getInt(KEY_VIEW_COUNT);
+        if (viewCount > 1) {
+            LinearLayout list = new LinearLayout(context);
+            list.setOrientation(LinearLayout.VERTICAL);
+            for (int i = 1; i < viewCount; i++) {
+                TextView row = new TextView(context);
+                row.setText("Row " + i);
+                list.addView(row);
+            }
+            root.addView(list);
+        }
+        return root;
+    }
+
+    @NonNull
+    private static Bundle createArgs(int viewCount, boolean handlesBack) {
+        Bundle args = new Bundle();
+        args.putInt(KEY_VIEW_COUNT, viewCount);
+        args.putBoolean(KEY_HANDLES_BACK, handlesBack);
+        // Stands in for the arguments a typical screen carries, so saved state sizes are representative
+        args.putString(KEY_PAYLOAD, "com.example.screen/" + Integer.toHexString(System.identityHashCode(args)));
+        return args;
+    }
+
+}
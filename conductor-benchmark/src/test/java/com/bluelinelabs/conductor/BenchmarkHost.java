@@ -0,0 +1,58 @@
+package com.bluelinelabs.conductor;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.widget.FrameLayout;
+
+import androidx.annotation.NonNull;
+
+import org.robolectric.Robolectric;
+import org.robolectric.android.controller.ActivityController;
+
+import java.util.Arrays;
+
+/**
+ * A resumed, visible Activity with a root {@link Router}, used as the host for benchmarks.
+ */
+final class BenchmarkHost {
+
+    @NonNull final ActivityController<Activity> activityController;
+    @NonNull final Activity activity;
+    @NonNull final FrameLayout container;
+    @NonNull final Router router;
+
+    BenchmarkHost() {
+        activityController = Robolectric.buildActivity(Activity.class).create();
+        activity = activityController.get();
+        container = new FrameLayout(activity);
+        activity.setContentView(container);
+        router = Conductor.attachRouter(activity, container, null);
+        activityController.start().resume().visible();
+    }
+
+    /**
+     * Sets the root Router's backstack to the given number of Controllers without running any changes, and returns
+     * the transactions, ordered from root to top.
+     */
+    @NonNull
+    RouterTransaction[] fill(int depth) {
+        RouterTransaction[] transactions = new RouterTransaction[depth];
+        for (int i = 0; i < depth; i++) {
+            transactions[i] = RouterTransaction.with(new BenchmarkController()).tag("tag" + i);
+        }
+        router.setBackstack(Arrays.asList(transactions), null);
+        return transactions;
+    }
+
+    @NonNull
+    Bundle saveInstanceState() {
+        Bundle outState = new Bundle();
+        router.saveInstanceState(outState);
+        return outState;
+    }
+
+    void destroy() {
+        activityController.pause().stop().destroy();
+    }
+
+}
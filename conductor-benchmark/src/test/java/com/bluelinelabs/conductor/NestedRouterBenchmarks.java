@@ -0,0 +1,152 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bluelinelabs.conductor.benchmark.Benchmark;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.ParameterizedRobolectricTestRunner.Parameters;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+@RunWith(ParameterizedRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class NestedRouterBenchmarks {
+
+    @Parameters(name = "fanOut={0}, listeners={1}")
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(new Object[][] {
+                { 1, 0 }, { 4, 0 }, { 16, 0 },
+                { 1, 10 }, { 4, 10 }, { 16, 10 },
+        });
+    }
+
+    private final int fanOut;
+    private final int listeners;
+    private BenchmarkHost host;
+    private ParentController parent;
+
+    public NestedRouterBenchmarks(int fanOut, int listeners) {
+        this.fanOut = fanOut;
+        this.listeners = listeners;
+    }
+
+    @Before
+    public void setup() {
+        host = new BenchmarkHost();
+        parent = new ParentController(fanOut, listeners);
+        addListeners(parent, listeners);
+        host.router.setRoot(RouterTransaction.with(parent));
+    }
+
+    @After
+    public void tearDown() {
+        host.destroy();
+    }
+
+    @Test
+    public void handleBack() {
+        final Router router = host.router;
+        Benchmark.measure(name("handleBack"), new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                return router.handleBack();
+            }
+        });
+    }
+
+    @Test
+    public void controllerSaveInstanceState() {
+        Benchmark.measure(name("controllerSaveInstanceState"), new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                return parent.saveInstanceState();
+            }
+        }, Benchmark.marshalledSize(parent.saveInstanceState()));
+    }
+
+    @Test
+    public void activityStopStart() {
+        final Router router = host.router;
+        Benchmark.measure(name("activityStopStart"), new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                router.onActivityStopped(host.activity);
+                router.onActivityStarted(host.activity);
+                return router;
+            }
+        });
+    }
+
+    private String name(String benchmark) {
+        return "NestedRouterBenchmarks." + benchmark + " fanOut=" + fanOut + " listeners=" + listeners;
+    }
+
+    static void addListeners(@NonNull Controller controller, int count) {
+        for (int i = 0; i < count; i++) {
+            controller.addLifecycleListener(new Controller.LifecycleListener() { });
+        }
+    }
+
+    /**
+     * Hosts one child router per container, each with a single {@link BenchmarkController}. Only the oldest child
+     * consumes back presses, so back dispatch has to visit every child first.
+     */
+    public static class ParentController extends Controller {
+
+        private static final String KEY_FAN_OUT = "ParentController.fanOut";
+        private static final String KEY_LISTENERS = "ParentController.listeners";
+
+        public ParentController(int fanOut, int listeners) {
+            this(createArgs(fanOut, listeners));
+        }
+
+        public ParentController(@Nullable Bundle args) {
+            super(args);
+        }
+
+        @NonNull @Override
+        protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container, @Nullable Bundle savedViewState) {
+            int fanOut = getArgs().getInt(KEY_FAN_OUT);
+            int listeners = getArgs().getInt(KEY_LISTENERS);
+
+            LinearLayout view = new LinearLayout(container.getContext());
+            for (int i = 0; i < fanOut; i++) {
+                FrameLayout childContainer = new FrameLayout(container.getContext());
+                childContainer.setId(i + 1);
+                view.addView(childContainer);
+
+                Router childRouter = getChildRouter(childContainer);
+                if (!childRouter.hasRootController()) {
+                    BenchmarkController child = new BenchmarkController(1, i == 0);
+                    addListeners(child, listeners);
+                    childRouter.setRoot(RouterTransaction.with(child));
+                }
+            }
+            return view;
+        }
+
+        @NonNull
+        private static Bundle createArgs(int fanOut, int listeners) {
+            Bundle args = new Bundle();
+            args.putInt(KEY_FAN_OUT, fanOut);
+            args.putInt(KEY_LISTENERS, listeners);
+            return args;
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.bluelinelabs.conductor;
+
+import com.bluelinelabs.conductor.benchmark.Benchmark;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.ParameterizedRobolectricTestRunner.Parameters;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.Executor;
+
+/**
+ * Compares the main thread cost of pushing a Controller with a large view hierarchy, with and without
+ * {@link Router#prewarm(RouterTransaction, Executor)}. The prewarm runs on a direct executor outside the measured
+ * section, which models a prewarm that finished in the background before the push. Only the push itself is timed.
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class PrewarmBenchmarks {
+
+    @Parameters(name = "views={0}")
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(new Object[][] { { 10 }, { 100 }, { 500 } });
+    }
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final int viewCount;
+    private BenchmarkHost host;
+
+    public PrewarmBenchmarks(int viewCount) {
+        this.viewCount = viewCount;
+    }
+
+    @Before
+    public void setup() {
+        host = new BenchmarkHost();
+        host.fill(1);
+    }
+
+    @After
+    public void tearDown() {
+        host.destroy();
+    }
+
+    @Test
+    public void push() {
+        measurePush("push", false);
+    }
+
+    @Test
+    public void prewarmedPush() {
+        measurePush("prewarmedPush", true);
+    }
+
+    private void measurePush(String benchmark, final boolean prewarm) {
+        final Router router = host.router;
+        final RouterTransaction[] next = new RouterTransaction[1];
+        Benchmark.measure(name(benchmark), new Runnable() {
+            @Override
+            public void run() {
+                if (router.getBackstackSize() > 1) {
+                    router.popCurrentController();
+                }
+
+                next[0] = RouterTransaction.with(new BenchmarkController(viewCount, false));
+                if (prewarm) {
+                    router.prewarm(next[0], DIRECT_EXECUTOR);
+                }
+            }
+        }, new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                router.pushController(next[0]);
+                return router;
+            }
+        }, -1);
+    }
+
+    private String name(String benchmark) {
+        return "PrewarmBenchmarks." + benchmark + " views=" + viewCount;
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bluelinelabs.conductor.benchmark.Benchmark;
+import com.bluelinelabs.conductor.changehandler.FadeChangeHandler;
+import com.bluelinelabs.conductor.internal.ClassUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.ParameterizedRobolectricTestRunner.Parameters;
+import org.robolectric.annotation.Config;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Restores a 200 Controller backstack, each with its own push and pop change handlers, through either the default
+ * factories or factories that repeat the reflective lookups restore used to do for every instance.
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class RestoreBenchmarks {
+
+    private static final int CONTROLLER_COUNT = 200;
+
+    @Parameters(name = "factories={0}")
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(new Object[][] { { "uncached" }, { "default" } });
+    }
+
+    private final String factories;
+    private final ControllerFactory originalControllerFactory = Conductor.getControllerFactory();
+    private final ChangeHandlerFactory originalChangeHandlerFactory = Conductor.getChangeHandlerFactory();
+    private BenchmarkHost host;
+
+    public RestoreBenchmarks(String factories) {
+        this.factories = factories;
+    }
+
+    @Before
+    public void setup() {
+        if (factories.equals("uncached")) {
+            Conductor.setControllerFactory(new UncachedControllerFactory());
+            Conductor.setChangeHandlerFactory(new UncachedChangeHandlerFactory());
+        }
+
+        host = new BenchmarkHost();
+        List<RouterTransaction> transactions = new ArrayList<>(CONTROLLER_COUNT);
+        for (int i = 0; i < CONTROLLER_COUNT; i++) {
+            transactions.add(RouterTransaction.with(new BenchmarkController())
+                    .pushChangeHandler(new FadeChangeHandler())
+                    .popChangeHandler(new FadeChangeHandler()));
+        }
+        host.router.setBackstack(transactions, null);
+    }
+
+    @After
+    public void tearDown() {
+        host.destroy();
+        Conductor.setControllerFactory(originalControllerFactory);
+        Conductor.setChangeHandlerFactory(originalChangeHandlerFactory);
+    }
+
+    @Test
+    public void backstackRestoreInstanceState() {
+        final Bundle savedState = new Bundle();
+        host.router.backstack.saveInstanceState(savedState, false, null);
+        final ClassLoader classLoader = getClass().getClassLoader();
+
+        Benchmark.measure("RestoreBenchmarks.backstackRestoreInstanceState factories=" + factories, new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                Backstack backstack = new Backstack();
+                backstack.restoreInstanceState(Benchmark.unmarshalledCopy(savedState, classLoader));
+                return backstack;
+            }
+        }, Benchmark.marshalledSize(savedState));
+    }
+
+    /**
+     * Looks up the class and scans its constructors for every instance, as restore did before factories existed.
+     */
+    static class UncachedControllerFactory extends ControllerFactory {
+
+        @NonNull @Override
+        public Controller instantiate(@NonNull ClassLoader classLoader, @NonNull String className, @Nullable Bundle args) {
+            Class<?> cls = ClassUtils.classForName(className, false);
+            Constructor<?> defaultConstructor = null;
+            try {
+                //noinspection ConstantConditions
+                for (Constructor<?> constructor : cls.getConstructors()) {
+                    Class<?>[] parameterTypes = constructor.getParameterTypes();
+                    if (parameterTypes.length == 1 && parameterTypes[0] == Bundle.class) {
+                        return (Controller) constructor.newInstance(args);
+                    } else if (parameterTypes.length == 0) {
+                        defaultConstructor = constructor;
+                    }
+                }
+                //noinspection ConstantConditions
+                return (Controller) defaultConstructor.newInstance();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    static class UncachedChangeHandlerFactory extends ChangeHandlerFactory {
+
+        @NonNull @Override
+        public ControllerChangeHandler instantiate(@NonNull ClassLoader classLoader, @NonNull String className) {
+            //noinspection ConstantConditions
+            return ClassUtils.newInstance(className);
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+
+import com.bluelinelabs.conductor.benchmark.Benchmark;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.ParameterizedRobolectricTestRunner.Parameters;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(ParameterizedRobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class RouterBenchmarks {
+
+    @Parameters(name = "depth={0}")
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(new Object[][] { { 1 }, { 10 }, { 100 }, { 1000 } });
+    }
+
+    private final int depth;
+    private BenchmarkHost host;
+
+    public RouterBenchmarks(int depth) {
+        this.depth = depth;
+    }
+
+    @Before
+    public void setup() {
+        host = new BenchmarkHost();
+        host.fill(depth);
+    }
+
+    @After
+    public void tearDown() {
+        host.destroy();
+    }
+
+    @Test
+    public void pushPop() {
+        final Router router = host.router;
+        Benchmark.measure(name("pushPop"), new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                router.pushController(RouterTransaction.with(new BenchmarkController()));
+                router.popCurrentController();
+                return router;
+            }
+        });
+    }
+
+    @Test
+    public void pushPopToTag() {
+        final Router router = host.router;
+        final String topTag = "tag" + (depth - 1);
+        Benchmark.measure(name("pushPopToTag"), new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                router.pushController(RouterTransaction.with(new BenchmarkController()));
+                router.popToTag(topTag);
+                return router;
+            }
+        });
+    }
+
+    @Test
+    public void setBackstackSwapTop() {
+        assumeTrue(depth > 1);
+
+        final Router router = host.router;
+        Benchmark.measure(name("setBackstackSwapTop"), new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                List<RouterTransaction> backstack = router.getBackstack();
+                int size = backstack.size();
+                RouterTransaction top = backstack.get(size - 1);
+                backstack.set(size - 1, backstack.get(size - 2));
+                backstack.set(size - 2, top);
+                router.setBackstack(backstack, null);
+                return router;
+            }
+        });
+    }
+
+    @Test
+    public void routerSaveInstanceState() {
+        Benchmark.measure(name("routerSaveInstanceState"), new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                return host.saveInstanceState();
+            }
+        }, Benchmark.marshalledSize(host.saveInstanceState()));
+    }
+
+    @Test
+    public void backstackRestoreInstanceState() {
+        final Bundle savedState = new Bundle();
+        host.router.backstack.saveInstanceState(savedState, false, null);
+        final ClassLoader classLoader = getClass().getClassLoader();
+
+        Benchmark.measure(name("backstackRestoreInstanceState"), new Benchmark.Operation() {
+            @Override
+            public Object run() {
+                Backstack backstack = new Backstack();
+                backstack.restoreInstanceState(Benchmark.unmarshalledCopy(savedState, classLoader));
+                return backstack;
+            }
+        }, Benchmark.marshalledSize(savedState));
+    }
+
+    private String name(String benchmark) {
+        return "RouterBenchmarks." + benchmark + " depth=" + depth;
+    }
+
+}
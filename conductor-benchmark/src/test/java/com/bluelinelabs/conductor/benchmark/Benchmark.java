@@ -0,0 +1,187 @@
+package com.bluelinelabs.conductor.benchmark;
+
+import android.os.Bundle;
+import android.os.Parcel;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * A small, JMH-style harness for measuring Conductor operations in-process. Each benchmark is run for a number of
+ * timed warmup iterations, followed by timed measurement iterations whose throughput is reported as mean and
+ * standard deviation. Allocation is measured per thread, so it only counts what the operation allocates on the
+ * calling thread.
+ * <p>
+ * JMH itself can't be used, since Conductor requires its operations to run on the main thread of a Robolectric
+ * sandbox, which JMH's forked worker threads are not.
+ */
+public final class Benchmark {
+
+    /**
+     * A single benchmarked operation. Returned values are consumed so the JIT can't eliminate the work.
+     */
+    public interface Operation {
+        Object run();
+    }
+
+    private static final int WARMUP_ITERATIONS = Integer.getInteger("conductor.benchmark.warmupIterations", 3);
+    private static final int MEASUREMENT_ITERATIONS = Integer.getInteger("conductor.benchmark.measurementIterations", 5);
+    private static final long ITERATION_NANOS = Long.getLong("conductor.benchmark.iterationMillis", 500) * 1_000_000L;
+
+    private static volatile int sink;
+
+    private Benchmark() { }
+
+    /**
+     * Measures the throughput and allocation rate of the passed operation.
+     */
+    @NonNull
+    public static BenchmarkResult measure(@NonNull String name, @NonNull Operation operation) {
+        return measure(name, null, operation, -1);
+    }
+
+    /**
+     * Measures the throughput and allocation rate of the passed operation, reporting the passed state size along
+     * with the results.
+     */
+    @NonNull
+    public static BenchmarkResult measure(@NonNull String name, @NonNull Operation operation, long stateBytes) {
+        return measure(name, null, operation, stateBytes);
+    }
+
+    /**
+     * Measures the throughput and allocation rate of the passed operation, running the passed setup before each
+     * invocation. Time and allocations spent in the setup are excluded, at the cost of timing every invocation
+     * individually, so this should only be used for operations that take at least several microseconds.
+     */
+    @NonNull
+    public static BenchmarkResult measure(@NonNull String name, @Nullable Runnable setup, @NonNull Operation operation, long stateBytes) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            runIteration(setup, operation);
+        }
+
+        double[] opsPerSecond = new double[MEASUREMENT_ITERATIONS];
+        long totalOps = 0;
+        long totalAllocated = 0;
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            Iteration iteration = runIteration(setup, operation);
+            opsPerSecond[i] = iteration.ops * 1e9 / iteration.nanos;
+            totalOps += iteration.ops;
+            totalAllocated = totalAllocated < 0 || iteration.allocatedBytes < 0 ? -1 : totalAllocated + iteration.allocatedBytes;
+        }
+
+        double bytesPerOp = totalAllocated < 0 ? -1 : (double)totalAllocated / totalOps;
+        BenchmarkResult result = new BenchmarkResult(name, mean(opsPerSecond), standardDeviation(opsPerSecond), bytesPerOp, stateBytes);
+        System.out.println(result);
+        return result;
+    }
+
+    /**
+     * Returns the number of bytes the passed Bundle takes up when marshalled, which is what counts against the
+     * Binder transaction limit when it is saved as instance state.
+     */
+    public static long marshalledSize(@NonNull Bundle bundle) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(bundle);
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * Returns a copy of the passed Bundle that has been through a Parcel, as it would be after process death.
+     */
+    @NonNull
+    public static Bundle unmarshalledCopy(@NonNull Bundle bundle, @NonNull ClassLoader classLoader) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(bundle);
+            parcel.setDataPosition(0);
+            Bundle copy = parcel.readBundle(classLoader);
+            //noinspection ConstantConditions
+            copy.size(); // forces the Bundle to unparcel its contents
+            return copy;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @NonNull
+    private static Iteration runIteration(@Nullable Runnable setup, @NonNull Operation operation) {
+        Iteration iteration = new Iteration();
+        long deadline = System.nanoTime() + ITERATION_NANOS;
+        int hash = 0;
+
+        if (setup == null) {
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            do {
+                hash += identityHash(operation.run());
+                iteration.ops++;
+            } while (System.nanoTime() < deadline);
+            iteration.nanos = System.nanoTime() - start;
+            iteration.allocatedBytes = allocatedBefore < 0 ? -1 : allocatedBytes() - allocatedBefore;
+        } else {
+            do {
+                setup.run();
+                long allocatedBefore = allocatedBytes();
+                long start = System.nanoTime();
+                hash += identityHash(operation.run());
+                iteration.nanos += System.nanoTime() - start;
+                iteration.allocatedBytes = allocatedBefore < 0 ? -1 : iteration.allocatedBytes + allocatedBytes() - allocatedBefore;
+                iteration.ops++;
+            } while (System.nanoTime() < deadline);
+        }
+
+        sink += hash;
+        return iteration;
+    }
+
+    private static int identityHash(@Nullable Object result) {
+        return result != null ? System.identityHashCode(result) : 0;
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean)threadMXBean;
+            if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+                return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static double mean(@NonNull double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    private static double standardDeviation(@NonNull double[] values) {
+        if (values.length < 2) {
+            return 0;
+        }
+
+        double mean = mean(values);
+        double sumOfSquares = 0;
+        for (double value : values) {
+            sumOfSquares += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(sumOfSquares / (values.length - 1));
+    }
+
+    private static class Iteration {
+        long ops;
+        long nanos;
+        long allocatedBytes;
+    }
+
+}
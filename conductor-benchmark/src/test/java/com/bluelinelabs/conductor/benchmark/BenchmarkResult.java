@@ -0,0 +1,38 @@
+package com.bluelinelabs.conductor.benchmark;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * The outcome of a single {@link Benchmark#measure(String, Benchmark.Operation)} run.
+ */
+public final class BenchmarkResult {
+
+    @NonNull public final String name;
+    public final double opsPerSecond;
+    public final double opsPerSecondError;
+    public final double bytesPerOp;
+    public final long stateBytes;
+
+    BenchmarkResult(@NonNull String name, double opsPerSecond, double opsPerSecondError, double bytesPerOp, long stateBytes) {
+        this.name = name;
+        this.opsPerSecond = opsPerSecond;
+        this.opsPerSecondError = opsPerSecondError;
+        this.bytesPerOp = bytesPerOp;
+        this.stateBytes = stateBytes;
+    }
+
+    @Override @NonNull
+    public String toString() {
+        StringBuilder builder = new StringBuilder(String.format(Locale.US, "%-60s %14.1f ± %10.1f ops/s", name, opsPerSecond, opsPerSecondError));
+        if (bytesPerOp >= 0) {
+            builder.append(String.format(Locale.US, "  %12.1f B/op", bytesPerOp));
+        }
+        if (stateBytes >= 0) {
+            builder.append(String.format(Locale.US, "  %10d B state", stateBytes));
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,220 @@
+package com.bluelinelabs.conductor.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Discovers every {@code Controller} and {@code ControllerChangeHandler} subclass in the current compilation and
+ * generates an {@code InstantiationRegistry} that creates them with direct constructor calls, so restoring them
+ * from saved state needs no reflection. The generated class has to be installed with
+ * {@code Conductor.addInstantiationRegistry(new ConductorInstantiationRegistry())}.
+ * <p>
+ * A class is included when it could also be created reflectively, following the same rules as the
+ * {@code ValidController} and {@code ValidControllerChangeHandler} lint checks: it must be concrete and public,
+ * nested classes must be static and only nested in public classes, Controllers need a public constructor that
+ * takes a single Bundle or a public default constructor, and change handlers need a public default
+ * constructor. Classes that don't qualify are left to reflection.
+ * <p>
+ * Every module that runs the processor generates its own registry, so modules other than the app should pick a
+ * distinct class name through the {@value #OPTION_REGISTRY_CLASS} option.
+ */
+@SupportedOptions(InstantiationRegistryProcessor.OPTION_REGISTRY_CLASS)
+public final class InstantiationRegistryProcessor extends AbstractProcessor {
+
+    static final String OPTION_REGISTRY_CLASS = "conductor.registryClass";
+    static final String DEFAULT_REGISTRY_CLASS = "com.bluelinelabs.conductor.generated.ConductorInstantiationRegistry";
+
+    private static final String CONTROLLER = "com.bluelinelabs.conductor.Controller";
+    private static final String CHANGE_HANDLER = "com.bluelinelabs.conductor.ControllerChangeHandler";
+    private static final String BUNDLE = "android.os.Bundle";
+
+    // Binary class name to constructor call, sorted so the output is stable between builds
+    private final Map<String, String> controllers = new TreeMap<>();
+    private final Map<String, String> changeHandlers = new TreeMap<>();
+    private final List<Element> originatingElements = new ArrayList<>();
+    private boolean generated;
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton("*");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        // Generated in the first round, so the registry is compiled with everything else. Controllers that are
+        // themselves generated by other processors in later rounds are left to reflection.
+        if (generated || roundEnv.processingOver()) {
+            return false;
+        }
+        generated = true;
+
+        Elements elements = processingEnv.getElementUtils();
+        TypeElement controllerType = elements.getTypeElement(CONTROLLER);
+        TypeElement changeHandlerType = elements.getTypeElement(CHANGE_HANDLER);
+        if (controllerType == null || changeHandlerType == null) {
+            return false;
+        }
+
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            scan(type, controllerType.asType(), changeHandlerType.asType());
+        }
+
+        writeRegistry();
+        return false;
+    }
+
+    private void scan(TypeElement type, TypeMirror controllerType, TypeMirror changeHandlerType) {
+        if (type.getKind() == ElementKind.CLASS && isInstantiable(type)) {
+            Types types = processingEnv.getTypeUtils();
+            TypeMirror erasure = types.erasure(type.asType());
+            String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+            String qualifiedName = type.getQualifiedName().toString();
+
+            if (types.isSubtype(erasure, types.erasure(controllerType))) {
+                if (hasConstructor(type, BUNDLE)) {
+                    controllers.put(binaryName, "new " + qualifiedName + "(args)");
+                    originatingElements.add(type);
+                } else if (hasConstructor(type, null)) {
+                    controllers.put(binaryName, "new " + qualifiedName + "()");
+                    originatingElements.add(type);
+                }
+            } else if (types.isSubtype(erasure, types.erasure(changeHandlerType)) && hasConstructor(type, null)) {
+                changeHandlers.put(binaryName, "new " + qualifiedName + "()");
+                originatingElements.add(type);
+            }
+        }
+
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            scan(nested, controllerType, changeHandlerType);
+        }
+    }
+
+    private static boolean isInstantiable(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+
+        Element current = type;
+        while (current instanceof TypeElement) {
+            TypeElement currentType = (TypeElement) current;
+            if (!currentType.getModifiers().contains(Modifier.PUBLIC)) {
+                return false;
+            } else if (currentType.getNestingKind() == NestingKind.MEMBER && !currentType.getModifiers().contains(Modifier.STATIC)) {
+                return false;
+            } else if (currentType.getNestingKind() == NestingKind.LOCAL || currentType.getNestingKind() == NestingKind.ANONYMOUS) {
+                return false;
+            }
+            current = current.getEnclosingElement();
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the type has a public constructor taking a single parameter of the passed type, or a public
+     * default constructor if the passed type is {@code null}.
+     */
+    private boolean hasConstructor(TypeElement type, String parameterType) {
+        Types types = processingEnv.getTypeUtils();
+        TypeElement parameterElement = parameterType != null ? processingEnv.getElementUtils().getTypeElement(parameterType) : null;
+        if (parameterType != null && parameterElement == null) {
+            return false;
+        }
+
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (!constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                continue;
+            }
+
+            List<? extends VariableElement> parameters = constructor.getParameters();
+            if (parameterElement == null && parameters.isEmpty()) {
+                return true;
+            } else if (parameterElement != null && parameters.size() == 1
+                    && types.isSameType(types.erasure(parameters.get(0).asType()), types.erasure(parameterElement.asType()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeRegistry() {
+        String registryClass = processingEnv.getOptions().get(OPTION_REGISTRY_CLASS);
+        if (registryClass == null || registryClass.isEmpty()) {
+            registryClass = DEFAULT_REGISTRY_CLASS;
+        }
+
+        int lastDot = registryClass.lastIndexOf('.');
+        String packageName = lastDot >= 0 ? registryClass.substring(0, lastDot) : "";
+        String simpleName = registryClass.substring(lastDot + 1);
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("import android.os.Bundle;\n\n")
+                .append("import com.bluelinelabs.conductor.Controller;\n")
+                .append("import com.bluelinelabs.conductor.ControllerChangeHandler;\n")
+                .append("import com.bluelinelabs.conductor.InstantiationRegistry;\n\n")
+                .append("/**\n * Generated by conductor-compiler. Do not edit.\n */\n")
+                .append("@SuppressWarnings({\"rawtypes\", \"unchecked\"})\n")
+                .append("public final class ").append(simpleName).append(" implements InstantiationRegistry {\n\n")
+                .append("    @Override\n")
+                .append("    public Controller newController(String className, Bundle args) {\n");
+        appendSwitch(source, controllers);
+        source.append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public ControllerChangeHandler newChangeHandler(String className) {\n");
+        appendSwitch(source, changeHandlers);
+        source.append("    }\n\n")
+                .append("}\n");
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(registryClass, originatingElements.toArray(new Element[0]));
+            try (Writer writer = file.openWriter()) {
+                writer.write(source.toString());
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + registryClass + ": " + e.getMessage());
+        }
+    }
+
+    private static void appendSwitch(StringBuilder source, Map<String, String> constructorCalls) {
+        source.append("        switch (className) {\n");
+        for (Map.Entry<String, String> entry : constructorCalls.entrySet()) {
+            source.append("            case \"").append(entry.getKey()).append("\":\n")
+                    .append("                return ").append(entry.getValue()).append(";\n");
+        }
+        source.append("            default:\n")
+                .append("                return null;\n")
+                .append("        }\n");
+    }
+
+}
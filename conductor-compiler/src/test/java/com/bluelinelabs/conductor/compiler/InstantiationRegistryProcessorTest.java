@@ -0,0 +1,109 @@
+package com.bluelinelabs.conductor.compiler;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import javax.tools.JavaFileObject;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class InstantiationRegistryProcessorTest {
+
+    // Minimal stand-ins for the Android and Conductor classes the processor looks up by name
+    private static final JavaFileObject BUNDLE = JavaFileObjects.forSourceLines("android.os.Bundle",
+            "package android.os;",
+            "public class Bundle { }");
+    private static final JavaFileObject CONTROLLER = JavaFileObjects.forSourceLines("com.bluelinelabs.conductor.Controller",
+            "package com.bluelinelabs.conductor;",
+            "public abstract class Controller {",
+            "    protected Controller() { }",
+            "    protected Controller(android.os.Bundle args) { }",
+            "}");
+    private static final JavaFileObject CHANGE_HANDLER = JavaFileObjects.forSourceLines("com.bluelinelabs.conductor.ControllerChangeHandler",
+            "package com.bluelinelabs.conductor;",
+            "public abstract class ControllerChangeHandler { }");
+    private static final JavaFileObject REGISTRY = JavaFileObjects.forSourceLines("com.bluelinelabs.conductor.InstantiationRegistry",
+            "package com.bluelinelabs.conductor;",
+            "public interface InstantiationRegistry {",
+            "    Controller newController(String className, android.os.Bundle args);",
+            "    ControllerChangeHandler newChangeHandler(String className);",
+            "}");
+
+    @Test
+    public void testGeneratesConstructorCallsForValidClasses() throws IOException {
+        JavaFileObject screens = JavaFileObjects.forSourceLines("com.example.Screens",
+                "package com.example;",
+                "import android.os.Bundle;",
+                "import com.bluelinelabs.conductor.Controller;",
+                "import com.bluelinelabs.conductor.ControllerChangeHandler;",
+                "public class Screens {",
+                "    public static class ArgsScreen extends Controller {",
+                "        public ArgsScreen(Bundle args) { super(args); }",
+                "    }",
+                "    public static class DefaultScreen extends Controller { }",
+                "    public static class FadeHandler extends ControllerChangeHandler { }",
+                "}");
+
+        Compilation compilation = javac()
+                .withProcessors(new InstantiationRegistryProcessor())
+                .compile(BUNDLE, CONTROLLER, CHANGE_HANDLER, REGISTRY, screens);
+
+        assertThat(compilation).succeeded();
+        String registry = generatedRegistry(compilation);
+        assertTrue(registry.contains("case \"com.example.Screens$ArgsScreen\":"));
+        assertTrue(registry.contains("return new com.example.Screens.ArgsScreen(args);"));
+        assertTrue(registry.contains("return new com.example.Screens.DefaultScreen();"));
+        assertTrue(registry.contains("return new com.example.Screens.FadeHandler();"));
+    }
+
+    @Test
+    public void testSkipsClassesThatCannotBeCreatedReflectively() throws IOException {
+        JavaFileObject screens = JavaFileObjects.forSourceLines("com.example.Screens",
+                "package com.example;",
+                "import com.bluelinelabs.conductor.Controller;",
+                "import com.bluelinelabs.conductor.ControllerChangeHandler;",
+                "public class Screens {",
+                "    public class InnerScreen extends Controller { }",
+                "    static class PackagePrivateScreen extends Controller { }",
+                "    public abstract static class AbstractScreen extends Controller { }",
+                "    public static class InjectedScreen extends Controller {",
+                "        public InjectedScreen(String dependency) { }",
+                "    }",
+                "    public static class InjectedHandler extends ControllerChangeHandler {",
+                "        public InjectedHandler(String dependency) { }",
+                "    }",
+                "}");
+
+        Compilation compilation = javac()
+                .withProcessors(new InstantiationRegistryProcessor())
+                .compile(BUNDLE, CONTROLLER, CHANGE_HANDLER, REGISTRY, screens);
+
+        assertThat(compilation).succeeded();
+        assertFalse(generatedRegistry(compilation).contains("com.example"));
+    }
+
+    @Test
+    public void testRegistryClassOption() {
+        Compilation compilation = javac()
+                .withProcessors(new InstantiationRegistryProcessor())
+                .withOptions("-Aconductor.registryClass=com.example.feature.FeatureRegistry")
+                .compile(BUNDLE, CONTROLLER, CHANGE_HANDLER, REGISTRY);
+
+        assertThat(compilation).succeeded();
+        assertThat(compilation).generatedSourceFile("com.example.feature.FeatureRegistry");
+    }
+
+    private static String generatedRegistry(Compilation compilation) throws IOException {
+        //noinspection OptionalGetWithoutIsPresent
+        return compilation.generatedSourceFile(InstantiationRegistryProcessor.DEFAULT_REGISTRY_CLASS).get()
+                .getCharContent(true).toString();
+    }
+
+}
@@ -13,6 +13,8 @@ import androidx.viewpager.widget.PagerAdapter;
 import com.bluelinelabs.conductor.Controller;
 import com.bluelinelabs.conductor.Router;
 import com.bluelinelabs.conductor.RouterTransaction;
+import com.bluelinelabs.conductor.TrimMemoryParticipant;
+import com.bluelinelabs.conductor.TrimMemoryReport;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -38,11 +40,24 @@ public abstract class RouterPagerAdapter extends PagerAdapter {
     private ArrayList<Integer> savedPageHistory = new ArrayList<>();
     private Router currentPrimaryRouter;
 
+    // Held here since the host only references participants weakly
+    private final TrimMemoryParticipant trimMemoryParticipant = new TrimMemoryParticipant() {
+        @Override
+        public void onTrimMemory(@NonNull TrimMemoryReport report) {
+            int pagesToKeep = report.savedStatesToKeep(savedPages.size());
+            int droppedPages = savedPages.size() - pagesToKeep;
+            removeLeastRecentlySavedPages(pagesToKeep);
+            report.recordDroppedSavedStates(droppedPages);
+        }
+    };
+
     /**
-     * Creates a new RouterPagerAdapter using the passed host.
+     * Creates a new RouterPagerAdapter using the passed host. Saved states of pages are dropped, starting with the
+     * least recently saved ones, when the system is low on memory.
      */
     public RouterPagerAdapter(@NonNull Controller host) {
         this.host = host;
+        host.addTrimMemoryParticipant(trimMemoryParticipant);
     }
 
     /**
@@ -197,7 +212,11 @@ public abstract class RouterPagerAdapter extends PagerAdapter {
     }
 
     private void ensurePagesSaved() {
-        while (savedPages.size() > maxPagesToStateSave) {
+        removeLeastRecentlySavedPages(maxPagesToStateSave);
+    }
+
+    private void removeLeastRecentlySavedPages(int pagesToKeep) {
+        while (savedPages.size() > pagesToKeep) {
             int positionToRemove = savedPageHistory.remove(0);
             savedPages.remove(positionToRemove);
         }
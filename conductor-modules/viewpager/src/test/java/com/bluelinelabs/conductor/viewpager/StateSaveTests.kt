@@ -1,6 +1,7 @@
 package com.bluelinelabs.conductor.viewpager
 
 import android.app.Activity
+import android.content.ComponentCallbacks2
 import android.os.Looper.getMainLooper
 import android.view.ViewGroup
 import android.widget.FrameLayout
@@ -9,6 +10,7 @@ import androidx.viewpager.widget.ViewPager
 import com.bluelinelabs.conductor.Conductor
 import com.bluelinelabs.conductor.Router
 import com.bluelinelabs.conductor.RouterTransaction.Companion.with
+import com.bluelinelabs.conductor.TrimMemoryReport
 import com.bluelinelabs.conductor.viewpager.util.TestController
 import org.junit.Assert.assertEquals
 import org.junit.Test
@@ -22,6 +24,7 @@ import org.robolectric.annotation.Config
 @Config(manifest = Config.NONE)
 class StateSaveTests {
 
+  private val router: Router
   private val pager: ViewPager
   private val pagerAdapter: RouterPagerAdapter
   private val destroyedItems = mutableListOf<Int>()
@@ -30,7 +33,7 @@ class StateSaveTests {
     val activityController = Robolectric.buildActivity(Activity::class.java).setup()
     val layout = FrameLayout(activityController.get())
     activityController.get().setContentView(layout)
-    val router = Conductor.attachRouter(activityController.get(), FrameLayout(activityController.get()), null)
+    router = Conductor.attachRouter(activityController.get(), FrameLayout(activityController.get()), null)
     val controller = TestController()
     router.setRoot(with(controller))
     pager = ViewPager(activityController.get()).also {
@@ -116,4 +119,24 @@ class StateSaveTests {
     assertEquals(destroyedItems[destroyedItems.lastIndex - 1], savedPages.keyAt(1))
     assertEquals(destroyedItems[destroyedItems.lastIndex - 2], savedPages.keyAt(2))
   }
-}
\ No newline at end of file
+
+  @Test
+  fun testTrimMemoryDropsSavedPages() {
+    // Load all pages
+    for (i in 0 until pagerAdapter.count) {
+      pager.currentItem = i
+      shadowOf(getMainLooper()).idle()
+    }
+
+    val savedPageCount = pagerAdapter.savedPages.size()
+    val lastSavedPage = destroyedItems[destroyedItems.lastIndex]
+
+    val report = TrimMemoryReport(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL)
+    router.onTrimMemory(report)
+
+    // Ensure only the most recently saved page is kept
+    assertEquals(1, pagerAdapter.savedPages.size())
+    assertEquals(lastSavedPage, pagerAdapter.savedPages.keyAt(0))
+    assertEquals(savedPageCount - 1, report.droppedSavedStates)
+  }
+}
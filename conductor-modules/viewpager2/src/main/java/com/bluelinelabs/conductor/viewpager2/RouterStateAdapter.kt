@@ -10,10 +10,12 @@ import androidx.viewpager2.adapter.StatefulAdapter
 import androidx.viewpager2.widget.ViewPager2
 import com.bluelinelabs.conductor.Controller
 import com.bluelinelabs.conductor.Router
+import com.bluelinelabs.conductor.TrimMemoryParticipant
 import kotlinx.android.parcel.Parcelize
 
 /**
- * An ViewPager2 adapter that uses Routers as pages
+ * An ViewPager2 adapter that uses Routers as pages. Saved states of pages are dropped, starting with the least
+ * recently saved ones, when the system is low on memory.
  */
 abstract class RouterStateAdapter(private val host: Controller) :
   RecyclerView.Adapter<RouterViewHolder>(), StatefulAdapter {
@@ -25,8 +27,17 @@ abstract class RouterStateAdapter(private val host: Controller) :
   private var currentPrimaryRouterPosition = 0
   private var primaryItemCallback: PrimaryItemCallback? = null
 
+  // Held here since the host only references participants weakly
+  private val trimMemoryParticipant = TrimMemoryParticipant { report ->
+    val pagesToKeep = report.savedStatesToKeep(savedPages.size())
+    val droppedPages = savedPages.size() - pagesToKeep
+    removeLeastRecentlySavedPages(pagesToKeep)
+    report.recordDroppedSavedStates(droppedPages)
+  }
+
   init {
     super.setHasStableIds(true)
+    host.addTrimMemoryParticipant(trimMemoryParticipant)
   }
 
   /**
@@ -216,7 +227,11 @@ abstract class RouterStateAdapter(private val host: Controller) :
   }
 
   private fun ensurePagesSaved() {
-    while (savedPages.size() > maxPagesToStateSave) {
+    removeLeastRecentlySavedPages(maxPagesToStateSave)
+  }
+
+  private fun removeLeastRecentlySavedPages(pagesToKeep: Int) {
+    while (savedPages.size() > pagesToKeep) {
       val routerIdToRemove = savedPageHistory.removeAt(0)
       savedPages.remove(routerIdToRemove)
     }
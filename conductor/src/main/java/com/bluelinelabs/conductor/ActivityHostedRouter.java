@@ -5,6 +5,7 @@ import android.content.Intent;
 import android.content.IntentSender;
 import android.content.IntentSender.SendIntentException;
 import android.os.Bundle;
+import android.view.Choreographer;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
@@ -14,12 +15,22 @@ import com.bluelinelabs.conductor.ControllerChangeHandler.ControllerChangeListen
 import com.bluelinelabs.conductor.internal.LifecycleHandler;
 import com.bluelinelabs.conductor.internal.TransactionIndexer;
 
-import java.util.List;
-
 public class ActivityHostedRouter extends Router {
 
     private LifecycleHandler lifecycleHandler;
     private final TransactionIndexer transactionIndexer = new TransactionIndexer();
+    private boolean optionsMenuInvalidationPending;
+    // Attaching, detaching and hiding Controllers can each ask for a new menu several times during one change,
+    // so the request is forwarded to the FragmentManager at most once per frame.
+    private final Choreographer.FrameCallback invalidateOptionsMenuCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            optionsMenuInvalidationPending = false;
+            if (lifecycleHandler != null && lifecycleHandler.getFragmentManager() != null) {
+                lifecycleHandler.getFragmentManager().invalidateOptionsMenu();
+            }
+        }
+    };
 
     public final void setHost(@NonNull LifecycleHandler lifecycleHandler, @NonNull ViewGroup container) {
         if (this.lifecycleHandler != lifecycleHandler || this.container != container) {
@@ -64,12 +75,18 @@ public class ActivityHostedRouter extends Router {
         if (!isConfigurationChange) {
             lifecycleHandler = null;
         }
+
+        if (optionsMenuInvalidationPending) {
+            optionsMenuInvalidationPending = false;
+            Choreographer.getInstance().removeFrameCallback(invalidateOptionsMenuCallback);
+        }
     }
 
     @Override
     public final void invalidateOptionsMenu() {
-        if (lifecycleHandler != null && lifecycleHandler.getFragmentManager() != null) {
-            lifecycleHandler.getFragmentManager().invalidateOptionsMenu();
+        if (!optionsMenuInvalidationPending && lifecycleHandler != null && lifecycleHandler.getFragmentManager() != null) {
+            optionsMenuInvalidationPending = true;
+            Choreographer.getInstance().postFrameCallback(invalidateOptionsMenuCallback);
         }
     }
 
@@ -119,11 +136,6 @@ public class ActivityHostedRouter extends Router {
         return lifecycleHandler != null;
     }
 
-    @Override @NonNull
-    List<Router> getSiblingRouters() {
-        return lifecycleHandler.getRouters();
-    }
-
     @Override @NonNull
     Router getRootRouter() {
         return this;
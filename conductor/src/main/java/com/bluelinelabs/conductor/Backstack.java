@@ -9,8 +9,11 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 class Backstack implements Iterable<RouterTransaction> {
 
@@ -18,6 +21,13 @@ class Backstack implements Iterable<RouterTransaction> {
 
     private final Deque<RouterTransaction> backstack = new ArrayDeque<>();
 
+    // Lookup indices, kept in sync with the deque by every mutating method below
+    private final Map<Controller, RouterTransaction> controllerIndex = new IdentityHashMap<>();
+    private final Map<String, RouterTransaction> instanceIdIndex = new HashMap<>();
+    private final Map<String, List<RouterTransaction>> tagIndex = new HashMap<>();
+
+    private List<SavedStateSize> lastSavedSizes = Collections.emptyList();
+
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
     boolean isEmpty() {
         return backstack.isEmpty();
@@ -34,18 +44,18 @@ class Backstack implements Iterable<RouterTransaction> {
 
     @Override @NonNull
     public Iterator<RouterTransaction> iterator() {
-        return backstack.iterator();
+        return new IndexedIterator(backstack.iterator());
     }
 
     @NonNull
     Iterator<RouterTransaction> reverseIterator() {
-        return backstack.descendingIterator();
+        return new IndexedIterator(backstack.descendingIterator());
     }
 
     @NonNull
     List<RouterTransaction> popTo(@NonNull RouterTransaction transaction) {
         List<RouterTransaction> popped = new ArrayList<>();
-        if (backstack.contains(transaction)) {
+        if (isIndexed(transaction)) {
             while (backstack.peek() != transaction) {
                 RouterTransaction poppedTransaction = pop();
                 popped.add(poppedTransaction);
@@ -59,6 +69,7 @@ class Backstack implements Iterable<RouterTransaction> {
     @NonNull
     RouterTransaction pop() {
         RouterTransaction popped = backstack.pop();
+        removeFromIndex(popped);
         popped.controller().destroy();
         return popped;
     }
@@ -70,6 +81,28 @@ class Backstack implements Iterable<RouterTransaction> {
 
     void push(@NonNull RouterTransaction transaction) {
         backstack.push(transaction);
+        addToIndex(transaction);
+    }
+
+    /**
+     * Removes the passed transaction from anywhere in the backstack without destroying its controller.
+     *
+     * @return Whether or not the transaction was found and removed
+     */
+    boolean remove(@NonNull RouterTransaction transaction) {
+        if (!isIndexed(transaction)) {
+            return false;
+        }
+
+        Iterator<RouterTransaction> iterator = backstack.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() == transaction) {
+                iterator.remove();
+                removeFromIndex(transaction);
+                return true;
+            }
+        }
+        return false;
     }
 
     @NonNull
@@ -83,36 +116,205 @@ class Backstack implements Iterable<RouterTransaction> {
 
     void setBackstack(@NonNull List<RouterTransaction> backstack) {
         this.backstack.clear();
+        controllerIndex.clear();
+        instanceIdIndex.clear();
+        tagIndex.clear();
+
         for (RouterTransaction transaction : backstack) {
-            this.backstack.push(transaction);
+            push(transaction);
         }
     }
 
     boolean contains(@NonNull Controller controller) {
-        for (RouterTransaction transaction : backstack) {
-            if (controller == transaction.controller()) {
-                return true;
-            }
-        }
-        return false;
+        return controllerIndex.containsKey(controller);
+    }
+
+    /**
+     * Returns the transaction hosting the passed controller, or {@code null} if it is not in this backstack.
+     */
+    @Nullable
+    RouterTransaction transactionFor(@NonNull Controller controller) {
+        return controllerIndex.get(controller);
     }
 
-    void saveInstanceState(@NonNull Bundle outState) {
+    /**
+     * Returns the top-most transaction with the given tag, or {@code null} if there is none.
+     */
+    @Nullable
+    RouterTransaction transactionWithTag(@NonNull String tag) {
+        List<RouterTransaction> transactions = tagIndex.get(tag);
+        return transactions != null ? transactions.get(transactions.size() - 1) : null;
+    }
+
+    /**
+     * Returns the transaction whose controller has the given instance id, or {@code null} if there is none.
+     * Only controllers directly in this backstack are considered; child routers are not searched.
+     */
+    @Nullable
+    RouterTransaction transactionWithInstanceId(@NonNull String instanceId) {
+        return instanceIdIndex.get(instanceId);
+    }
+
+    void saveInstanceState(@NonNull Bundle outState, boolean measure, @Nullable StateBudget budget) {
+        measure = measure || budget != null;
+
         ArrayList<Bundle> entryBundles = new ArrayList<>(backstack.size());
+        List<RouterTransaction> entries = measure ? new ArrayList<RouterTransaction>(backstack.size()) : null;
+        List<SavedStateSize> sizes = measure ? new ArrayList<SavedStateSize>(backstack.size()) : null;
         for (RouterTransaction entry : backstack) {
-            entryBundles.add(entry.saveInstanceState());
+            Bundle entryBundle = entry.saveInstanceState();
+            entryBundles.add(entryBundle);
+
+            if (measure) {
+                entries.add(entry);
+                sizes.add(SavedStateSize.measure(entry, entryBundle));
+            }
+        }
+
+        if (measure) {
+            if (budget != null) {
+                budget.apply(entries, entryBundles, sizes);
+            }
+
+            Collections.reverse(sizes);
+            lastSavedSizes = Collections.unmodifiableList(sizes);
         }
 
         outState.putParcelableArrayList(KEY_ENTRIES, entryBundles);
     }
 
+    /**
+     * Returns the entry sizes recorded the last time this backstack was saved with measuring enabled, ordered
+     * from root to top.
+     */
+    @NonNull
+    List<SavedStateSize> getLastSavedSizes() {
+        return lastSavedSizes;
+    }
+
+    /**
+     * Restores the entries saved by {@link #saveInstanceState(Bundle, boolean, StateBudget)}. Their Controllers are
+     * only created once something accesses them.
+     */
     void restoreInstanceState(@NonNull Bundle savedInstanceState) {
         ArrayList<Bundle> entryBundles = savedInstanceState.getParcelableArrayList(KEY_ENTRIES);
         if (entryBundles != null) {
             Collections.reverse(entryBundles);
             for (Bundle transactionBundle : entryBundles) {
-                backstack.push(new RouterTransaction(transactionBundle));
+                push(new RouterTransaction(transactionBundle));
+            }
+        }
+    }
+
+    /**
+     * Builds the saved state of a backstack from the saved states of its entries, ordered from top to root.
+     */
+    @NonNull
+    static Bundle newSavedState(@NonNull ArrayList<Bundle> entryStates) {
+        Bundle outState = new Bundle();
+        outState.putParcelableArrayList(KEY_ENTRIES, entryStates);
+        return outState;
+    }
+
+    /**
+     * Returns the entry states saved by {@link #saveInstanceState(Bundle, boolean, StateBudget)}, ordered from top to
+     * root.
+     */
+    @NonNull
+    static List<Bundle> savedEntries(@NonNull Bundle savedInstanceState) {
+        List<Bundle> entryBundles = savedInstanceState.getParcelableArrayList(KEY_ENTRIES);
+        return entryBundles != null ? entryBundles : Collections.<Bundle>emptyList();
+    }
+
+    /**
+     * Indexes the Controller of a restored entry once it has been created.
+     */
+    void onMaterialized(@NonNull RouterTransaction transaction) {
+        if (isIndexed(transaction)) {
+            controllerIndex.put(transaction.controller(), transaction);
+        }
+    }
+
+    /**
+     * Drops the Controller of an entry from the index before it is hibernated.
+     */
+    void onHibernating(@NonNull RouterTransaction transaction) {
+        if (isIndexed(transaction)) {
+            controllerIndex.remove(transaction.controller());
+        }
+    }
+
+    private boolean isIndexed(@NonNull RouterTransaction transaction) {
+        return instanceIdIndex.get(transaction.instanceId()) == transaction;
+    }
+
+    private void addToIndex(@NonNull RouterTransaction transaction) {
+        if (transaction.isMaterialized()) {
+            controllerIndex.put(transaction.controller(), transaction);
+        }
+        instanceIdIndex.put(transaction.instanceId(), transaction);
+
+        String tag = transaction.tag();
+        if (tag != null) {
+            List<RouterTransaction> tagged = tagIndex.get(tag);
+            if (tagged == null) {
+                tagged = new ArrayList<>(1);
+                tagIndex.put(tag, tagged);
             }
+            tagged.add(transaction);
+        }
+    }
+
+    private void removeFromIndex(@NonNull RouterTransaction transaction) {
+        if (transaction.isMaterialized()) {
+            Controller controller = transaction.controller();
+            if (controllerIndex.get(controller) == transaction) {
+                controllerIndex.remove(controller);
+            }
+        }
+        String instanceId = transaction.instanceId();
+        if (instanceIdIndex.get(instanceId) == transaction) {
+            instanceIdIndex.remove(instanceId);
+        }
+
+        String tag = transaction.tag();
+        if (tag != null) {
+            List<RouterTransaction> tagged = tagIndex.get(tag);
+            if (tagged != null) {
+                tagged.remove(transaction);
+                if (tagged.isEmpty()) {
+                    tagIndex.remove(tag);
+                }
+            }
+        }
+    }
+
+    // Keeps the indices in sync when callers remove entries while iterating
+    private class IndexedIterator implements Iterator<RouterTransaction> {
+
+        private final Iterator<RouterTransaction> delegate;
+        private RouterTransaction current;
+
+        IndexedIterator(@NonNull Iterator<RouterTransaction> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return delegate.hasNext();
+        }
+
+        @Override
+        public RouterTransaction next() {
+            current = delegate.next();
+            return current;
+        }
+
+        @Override
+        public void remove() {
+            delegate.remove();
+            removeFromIndex(current);
+            current = null;
         }
     }
 }
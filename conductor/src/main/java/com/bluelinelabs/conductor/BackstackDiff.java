@@ -0,0 +1,70 @@
+package com.bluelinelabs.conductor;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A keyed diff between two backstacks, computed in linear time using {@link Controller} identity as the key. It
+ * records what {@link Router#setBackstack(List, ControllerChangeHandler)} needs: which transactions were removed and
+ * which were already present. Restored transactions whose Controllers haven't been created yet are keyed by the
+ * transaction itself, see {@link RouterTransaction#diffKey()}.
+ */
+class BackstackDiff {
+
+    /** Transactions whose controllers were on the old backstack but are not on the new one, ordered from root to top. */
+    final List<RouterTransaction> removed = new ArrayList<>();
+
+    private final Map<Object, Boolean> oldKeys;
+
+    private BackstackDiff(int oldSize) {
+        oldKeys = new IdentityHashMap<>(oldSize);
+    }
+
+    /**
+     * Returns whether the passed transaction's controller was on the old backstack.
+     */
+    boolean wasPresent(@NonNull RouterTransaction transaction) {
+        // The transaction may have created its Controller since the diff was calculated
+        return oldKeys.containsKey(transaction)
+                || (transaction.isMaterialized() && oldKeys.containsKey(transaction.controller()));
+    }
+
+    /**
+     * Calculates the diff between the current contents of a {@link Backstack} and a new backstack.
+     *
+     * @param oldBackstack The current backstack
+     * @param newBackstack The new backstack, ordered from root to top
+     * @throws IllegalStateException if the new backstack contains the same controller more than once
+     */
+    @NonNull
+    static BackstackDiff calculate(@NonNull Backstack oldBackstack, @NonNull List<RouterTransaction> newBackstack) {
+        BackstackDiff diff = new BackstackDiff(oldBackstack.size());
+
+        Iterator<RouterTransaction> oldIterator = oldBackstack.reverseIterator();
+        while (oldIterator.hasNext()) {
+            diff.oldKeys.put(oldIterator.next().diffKey(), Boolean.TRUE);
+        }
+
+        Map<Object, Boolean> newControllers = new IdentityHashMap<>(newBackstack.size());
+        for (RouterTransaction transaction : newBackstack) {
+            if (newControllers.put(transaction.diffKey(), Boolean.TRUE) != null) {
+                throw new IllegalStateException("Trying to push the same controller to the backstack more than once.");
+            }
+        }
+
+        oldIterator = oldBackstack.reverseIterator();
+        while (oldIterator.hasNext()) {
+            RouterTransaction transaction = oldIterator.next();
+            if (!newControllers.containsKey(transaction.diffKey())) {
+                diff.removed.add(transaction);
+            }
+        }
+
+        return diff;
+    }
+}
@@ -0,0 +1,239 @@
+package com.bluelinelabs.conductor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+
+import com.bluelinelabs.conductor.internal.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A batch of backstack operations that is applied to its {@link Router} as a single change. Operations are
+ * recorded against a working copy of the backstack, and only the net difference is applied when
+ * {@link #commit()} is called. Controllers that are pushed and removed again within the same batch are never
+ * attached to the Router, so they are never inflated and receive no lifecycle callbacks.
+ * <p>
+ * If the Router's backstack is changed after the batch began, for example by a push from a child Controller, the
+ * batch's operations are replayed on top of the current backstack when it's committed.
+ * <p>
+ * Obtained through {@link Router#beginTransaction()}.
+ */
+public final class BackstackTransaction {
+
+    @NonNull private final Router router;
+    // The router's backstack when the batch began, ordered from root to top
+    @NonNull private final List<RouterTransaction> baseBackstack;
+    @NonNull private final List<RouterTransaction> backstack; // ordered from root to top
+    @NonNull private final List<Operation> operations = new ArrayList<>();
+    @Nullable private ControllerChangeHandler changeHandler;
+    private boolean committed;
+
+    BackstackTransaction(@NonNull Router router) {
+        this.router = router;
+        baseBackstack = router.getBackstack();
+        backstack = new ArrayList<>(baseBackstack);
+    }
+
+    /**
+     * Pushes a transaction onto the top of the backstack.
+     */
+    @NonNull
+    public BackstackTransaction push(@NonNull final RouterTransaction transaction) {
+        return record(new Operation() {
+            @Override
+            public void apply(@NonNull List<RouterTransaction> backstack) {
+                backstack.add(transaction);
+            }
+        });
+    }
+
+    /**
+     * Pops the top transaction from the backstack.
+     *
+     * @throws IllegalStateException if the backstack is empty at this point in the batch
+     */
+    @NonNull
+    public BackstackTransaction pop() {
+        return record(new Operation() {
+            @Override
+            public void apply(@NonNull List<RouterTransaction> backstack) {
+                if (backstack.isEmpty()) {
+                    throw new IllegalStateException("Trying to pop the current controller when there are none on the backstack.");
+                }
+                backstack.remove(backstack.size() - 1);
+            }
+        });
+    }
+
+    /**
+     * Removes the passed Controller from the backstack, wherever it is. Does nothing if it isn't there.
+     */
+    @NonNull
+    public BackstackTransaction remove(@NonNull final Controller controller) {
+        return record(new Operation() {
+            @Override
+            public void apply(@NonNull List<RouterTransaction> backstack) {
+                for (int i = backstack.size() - 1; i >= 0; i--) {
+                    RouterTransaction transaction = backstack.get(i);
+                    if (transaction.isMaterialized() && transaction.controller() == controller) {
+                        backstack.remove(i);
+                        break;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Replaces the top transaction, if any, with the passed one.
+     */
+    @NonNull
+    public BackstackTransaction replaceTop(@NonNull final RouterTransaction transaction) {
+        return record(new Operation() {
+            @Override
+            public void apply(@NonNull List<RouterTransaction> backstack) {
+                if (!backstack.isEmpty()) {
+                    backstack.remove(backstack.size() - 1);
+                }
+                backstack.add(transaction);
+            }
+        });
+    }
+
+    /**
+     * Pops all transactions until only the root is left.
+     */
+    @NonNull
+    public BackstackTransaction popToRoot() {
+        return record(new Operation() {
+            @Override
+            public void apply(@NonNull List<RouterTransaction> backstack) {
+                while (backstack.size() > 1) {
+                    backstack.remove(backstack.size() - 1);
+                }
+            }
+        });
+    }
+
+    /**
+     * Pops all transactions above the top-most one with the passed tag. Does nothing if no transaction in the
+     * batch's working backstack has that tag.
+     */
+    @NonNull
+    public BackstackTransaction popToTag(@NonNull final String tag) {
+        return record(new Operation() {
+            @Override
+            public void apply(@NonNull List<RouterTransaction> backstack) {
+                for (int i = backstack.size() - 1; i >= 0; i--) {
+                    if (tag.equals(backstack.get(i).tag())) {
+                        while (backstack.size() > i + 1) {
+                            backstack.remove(backstack.size() - 1);
+                        }
+                        break;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Replaces the whole backstack with the passed transaction.
+     */
+    @NonNull
+    public BackstackTransaction setRoot(@NonNull final RouterTransaction transaction) {
+        return record(new Operation() {
+            @Override
+            public void apply(@NonNull List<RouterTransaction> backstack) {
+                backstack.clear();
+                backstack.add(transaction);
+            }
+        });
+    }
+
+    /**
+     * Sets the {@link ControllerChangeHandler} used for the net change. If none is set, the new top's push handler
+     * is used when it wasn't on the backstack before, and the old top's pop handler otherwise.
+     */
+    @NonNull
+    public BackstackTransaction changeHandler(@Nullable ControllerChangeHandler changeHandler) {
+        ensureNotCommitted();
+        this.changeHandler = changeHandler;
+        return this;
+    }
+
+    /**
+     * Applies the net result of all operations in this batch to the Router. A batch can only be committed once. If
+     * the Router's backstack was changed since the batch began, the operations are applied again on top of its
+     * current backstack, so those changes are kept.
+     *
+     * @throws IllegalStateException if an operation is no longer valid on the Router's current backstack
+     */
+    @UiThread
+    public void commit() {
+        ThreadUtils.ensureMainThread();
+        ensureNotCommitted();
+        committed = true;
+
+        if (!sameBackstack(baseBackstack)) {
+            backstack.clear();
+            backstack.addAll(router.getBackstack());
+            for (Operation operation : operations) {
+                operation.apply(backstack);
+            }
+        }
+
+        RouterTransaction oldTop = router.backstack.peek();
+        RouterTransaction newTop = backstack.isEmpty() ? null : backstack.get(backstack.size() - 1);
+        if (newTop == oldTop && sameBackstack(backstack)) {
+            return;
+        }
+
+        ControllerChangeHandler handler = changeHandler;
+        if (handler == null && newTop != oldTop) {
+            if (newTop != null && !router.backstack.contains(newTop.controller())) {
+                handler = newTop.pushChangeHandler();
+            } else if (oldTop != null) {
+                handler = oldTop.popChangeHandler();
+            }
+        }
+
+        router.setBackstack(backstack, handler);
+    }
+
+    // Whether the passed list, ordered from root to top, holds the same transactions as the router's backstack
+    private boolean sameBackstack(@NonNull List<RouterTransaction> transactions) {
+        if (transactions.size() != router.backstack.size()) {
+            return false;
+        }
+
+        int i = transactions.size() - 1;
+        for (RouterTransaction transaction : router.backstack) {
+            if (transactions.get(i--) != transaction) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Applies the operation to the working backstack right away, so invalid operations fail when they are made
+    @NonNull
+    private BackstackTransaction record(@NonNull Operation operation) {
+        ensureNotCommitted();
+        operation.apply(backstack);
+        operations.add(operation);
+        return this;
+    }
+
+    private void ensureNotCommitted() {
+        if (committed) {
+            throw new IllegalStateException("This transaction has already been committed.");
+        }
+    }
+
+    private interface Operation {
+        void apply(@NonNull List<RouterTransaction> backstack);
+    }
+
+}
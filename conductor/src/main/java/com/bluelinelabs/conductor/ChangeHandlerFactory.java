@@ -0,0 +1,65 @@
+package com.bluelinelabs.conductor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.reflect.Constructor;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates {@link ControllerChangeHandler}s when they are restored from saved instance state or copied with
+ * {@link ControllerChangeHandler#copy()}. Installing a subclass through
+ * {@link Conductor#setChangeHandlerFactory(ChangeHandlerFactory)} lets change handlers take dependencies in their
+ * constructors. Subclasses should call through to {@code super} for any class they don't create themselves.
+ * <p>
+ * The default implementation first asks every installed {@link InstantiationRegistry}, then falls back to
+ * reflection, resolving the constructor of each class only once.
+ */
+public class ChangeHandlerFactory {
+
+    private static final Map<Class<?>, Constructor<? extends ControllerChangeHandler>> constructors = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new instance of the change handler with the passed class name.
+     *
+     * @param classLoader The ClassLoader to load the class with
+     * @param className   The fully qualified class name of the change handler
+     */
+    @NonNull
+    public ControllerChangeHandler instantiate(@NonNull ClassLoader classLoader, @NonNull String className) {
+        for (InstantiationRegistry registry : ControllerFactory.registries) {
+            ControllerChangeHandler changeHandler = registry.newChangeHandler(className);
+            if (changeHandler != null) {
+                return changeHandler;
+            }
+        }
+
+        Class<?> cls = ControllerFactory.loadClass(classLoader, className);
+        Constructor<? extends ControllerChangeHandler> constructor = findDefaultConstructor(cls);
+        if (constructor == null) {
+            throw new RuntimeException(cls + " does not have a default constructor.");
+        }
+
+        try {
+            return constructor.newInstance();
+        } catch (Exception e) {
+            throw new RuntimeException("An exception occurred while creating a new instance of " + className + ". " + e.getMessage(), e);
+        }
+    }
+
+    @Nullable @SuppressWarnings("unchecked")
+    static Constructor<? extends ControllerChangeHandler> findDefaultConstructor(@NonNull Class<?> cls) {
+        Constructor<? extends ControllerChangeHandler> constructor = constructors.get(cls);
+        if (constructor == null) {
+            try {
+                constructor = (Constructor<? extends ControllerChangeHandler>) cls.getConstructor();
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+            constructors.put(cls, constructor);
+        }
+        return constructor;
+    }
+
+}
@@ -21,7 +21,59 @@ import com.bluelinelabs.conductor.internal.ensureMainThread
  */
 @UiThread
 object Conductor {
-  
+
+  /**
+   * The [InstanceIdGenerator] used to assign instance IDs to new [Controller]s. Defaults to
+   * [InstanceIdGenerator.monotonic]. Should be set before any [Controller] is created, typically in
+   * Application.onCreate.
+   */
+  @JvmStatic
+  @Volatile
+  var instanceIdGenerator: InstanceIdGenerator = InstanceIdGenerator.monotonic()
+
+  /**
+   * The [ConductorTracer] that receives spans for all [Router]s that don't have a tracer of their own, or `null`
+   * to disable tracing. Defaults to `null`.
+   */
+  @JvmStatic
+  @Volatile
+  var tracer: ConductorTracer? = null
+
+  /**
+   * The [TrimMemoryListener] that is told what was freed each time Conductor responds to the system running low on
+   * memory, or `null`. Defaults to `null`.
+   */
+  @JvmStatic
+  @Volatile
+  var trimMemoryListener: TrimMemoryListener? = null
+
+  /**
+   * The [ControllerFactory] used to create [Controller]s restored from saved instance state. Custom factories
+   * allow constructor injection. Should be set before any [Controller] is created, typically in
+   * Application.onCreate.
+   */
+  @JvmStatic
+  @Volatile
+  var controllerFactory: ControllerFactory = ControllerFactory()
+
+  /**
+   * The [ChangeHandlerFactory] used to create [ControllerChangeHandler]s restored from saved instance state or
+   * copied. Should be set before any [ControllerChangeHandler] is created, typically in Application.onCreate.
+   */
+  @JvmStatic
+  @Volatile
+  var changeHandlerFactory: ChangeHandlerFactory = ChangeHandlerFactory()
+
+  /**
+   * Installs an [InstantiationRegistry], typically one generated by `conductor-compiler`, that the default
+   * [ControllerFactory] and [ChangeHandlerFactory] consult before falling back to reflection. Installing the
+   * same registry more than once has no effect.
+   */
+  @JvmStatic
+  fun addInstantiationRegistry(registry: InstantiationRegistry) {
+    ControllerFactory.addRegistry(registry)
+  }
+
   @JvmStatic
   fun attachRouter(activity: Activity, container: ViewGroup, savedInstanceState: Bundle?): Router {
     ensureMainThread()
@@ -29,4 +81,28 @@ object Conductor {
       .getRouter(container, savedInstanceState)
       .also { it.rebindIfNeeded() }
   }
+
+  /**
+   * Same as [attachRouter], additionally restoring the passed [NavigationSnapshot] if the [Router] has no
+   * backstack after being restored from memory or savedInstanceState. This allows restoring navigation on a cold
+   * start without saved instance state, typically from a [NavigationJournal]. If the snapshot can't be restored,
+   * for example because a [Controller] class no longer exists, the [Router] is left empty.
+   */
+  @JvmStatic
+  fun attachRouter(
+    activity: Activity,
+    container: ViewGroup,
+    savedInstanceState: Bundle?,
+    snapshot: NavigationSnapshot?
+  ): Router {
+    ensureMainThread()
+    return LifecycleHandler.install(activity)
+      .getRouter(container, savedInstanceState)
+      .also {
+        if (snapshot != null && !it.hasRootController()) {
+          snapshot.restoreInto(it)
+        }
+        it.rebindIfNeeded()
+      }
+  }
 }
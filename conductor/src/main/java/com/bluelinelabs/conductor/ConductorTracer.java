@@ -0,0 +1,70 @@
+package com.bluelinelabs.conductor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Receives timing spans for the work Conductor does on behalf of {@link Controller}s, for attributing jank to
+ * navigation and lifecycle events. Tracers can be installed process-wide through
+ * {@link Conductor#setTracer(ConductorTracer)} or per {@link Router} through {@link Router#setTracer(ConductorTracer)},
+ * which also applies to the router's descendants. When no tracer is installed, no spans are created.
+ * <p>
+ * Every call to {@link #beginSpan(Span, Controller, int, ControllerChangeType)} is matched by exactly one call to
+ * {@link #endSpan(Span, Controller, int, ControllerChangeType, long)} on the same thread, and spans are strictly
+ * nested. Both are called on hot paths, so implementations should return quickly and avoid allocating.
+ *
+ * @see SystemTraceTracer
+ * @see LatencyHistogramTracer
+ */
+public interface ConductorTracer {
+
+    /**
+     * The operations Conductor reports spans for.
+     */
+    enum Span {
+        /** A change handler being started for a push or pop, including inflating the new Controller's view. */
+        CHANGE("executeChange"),
+        /** Obtaining a Controller's view, whether it is created, prewarmed or taken from a {@link ViewPool}. */
+        INFLATE("inflate"),
+        /** The Controller's own view creation, {@link Controller#onCreateView} or {@link Controller#onBindView}. */
+        CREATE_VIEW("onCreateView"),
+        ATTACH("attach"),
+        DETACH("detach"),
+        SAVE_VIEW_STATE("saveViewState"),
+        SAVE_INSTANCE_STATE("saveInstanceState"),
+        /**
+         * Restoring a Controller from saved state. Controllers are restored before they belong to a router, so
+         * these spans are only reported to the process-wide tracer, with a router depth of -1.
+         */
+        RESTORE_INSTANCE_STATE("restoreInstanceState"),
+        DESTROY("performDestroy");
+
+        @NonNull public final String sectionName;
+
+        Span(@NonNull String sectionName) {
+            this.sectionName = sectionName;
+        }
+    }
+
+    /**
+     * Called when a span starts.
+     *
+     * @param span        The operation being performed
+     * @param controller  The Controller the operation is performed on. For {@link Span#CHANGE}, this is the Controller
+     *                    being changed to, or the Controller being changed from if there is none.
+     * @param routerDepth The depth of the Controller's router, 0 for an Activity's router, or -1 if it isn't known
+     * @param changeType  The type of change for {@link Span#CHANGE}, otherwise {@code null}
+     * @return A value that is passed back to {@link #endSpan(Span, Controller, int, ControllerChangeType, long)}, such as
+     * a start timestamp
+     */
+    long beginSpan(@NonNull Span span, @NonNull Controller controller, int routerDepth, @Nullable ControllerChangeType changeType);
+
+    /**
+     * Called when a span ends, with the same arguments that were passed to the matching
+     * {@link #beginSpan(Span, Controller, int, ControllerChangeType)} call.
+     *
+     * @param token The value returned by the matching beginSpan call
+     */
+    void endSpan(@NonNull Span span, @NonNull Controller controller, int routerDepth, @Nullable ControllerChangeType changeType, long token);
+
+}
@@ -22,19 +22,17 @@ import androidx.annotation.IdRes;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import com.bluelinelabs.conductor.internal.ClassUtils;
 import com.bluelinelabs.conductor.internal.RouterRequiringFunc;
 import com.bluelinelabs.conductor.internal.ViewAttachHandler;
 import com.bluelinelabs.conductor.internal.ViewAttachHandler.ViewAttachListener;
 
 import java.lang.ref.WeakReference;
-import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A Controller manages portions of the UI. It is similar to an Activity or Fragment in that it manages its
@@ -58,13 +56,21 @@ public abstract class Controller {
     private static final String KEY_VIEW_STATE_HIERARCHY = "Controller.viewState.hierarchy";
     static final String KEY_VIEW_STATE_BUNDLE = "Controller.viewState.bundle";
     private static final String KEY_RETAIN_VIEW_MODE = "Controller.retainViewMode";
+    private static final String KEY_VIEW_STATE_SPILL_KEY = "Controller.viewState.spillKey";
+
+    private static final LifecycleListener[] NO_LIFECYCLE_LISTENERS = new LifecycleListener[0];
+    // Suffixes spill keys. Starting from the wall clock keeps keys from a new process clear of the ones an earlier
+    // process left in saved state.
+    private static final AtomicLong spillCounter = new AtomicLong(System.currentTimeMillis());
 
     private final Bundle args;
 
     Bundle viewState;
     private Bundle savedInstanceState;
     boolean isBeingDestroyed;
+    private boolean isDestroyDeferred;
     private boolean destroyed;
+    private boolean hibernating;
     private boolean attached;
     private boolean hasOptionsMenu;
     private boolean optionsMenuHidden;
@@ -79,50 +85,54 @@ public abstract class Controller {
     private boolean attachedToUnownedParent;
     private boolean awaitingParentAttach;
     private boolean hasSavedViewState;
-    boolean isDetachFrozen;
+    // Key of the view state in the ControllerStateStore, or null if it isn't spilled. Unique per spill, so Controllers
+    // sharing a store never read or remove each other's state even if their instance IDs collide.
+    @Nullable String viewStateSpillKey;
+    @Nullable private PrewarmedView prewarmedView;
+    @Nullable private ControllerStateStore spilledViewStateStore; // null if the state was spilled before process death
     private ControllerChangeHandler overriddenPushHandler;
     private ControllerChangeHandler overriddenPopHandler;
     private RetainViewMode retainViewMode = RetainViewMode.RELEASE_DETACH;
     private ViewAttachHandler viewAttachHandler;
-    private final List<ControllerHostedRouter> childRouters = new ArrayList<>();
-    private final List<LifecycleListener> lifecycleListeners = new ArrayList<>();
+    final List<ControllerHostedRouter> childRouters = new ArrayList<>();
+    // Transactions of attached Controllers in this Controller's child routers, kept ordered from the most
+    // recent transaction index to the oldest so back presses can be dispatched without collecting and sorting
+    // every child backstack.
+    private final List<RouterTransaction> attachedChildTransactions = new ArrayList<>();
+    // Copy-on-write: dispatch iterates whatever array was current when it started, so listeners may add or
+    // remove themselves mid-dispatch without the steady state having to allocate a snapshot.
+    private LifecycleListener[] lifecycleListeners = NO_LIFECYCLE_LISTENERS;
+    private final List<WeakReference<TrimMemoryParticipant>> trimMemoryParticipants = new ArrayList<>();
     private final ArrayList<String> requestedPermissions = new ArrayList<>();
     private final ArrayList<RouterRequiringFunc> onRouterSetListeners = new ArrayList<>();
     private WeakReference<View> destroyedView;
-    private boolean isPerformingExitTransition;
+    boolean isPerformingExitTransition;
     private boolean isContextAvailable;
 
     @NonNull
     static Controller newInstance(@NonNull Bundle bundle) {
         final String className = bundle.getString(KEY_CLASS_NAME);
-        //noinspection ConstantConditions
-        Class cls = ClassUtils.classForName(className, false);
-        Constructor[] constructors = cls.getConstructors();
-        Constructor bundleConstructor = getBundleConstructor(constructors);
 
         Bundle args = bundle.getBundle(KEY_ARGS);
         if (args != null) {
-            args.setClassLoader(cls.getClassLoader());
+            // The default ControllerFactory narrows this down to the Controller's own loader once it knows the class
+            args.setClassLoader(Controller.class.getClassLoader());
         }
 
-        Controller controller;
-        try {
-            if (bundleConstructor != null) {
-                controller = (Controller) bundleConstructor.newInstance(args);
-            } else {
-                //noinspection ConstantConditions
-                controller = (Controller) getDefaultConstructor(constructors).newInstance();
+        //noinspection ConstantConditions
+        Controller controller = newInstance(className, args);
+        controller.restoreInstanceState(bundle);
+        return controller;
+    }
 
-                // Restore the args that existed before the last process death
-                if (args != null) {
-                    controller.args.putAll(args);
-                }
-            }
-        } catch (Exception e) {
-            throw new RuntimeException("An exception occurred while creating a new instance of " + className + ". " + e.getMessage(), e);
-        }
+    @NonNull
+    static Controller newInstance(@NonNull String className, @Nullable Bundle args) {
+        Controller controller = Conductor.getControllerFactory().instantiate(Controller.class.getClassLoader(), className, args);
 
-        controller.restoreInstanceState(bundle);
+        // Restore the args that existed before the last process death
+        if (args != null && controller.args != args) {
+            controller.args.putAll(args);
+        }
         return controller;
     }
 
@@ -140,7 +150,7 @@ public abstract class Controller {
      */
     protected Controller(@Nullable Bundle args) {
         this.args = args != null ? args : new Bundle(getClass().getClassLoader());
-        instanceId = UUID.randomUUID().toString();
+        instanceId = Conductor.getInstanceIdGenerator().nextInstanceId();
         ensureRequiredConstructor();
     }
 
@@ -159,6 +169,48 @@ public abstract class Controller {
     @NonNull
     protected abstract View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container, @Nullable Bundle savedViewState);
 
+    /**
+     * Returns the key under which this Controller's released views are pooled, or {@code null} (the default) if
+     * they should not be pooled. Controllers returning equal keys must be able to bind each other's views, so
+     * the Controller class or layout resource ID are typical keys. Pooling only takes effect if the
+     * Controller's {@link Router} or one of its ancestors has a {@link ViewPool}.
+     *
+     * @see Router#setViewPool(ViewPool)
+     */
+    @Nullable
+    protected Object getViewPoolKey() {
+        return null;
+    }
+
+    /**
+     * Called instead of {@link #onCreateView(LayoutInflater, ViewGroup, Bundle)} when a pooled view, previously
+     * created by a Controller with the same {@link #getViewPoolKey()}, is available. Implementations should bind
+     * the view exactly as they would a freshly inflated one. Any state left on the view by its previous Controller
+     * should be reset here, and references to the view should have been cleared in {@link #onDestroyView(View)}.
+     *
+     * @param view           The pooled view
+     * @param savedViewState A bundle for the view's state, which would have been created in {@link #onSaveViewState(View, Bundle)},
+     *                       or {@code null} if no saved state exists.
+     */
+    protected void onBindView(@NonNull View view, @Nullable Bundle savedViewState) {
+    }
+
+    /**
+     * Called on a background thread when this Controller is prewarmed through {@link Router#prewarm(RouterTransaction)}.
+     * Controllers that support prewarming should inflate and return their view here without binding it, and
+     * without touching any state that is also used on the main thread. The view is later passed to
+     * {@link #onBindView(View, Bundle)} instead of calling {@link #onCreateView(LayoutInflater, ViewGroup, Bundle)}.
+     * Returns {@code null} by default, meaning prewarming is not supported.
+     *
+     * @param inflater  A LayoutInflater reserved for this call
+     * @param container The container this Controller's view will be attached to. Only use it to generate
+     *                  LayoutParams; it must not be modified.
+     */
+    @Nullable
+    protected View onPrewarmView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container) {
+        return null;
+    }
+
     /**
      * Returns the {@link Router} object that can be used for pushing or popping other Controllers
      */
@@ -231,10 +283,6 @@ public abstract class Controller {
                 childRouter = new ControllerHostedRouter(container.getId(), tag);
                 childRouter.setHostContainer(this, container);
                 childRouters.add(childRouter);
-
-                if (isPerformingExitTransition) {
-                    childRouter.setDetachFrozen(true);
-                }
             }
         } else if (!childRouter.hasHost()) {
             childRouter.setHostContainer(this, container);
@@ -458,25 +506,25 @@ public abstract class Controller {
     }
 
     /**
-     * Called when this Controller's host Activity is started
+     * Called when this Controller's host Activity is started. Only called while this Controller has a view.
      */
     protected void onActivityStarted(@NonNull Activity activity) {
     }
 
     /**
-     * Called when this Controller's host Activity is resumed
+     * Called when this Controller's host Activity is resumed. Only called while this Controller has a view.
      */
     protected void onActivityResumed(@NonNull Activity activity) {
     }
 
     /**
-     * Called when this Controller's host Activity is paused
+     * Called when this Controller's host Activity is paused. Only called while this Controller has a view.
      */
     protected void onActivityPaused(@NonNull Activity activity) {
     }
 
     /**
-     * Called when this Controller's host Activity is stopped
+     * Called when this Controller's host Activity is stopped. Only called while this Controller has a view.
      */
     protected void onActivityStopped(@NonNull Activity activity) {
     }
@@ -632,38 +680,88 @@ public abstract class Controller {
      * @return True if this Controller has consumed the back button press, otherwise false
      */
     public boolean handleBack() {
-        List<RouterTransaction> childTransactions = new ArrayList<>();
-
-        for (ControllerHostedRouter childRouter : childRouters) {
-            childTransactions.addAll(childRouter.getBackstack());
-        }
-
-        Collections.sort(childTransactions, new Comparator<RouterTransaction>() {
-            @Override
-            public int compare(RouterTransaction o1, RouterTransaction o2) {
-                return o2.getTransactionIndex() - o1.getTransactionIndex();
+        List<RouterTransaction> children = attachedChildTransactions;
+        for (int i = 0; i < children.size(); i++) {
+            // setBackstack may have re-wrapped an attached Controller in a new transaction
+            Controller childController = children.get(i).controller();
+            RouterTransaction current = childController.router.backstack.transactionFor(childController);
+            if (current != null) {
+                children.set(i, current);
             }
-        });
+        }
+        sortByTransactionIndexDescending(children);
 
-        for (RouterTransaction transaction : childTransactions) {
+        int i = 0;
+        while (i < children.size()) {
+            RouterTransaction transaction = children.get(i);
             Controller childController = transaction.controller();
 
-            if (childController.isAttached() && childController.getRouter().handleBack()) {
+            if (childController.attached && childController.parentController == this
+                    && childController.router.backstack.transactionFor(childController) != null
+                    && childController.getRouter().handleBack()) {
                 return true;
             }
+
+            // A child that popped its last Controller detaches and drops out of the list, shifting the next one
+            // into this slot.
+            if (i < children.size() && children.get(i) == transaction) {
+                i++;
+            }
         }
 
         return false;
     }
 
+    private void onChildAttached(@NonNull Controller child) {
+        RouterTransaction transaction = child.router.backstack.transactionFor(child);
+        if (transaction == null) {
+            return;
+        }
+
+        List<RouterTransaction> children = attachedChildTransactions;
+        int index = children.size();
+        while (index > 0 && children.get(index - 1).getTransactionIndex() < transaction.getTransactionIndex()) {
+            index--;
+        }
+        children.add(index, transaction);
+    }
+
+    private void onChildDetached(@NonNull Controller child) {
+        List<RouterTransaction> children = attachedChildTransactions;
+        for (int i = children.size() - 1; i >= 0; i--) {
+            if (children.get(i).controller() == child) {
+                children.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Insertion sort: indices only move when a child router reorders its backstack, so the list is almost always
+     * already in order and this is a single pass.
+     */
+    private static void sortByTransactionIndexDescending(@NonNull List<RouterTransaction> transactions) {
+        for (int i = 1; i < transactions.size(); i++) {
+            RouterTransaction transaction = transactions.get(i);
+            int j = i - 1;
+            while (j >= 0 && transactions.get(j).getTransactionIndex() < transaction.getTransactionIndex()) {
+                transactions.set(j + 1, transactions.get(j));
+                j--;
+            }
+            transactions.set(j + 1, transaction);
+        }
+    }
+
     /**
      * Adds a listener for all of this Controller's lifecycle events
      *
      * @param lifecycleListener The listener
      */
     public final void addLifecycleListener(@NonNull LifecycleListener lifecycleListener) {
-        if (!lifecycleListeners.contains(lifecycleListener)) {
-            lifecycleListeners.add(lifecycleListener);
+        if (indexOfLifecycleListener(lifecycleListener) < 0) {
+            LifecycleListener[] listeners = Arrays.copyOf(lifecycleListeners, lifecycleListeners.length + 1);
+            listeners[lifecycleListeners.length] = lifecycleListener;
+            lifecycleListeners = listeners;
         }
     }
 
@@ -673,7 +771,81 @@ public abstract class Controller {
      * @param lifecycleListener The listener to be removed
      */
     public final void removeLifecycleListener(@NonNull LifecycleListener lifecycleListener) {
-        lifecycleListeners.remove(lifecycleListener);
+        int index = indexOfLifecycleListener(lifecycleListener);
+        if (index >= 0) {
+            if (lifecycleListeners.length == 1) {
+                lifecycleListeners = NO_LIFECYCLE_LISTENERS;
+            } else {
+                LifecycleListener[] listeners = new LifecycleListener[lifecycleListeners.length - 1];
+                System.arraycopy(lifecycleListeners, 0, listeners, 0, index);
+                System.arraycopy(lifecycleListeners, index + 1, listeners, index, listeners.length - index);
+                lifecycleListeners = listeners;
+            }
+        }
+    }
+
+    private int indexOfLifecycleListener(@NonNull LifecycleListener lifecycleListener) {
+        for (int i = 0; i < lifecycleListeners.length; i++) {
+            if (lifecycleListeners[i].equals(lifecycleListener)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a participant that frees memory held on behalf of this Controller when the system is low on memory.
+     * Participants are only referenced weakly, so they don't need to be removed when they're no longer used.
+     *
+     * @param participant The participant
+     */
+    public final void addTrimMemoryParticipant(@NonNull TrimMemoryParticipant participant) {
+        if (indexOfTrimMemoryParticipant(participant) < 0) {
+            trimMemoryParticipants.add(new WeakReference<>(participant));
+        }
+    }
+
+    /**
+     * Removes a previously added trim memory participant
+     *
+     * @param participant The participant to be removed
+     */
+    public final void removeTrimMemoryParticipant(@NonNull TrimMemoryParticipant participant) {
+        int index = indexOfTrimMemoryParticipant(participant);
+        if (index >= 0) {
+            trimMemoryParticipants.remove(index);
+        }
+    }
+
+    private int indexOfTrimMemoryParticipant(@NonNull TrimMemoryParticipant participant) {
+        for (int i = 0; i < trimMemoryParticipants.size(); i++) {
+            if (trimMemoryParticipants.get(i).get() == participant) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    final void trimMemory(@NonNull TrimMemoryReport report) {
+        if (report.releasesRetainedViews() && view != null && !attached && !isBeingDestroyed && view.getParent() == null) {
+            saveViewState(view);
+            // Pooling the view would only move it somewhere else in memory
+            removeViewReference(false);
+            report.recordReleasedView();
+        }
+
+        for (int i = trimMemoryParticipants.size() - 1; i >= 0; i--) {
+            TrimMemoryParticipant participant = trimMemoryParticipants.get(i).get();
+            if (participant != null) {
+                participant.onTrimMemory(report);
+            } else {
+                trimMemoryParticipants.remove(i);
+            }
+        }
+
+        for (ControllerHostedRouter childRouter : childRouters) {
+            childRouter.trimMemory(report);
+        }
     }
 
     /**
@@ -741,7 +913,7 @@ public abstract class Controller {
         this.hasOptionsMenu = hasOptionsMenu;
 
         if (invalidate) {
-            router.invalidateOptionsMenu();
+            router.onOptionsMenuParticipationChanged();
         }
     }
 
@@ -758,7 +930,7 @@ public abstract class Controller {
         this.optionsMenuHidden = optionsMenuHidden;
 
         if (invalidate) {
-            router.invalidateOptionsMenu();
+            router.onOptionsMenuParticipationChanged();
         }
     }
 
@@ -835,7 +1007,7 @@ public abstract class Controller {
         final Context context = router.getActivity();
 
         if (context != null && !isContextAvailable) {
-            List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
+            LifecycleListener[] listeners = lifecycleListeners;
             for (LifecycleListener lifecycleListener : listeners) {
                 lifecycleListener.preContextAvailable(this);
             }
@@ -843,7 +1015,7 @@ public abstract class Controller {
             isContextAvailable = true;
             onContextAvailable(context);
 
-            listeners = new ArrayList<>(lifecycleListeners);
+            listeners = lifecycleListeners;
             for (LifecycleListener lifecycleListener : listeners) {
                 lifecycleListener.postContextAvailable(this, context);
             }
@@ -907,7 +1079,7 @@ public abstract class Controller {
         }
 
         if (isContextAvailable) {
-            List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
+            LifecycleListener[] listeners = lifecycleListeners;
             for (LifecycleListener lifecycleListener : listeners) {
                 lifecycleListener.preContextUnavailable(this, activity);
             }
@@ -915,7 +1087,7 @@ public abstract class Controller {
             isContextAvailable = false;
             onContextUnavailable();
 
-            listeners = new ArrayList<>(lifecycleListeners);
+            listeners = lifecycleListeners;
             for (LifecycleListener lifecycleListener : listeners) {
                 lifecycleListener.postContextUnavailable(this);
             }
@@ -935,83 +1107,112 @@ public abstract class Controller {
             awaitingParentAttach = false;
         }
 
-        hasSavedViewState = false;
+        ConductorTracer tracer = findTracer();
+        long traceToken = tracer != null ? beginSpan(tracer, ConductorTracer.Span.ATTACH) : 0;
+        try {
+            hasSavedViewState = false;
 
-        List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-        for (LifecycleListener lifecycleListener : listeners) {
-            lifecycleListener.preAttach(this, view);
-        }
+            LifecycleListener[] listeners = lifecycleListeners;
+            for (LifecycleListener lifecycleListener : listeners) {
+                lifecycleListener.preAttach(this, view);
+            }
 
-        attached = true;
-        needsAttach = router.isActivityStopped;
+            attached = true;
+            needsAttach = router.isActivityStopped;
 
-        onAttach(view);
+            if (parentController != null) {
+                parentController.onChildAttached(this);
+            }
 
-        if (hasOptionsMenu && !optionsMenuHidden) {
-            router.invalidateOptionsMenu();
-        }
+            onAttach(view);
 
-        listeners = new ArrayList<>(lifecycleListeners);
-        for (LifecycleListener lifecycleListener : listeners) {
-            lifecycleListener.postAttach(Controller.this, view);
-        }
+            if (hasOptionsMenu && !optionsMenuHidden) {
+                router.onOptionsMenuParticipationChanged();
+            }
 
-        for (ControllerHostedRouter childRouter : childRouters) {
-            for (RouterTransaction childTransaction : childRouter.backstack) {
-                if (childTransaction.controller().awaitingParentAttach) {
-                    childTransaction.controller().attach(childTransaction.controller().view);
-                }
+            listeners = lifecycleListeners;
+            for (LifecycleListener lifecycleListener : listeners) {
+                lifecycleListener.postAttach(Controller.this, view);
             }
 
-            if (childRouter.hasHost()) {
-                childRouter.rebindIfNeeded();
+            for (int i = 0; i < childRouters.size(); i++) {
+                ControllerHostedRouter childRouter = childRouters.get(i);
+                for (RouterTransaction childTransaction : childRouter.backstack) {
+                    if (childTransaction.isMaterialized() && childTransaction.controller().awaitingParentAttach) {
+                        childTransaction.controller().attach(childTransaction.controller().view);
+                    }
+                }
+
+                if (childRouter.hasHost()) {
+                    childRouter.rebindIfNeeded();
+                }
+            }
+        } finally {
+            if (tracer != null) {
+                endSpan(tracer, ConductorTracer.Span.ATTACH, traceToken);
             }
         }
     }
 
     void detach(@NonNull View view, boolean forceViewRefRemoval, boolean blockViewRefRemoval) {
-        if (!attachedToUnownedParent) {
-            for (ControllerHostedRouter router : childRouters) {
-                router.prepareForHostDetach();
+        ConductorTracer tracer = findTracer();
+        long traceToken = tracer != null ? beginSpan(tracer, ConductorTracer.Span.DETACH) : 0;
+        try {
+            if (!attachedToUnownedParent) {
+                for (int i = 0; i < childRouters.size(); i++) {
+                    childRouters.get(i).prepareForHostDetach();
+                }
             }
-        }
 
-        final boolean removeViewRef = !blockViewRefRemoval && (forceViewRefRemoval || retainViewMode == RetainViewMode.RELEASE_DETACH || isBeingDestroyed);
+            final boolean removeViewRef = !blockViewRefRemoval && (forceViewRefRemoval || retainViewMode == RetainViewMode.RELEASE_DETACH || isBeingDestroyed);
 
-        if (attached) {
-            List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-            for (LifecycleListener lifecycleListener : listeners) {
-                lifecycleListener.preDetach(this, view);
-            }
+            if (attached) {
+                LifecycleListener[] listeners = lifecycleListeners;
+                for (LifecycleListener lifecycleListener : listeners) {
+                    lifecycleListener.preDetach(this, view);
+                }
 
-            attached = false;
+                attached = false;
 
-            if (!awaitingParentAttach) {
-                onDetach(view);
-            }
+                if (parentController != null) {
+                    parentController.onChildDetached(this);
+                }
 
-            if (hasOptionsMenu && !optionsMenuHidden) {
-                router.invalidateOptionsMenu();
-            }
+                if (!awaitingParentAttach) {
+                    onDetach(view);
+                }
 
-            listeners = new ArrayList<>(lifecycleListeners);
-            for (LifecycleListener lifecycleListener : listeners) {
-                lifecycleListener.postDetach(this, view);
+                if (hasOptionsMenu && !optionsMenuHidden) {
+                    router.onOptionsMenuParticipationChanged();
+                }
+
+                listeners = lifecycleListeners;
+                for (LifecycleListener lifecycleListener : listeners) {
+                    lifecycleListener.postDetach(this, view);
+                }
             }
-        }
 
-        if (removeViewRef) {
-            removeViewReference();
+            if (removeViewRef) {
+                removeViewReference();
+            }
+        } finally {
+            if (tracer != null) {
+                endSpan(tracer, ConductorTracer.Span.DETACH, traceToken);
+            }
         }
     }
 
     private void removeViewReference() {
+        removeViewReference(true);
+    }
+
+    private void removeViewReference(boolean releaseToViewPool) {
         if (view != null) {
             if (!isBeingDestroyed && !hasSavedViewState) {
                 saveViewState(view);
             }
 
-            List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
+            LifecycleListener[] listeners = lifecycleListeners;
             for (LifecycleListener lifecycleListener : listeners) {
                 lifecycleListener.preDestroyView(this, view);
             }
@@ -1029,9 +1230,17 @@ public abstract class Controller {
             if (isBeingDestroyed) {
                 destroyedView = new WeakReference<>(view);
             }
+            View releasedView = view;
+            if (releaseToViewPool) {
+                releaseToViewPool(view);
+            }
             view = null;
 
-            listeners = new ArrayList<>(lifecycleListeners);
+            if (router != null) {
+                router.onControllerViewDestroyed(this, releasedView);
+            }
+
+            listeners = lifecycleListeners;
             for (LifecycleListener lifecycleListener : listeners) {
                 lifecycleListener.postDestroyView(this);
             }
@@ -1039,6 +1248,10 @@ public abstract class Controller {
             for (ControllerHostedRouter childRouter : childRouters) {
                 childRouter.removeHost();
             }
+
+            if (!isBeingDestroyed && router != null) {
+                router.onViewReleased(this);
+            }
         }
 
         if (isBeingDestroyed) {
@@ -1047,60 +1260,93 @@ public abstract class Controller {
     }
 
     final View inflate(@NonNull ViewGroup parent) {
-        if (view != null && view.getParent() != null && view.getParent() != parent) {
-            detach(view, true, false);
-            removeViewReference();
-        }
-
-        if (view == null) {
-            List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-            for (LifecycleListener lifecycleListener : listeners) {
-                lifecycleListener.preCreateView(this);
+        ConductorTracer tracer = findTracer();
+        long traceToken = tracer != null ? beginSpan(tracer, ConductorTracer.Span.INFLATE) : 0;
+        try {
+            if (view != null && view.getParent() != null && view.getParent() != parent) {
+                detach(view, true, false);
+                removeViewReference();
             }
 
-            Bundle savedViewState = viewState == null ? null : viewState.getBundle(KEY_VIEW_STATE_BUNDLE);
-            view = onCreateView(LayoutInflater.from(parent.getContext()), parent, savedViewState);
-            if (view == parent) {
-                throw new IllegalStateException("Controller's onCreateView method returned the parent ViewGroup. Perhaps you forgot to pass false for LayoutInflater.inflate's attachToRoot parameter?");
-            }
+            if (view == null) {
+                LifecycleListener[] listeners = lifecycleListeners;
+                for (LifecycleListener lifecycleListener : listeners) {
+                    lifecycleListener.preCreateView(this);
+                }
 
-            listeners = new ArrayList<>(lifecycleListeners);
-            for (LifecycleListener lifecycleListener : listeners) {
-                lifecycleListener.postCreateView(this, view);
-            }
+                rehydrateViewState();
 
-            restoreViewState(view);
+                Bundle savedViewState = viewState == null ? null : viewState.getBundle(KEY_VIEW_STATE_BUNDLE);
+                View pooledView = takePrewarmedView(parent);
+                if (pooledView == null) {
+                    Object viewPoolKey = getViewPoolKey();
+                    ViewPool viewPool = viewPoolKey != null && router != null ? router.findViewPool() : null;
+                    pooledView = viewPool != null ? viewPool.acquire(viewPoolKey) : null;
+                }
 
-            if (!isBeingDestroyed) {
-                viewAttachHandler = new ViewAttachHandler(new ViewAttachListener() {
-                    @Override
-                    public void onAttached() {
-                        viewIsAttached = true;
-                        viewWasDetached = false;
-                        attach(view);
+                long createViewTraceToken = tracer != null ? beginSpan(tracer, ConductorTracer.Span.CREATE_VIEW) : 0;
+                try {
+                    if (pooledView != null) {
+                        view = pooledView;
+                        onBindView(view, savedViewState);
+                    } else {
+                        view = onCreateView(LayoutInflater.from(parent.getContext()), parent, savedViewState);
                     }
+                } finally {
+                    if (tracer != null) {
+                        endSpan(tracer, ConductorTracer.Span.CREATE_VIEW, createViewTraceToken);
+                    }
+                }
+                if (view == parent) {
+                    throw new IllegalStateException("Controller's onCreateView method returned the parent ViewGroup. Perhaps you forgot to pass false for LayoutInflater.inflate's attachToRoot parameter?");
+                }
 
-                    @Override
-                    public void onDetached(boolean fromActivityStop) {
-                        viewIsAttached = false;
-                        viewWasDetached = true;
+                if (router != null) {
+                    router.onControllerViewCreated(this);
+                }
+
+                listeners = lifecycleListeners;
+                for (LifecycleListener lifecycleListener : listeners) {
+                    lifecycleListener.postCreateView(this, view);
+                }
 
-                        if (!isDetachFrozen) {
-                            detach(view, false, fromActivityStop);
+                restoreViewState(view);
+
+                if (!isBeingDestroyed) {
+                    viewAttachHandler = new ViewAttachHandler(new ViewAttachListener() {
+                        @Override
+                        public void onAttached() {
+                            viewIsAttached = true;
+                            viewWasDetached = false;
+                            attach(view);
                         }
-                    }
 
-                    @Override
-                    public void onViewDetachAfterStop() {
-                        if (!isDetachFrozen) {
-                            detach(view, false, false);
+                        @Override
+                        public void onDetached(boolean fromActivityStop) {
+                            viewIsAttached = false;
+                            viewWasDetached = true;
+
+                            if (!deferDetachIfFrozen()) {
+                                detach(view, false, fromActivityStop);
+                            }
                         }
-                    }
-                });
-                viewAttachHandler.listenForAttach(view);
+
+                        @Override
+                        public void onViewDetachAfterStop() {
+                            if (!deferDetachIfFrozen()) {
+                                detach(view, false, false);
+                            }
+                        }
+                    });
+                    viewAttachHandler.listenForAttach(view);
+                }
+            } else {
+                restoreChildControllerHosts();
+            }
+        } finally {
+            if (tracer != null) {
+                endSpan(tracer, ConductorTracer.Span.INFLATE, traceToken);
             }
-        } else {
-            restoreChildControllerHosts();
         }
 
         return view;
@@ -1119,49 +1365,109 @@ public abstract class Controller {
         }
     }
 
+    @Nullable
+    private ConductorTracer findTracer() {
+        return Router.findTracer(router);
+    }
+
+    private long beginSpan(@NonNull ConductorTracer tracer, @NonNull ConductorTracer.Span span) {
+        return tracer.beginSpan(span, this, router != null ? router.getDepth() : -1, null);
+    }
+
+    private void endSpan(@NonNull ConductorTracer tracer, @NonNull ConductorTracer.Span span, long token) {
+        tracer.endSpan(span, this, router != null ? router.getDepth() : -1, null, token);
+    }
+
     private void performDestroy() {
-        if (isContextAvailable) {
-            List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-            for (LifecycleListener lifecycleListener : listeners) {
-                lifecycleListener.preContextUnavailable(this, getActivity());
-            }
+        ConductorTracer tracer = findTracer();
+        long traceToken = tracer != null ? beginSpan(tracer, ConductorTracer.Span.DESTROY) : 0;
+        try {
+            if (isContextAvailable) {
+                LifecycleListener[] listeners = lifecycleListeners;
+                for (LifecycleListener lifecycleListener : listeners) {
+                    lifecycleListener.preContextUnavailable(this, getActivity());
+                }
 
-            isContextAvailable = false;
-            onContextUnavailable();
+                isContextAvailable = false;
+                onContextUnavailable();
 
-            listeners = new ArrayList<>(lifecycleListeners);
-            for (LifecycleListener lifecycleListener : listeners) {
-                lifecycleListener.postContextUnavailable(this);
+                listeners = lifecycleListeners;
+                for (LifecycleListener lifecycleListener : listeners) {
+                    lifecycleListener.postContextUnavailable(this);
+                }
             }
-        }
 
-        if (!destroyed) {
-            List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-            for (LifecycleListener lifecycleListener : listeners) {
-                lifecycleListener.preDestroy(this);
-            }
+            if (!destroyed) {
+                LifecycleListener[] listeners = lifecycleListeners;
+                for (LifecycleListener lifecycleListener : listeners) {
+                    lifecycleListener.preDestroy(this);
+                }
 
-            destroyed = true;
+                destroyed = true;
 
-            onDestroy();
+                onDestroy();
 
-            parentController = null;
+                if (prewarmedView != null) {
+                    prewarmedView.abandon();
+                    prewarmedView = null;
+                }
+                if (!isHibernating()) {
+                    discardSpilledViewState();
+                }
+                if (router != null) {
+                    router.unregisterInstanceId(this);
+                    router.removeInFlightChange(this);
+                }
+                parentController = null;
 
-            listeners = new ArrayList<>(lifecycleListeners);
-            for (LifecycleListener lifecycleListener : listeners) {
-                lifecycleListener.postDestroy(this);
+                listeners = lifecycleListeners;
+                for (LifecycleListener lifecycleListener : listeners) {
+                    lifecycleListener.postDestroy(this);
+                }
+            }
+        } finally {
+            if (tracer != null) {
+                endSpan(tracer, ConductorTracer.Span.DESTROY, traceToken);
             }
         }
     }
 
     final void destroy() {
-        destroy(false);
+        if (isDestroyDeferred) {
+            return;
+        }
+
+        if (canDeferDestroy()) {
+            isBeingDestroyed = true;
+            isDestroyDeferred = true;
+            DeferredDestroyer.getInstance().enqueue(this);
+        } else {
+            destroy(false);
+        }
+    }
+
+    // Only Controllers without a visible view whose parent isn't being torn down along with them are deferred, so
+    // nothing on screen waits on the queue and children are still destroyed before their parents.
+    private boolean canDeferDestroy() {
+        return !attached && !destroyed
+                && (view == null || view.getParent() == null)
+                && router != null && router.shouldDeferDestruction()
+                && (parentController == null || !parentController.isBeingDestroyed);
+    }
+
+    // Called by DeferredDestroyer once it's this Controller's turn
+    final void performDeferredDestroy() {
+        if (isDestroyDeferred) {
+            destroy(false);
+        }
     }
 
     private void destroy(boolean removeViews) {
         isBeingDestroyed = true;
+        isDestroyDeferred = false;
+        DeferredDestroyer.getInstance().flushDescendantsOf(this);
 
-        if (router != null) {
+        if (router != null && !isHibernating()) {
             router.unregisterForActivityResults(instanceId);
         }
 
@@ -1176,22 +1482,54 @@ public abstract class Controller {
         }
     }
 
+    // Whether or not this Controller can be hibernated without anything on screen noticing
+    final boolean canHibernate() {
+        return !attached && !needsAttach && !isBeingDestroyed && !destroyed
+                && (view == null || view.getParent() == null);
+    }
+
+    /**
+     * Saves this Controller's instance state and destroys it, so its backstack entry can recreate it from that state
+     * later. Pending activity results and spilled view state of this Controller and its children are keyed by
+     * instance ID and are left in place for the recreated Controllers.
+     */
+    @NonNull
+    final Bundle hibernate() {
+        Bundle savedState = saveInstanceState();
+
+        hibernating = true;
+        destroy(false);
+        return savedState;
+    }
+
+    private boolean isHibernating() {
+        return hibernating || (parentController != null && parentController.isHibernating());
+    }
+
     private void saveViewState(@NonNull View view) {
-        hasSavedViewState = true;
+        ConductorTracer tracer = findTracer();
+        long traceToken = tracer != null ? beginSpan(tracer, ConductorTracer.Span.SAVE_VIEW_STATE) : 0;
+        try {
+            hasSavedViewState = true;
 
-        viewState = new Bundle(getClass().getClassLoader());
+            viewState = new Bundle(getClass().getClassLoader());
 
-        SparseArray<Parcelable> hierarchyState = new SparseArray<>();
-        view.saveHierarchyState(hierarchyState);
-        viewState.putSparseParcelableArray(KEY_VIEW_STATE_HIERARCHY, hierarchyState);
+            SparseArray<Parcelable> hierarchyState = new SparseArray<>();
+            view.saveHierarchyState(hierarchyState);
+            viewState.putSparseParcelableArray(KEY_VIEW_STATE_HIERARCHY, hierarchyState);
 
-        Bundle stateBundle = new Bundle(getClass().getClassLoader());
-        onSaveViewState(view, stateBundle);
-        viewState.putBundle(KEY_VIEW_STATE_BUNDLE, stateBundle);
+            Bundle stateBundle = new Bundle(getClass().getClassLoader());
+            onSaveViewState(view, stateBundle);
+            viewState.putBundle(KEY_VIEW_STATE_BUNDLE, stateBundle);
 
-        List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-        for (LifecycleListener lifecycleListener : listeners) {
-            lifecycleListener.onSaveViewState(this, viewState);
+            LifecycleListener[] listeners = lifecycleListeners;
+            for (LifecycleListener lifecycleListener : listeners) {
+                lifecycleListener.onSaveViewState(this, viewState);
+            }
+        } finally {
+            if (tracer != null) {
+                endSpan(tracer, ConductorTracer.Span.SAVE_VIEW_STATE, traceToken);
+            }
         }
     }
 
@@ -1204,90 +1542,294 @@ public abstract class Controller {
 
             restoreChildControllerHosts();
 
-            List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
+            LifecycleListener[] listeners = lifecycleListeners;
             for (LifecycleListener lifecycleListener : listeners) {
                 lifecycleListener.onRestoreViewState(this, viewState);
             }
         }
     }
 
-    final Bundle saveInstanceState() {
-        if (!hasSavedViewState && view != null) {
-            saveViewState(view);
+    final void prewarm(@NonNull ViewGroup container, @Nullable Executor executor) {
+        if (view == null && prewarmedView == null && !isBeingDestroyed && !destroyed) {
+            prewarmedView = PrewarmedView.start(this, container, executor);
         }
+    }
 
-        Bundle outState = new Bundle();
-        outState.putString(KEY_CLASS_NAME, getClass().getName());
-        outState.putBundle(KEY_VIEW_STATE, viewState);
-        outState.putBundle(KEY_ARGS, args);
-        outState.putString(KEY_INSTANCE_ID, instanceId);
-        outState.putString(KEY_TARGET_INSTANCE_ID, targetInstanceId);
-        outState.putStringArrayList(KEY_REQUESTED_PERMISSIONS, requestedPermissions);
-        outState.putBoolean(KEY_NEEDS_ATTACH, needsAttach || attached);
-        outState.putInt(KEY_RETAIN_VIEW_MODE, retainViewMode.ordinal());
+    @Nullable
+    private View takePrewarmedView(@NonNull ViewGroup parent) {
+        if (prewarmedView == null) {
+            return null;
+        }
+
+        View view = prewarmedView.take(parent);
+        prewarmedView = null;
+        return view;
+    }
 
-        if (overriddenPushHandler != null) {
-            outState.putBundle(KEY_OVERRIDDEN_PUSH_HANDLER, overriddenPushHandler.toBundle());
+    private void releaseToViewPool(@NonNull View view) {
+        Object viewPoolKey = getViewPoolKey();
+        if (viewPoolKey != null && router != null) {
+            ViewPool viewPool = router.findViewPool();
+            if (viewPool != null) {
+                viewPool.release(viewPoolKey, view);
+            }
         }
-        if (overriddenPopHandler != null) {
-            outState.putBundle(KEY_OVERRIDDEN_POP_HANDLER, overriddenPopHandler.toBundle());
+    }
+
+    // Moves the saved view state of a controller without a view into the store. Returns without effect if the
+    // store refuses it, so the state is never dropped.
+    final void spillViewState(@NonNull ControllerStateStore store) {
+        if (view != null || viewState == null || isBeingDestroyed) {
+            return;
         }
 
-        ArrayList<Bundle> childBundles = new ArrayList<>(childRouters.size());
-        for (ControllerHostedRouter childRouter : childRouters) {
-            Bundle routerBundle = new Bundle();
-            childRouter.saveInstanceState(routerBundle);
-            childBundles.add(routerBundle);
+        String key = instanceId + '/' + spillCounter.incrementAndGet();
+        if (store.write(key, viewState)) {
+            viewState = null;
+            viewStateSpillKey = key;
+            spilledViewStateStore = store;
+        }
+    }
+
+    private void rehydrateViewState() {
+        String key = viewStateSpillKey;
+        ControllerStateStore store = takeSpilledViewStateStore();
+        if (store != null) {
+            viewState = store.read(key);
+            store.remove(key);
+            if (viewState != null) {
+                viewState.setClassLoader(getClass().getClassLoader());
+            }
         }
-        outState.putParcelableArrayList(KEY_CHILD_ROUTERS, childBundles);
+    }
 
-        Bundle savedState = new Bundle(getClass().getClassLoader());
-        onSaveInstanceState(savedState);
+    private void discardSpilledViewState() {
+        String key = viewStateSpillKey;
+        ControllerStateStore store = takeSpilledViewStateStore();
+        if (store != null) {
+            store.remove(key);
+        }
+    }
 
-        List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-        for (LifecycleListener lifecycleListener : listeners) {
-            lifecycleListener.onSaveInstanceState(this, savedState);
+    @Nullable
+    private ControllerStateStore takeSpilledViewStateStore() {
+        if (viewStateSpillKey == null) {
+            return null;
+        }
+
+        ControllerStateStore store = spilledViewStateStore;
+        if (store == null) {
+            Router owner = router != null ? router.getStateStoreOwner() : null;
+            store = owner != null ? owner.getStateStore() : null;
+        }
+
+        viewStateSpillKey = null;
+        spilledViewStateStore = null;
+        return store;
+    }
+
+    final Bundle saveInstanceState() {
+        ConductorTracer tracer = findTracer();
+        long traceToken = tracer != null ? beginSpan(tracer, ConductorTracer.Span.SAVE_INSTANCE_STATE) : 0;
+        try {
+            if (!hasSavedViewState && view != null) {
+                saveViewState(view);
+            }
+
+            Bundle outState = new Bundle();
+            outState.putString(KEY_CLASS_NAME, getClass().getName());
+            outState.putBundle(KEY_VIEW_STATE, viewState);
+            outState.putBundle(KEY_ARGS, args);
+            outState.putString(KEY_INSTANCE_ID, instanceId);
+            outState.putString(KEY_TARGET_INSTANCE_ID, targetInstanceId);
+            outState.putStringArrayList(KEY_REQUESTED_PERMISSIONS, requestedPermissions);
+            outState.putBoolean(KEY_NEEDS_ATTACH, needsAttach || attached);
+            outState.putInt(KEY_RETAIN_VIEW_MODE, retainViewMode.ordinal());
+            outState.putString(KEY_VIEW_STATE_SPILL_KEY, viewStateSpillKey);
+
+            if (overriddenPushHandler != null) {
+                outState.putBundle(KEY_OVERRIDDEN_PUSH_HANDLER, overriddenPushHandler.toBundle());
+            }
+            if (overriddenPopHandler != null) {
+                outState.putBundle(KEY_OVERRIDDEN_POP_HANDLER, overriddenPopHandler.toBundle());
+            }
+
+            ArrayList<Bundle> childBundles = new ArrayList<>(childRouters.size());
+            for (ControllerHostedRouter childRouter : childRouters) {
+                Bundle routerBundle = new Bundle();
+                childRouter.saveInstanceState(routerBundle);
+                childBundles.add(routerBundle);
+            }
+            outState.putParcelableArrayList(KEY_CHILD_ROUTERS, childBundles);
+
+            Bundle savedState = new Bundle(getClass().getClassLoader());
+            onSaveInstanceState(savedState);
+
+            LifecycleListener[] listeners = lifecycleListeners;
+            for (LifecycleListener lifecycleListener : listeners) {
+                lifecycleListener.onSaveInstanceState(this, savedState);
+            }
+
+            outState.putBundle(KEY_SAVED_STATE, savedState);
+
+            return outState;
+        } finally {
+            if (tracer != null) {
+                endSpan(tracer, ConductorTracer.Span.SAVE_INSTANCE_STATE, traceToken);
+            }
         }
+    }
+
+    @Nullable
+    static Bundle savedViewState(@NonNull Bundle savedControllerState) {
+        return savedControllerState.getBundle(KEY_VIEW_STATE);
+    }
+
+    static void removeSavedViewState(@NonNull Bundle savedControllerState) {
+        savedControllerState.remove(KEY_VIEW_STATE);
+    }
+
+    // Accessors for the saved state of Controllers that have been restored lazily and not been created yet
+
+    @NonNull
+    static String savedClassName(@NonNull Bundle savedControllerState) {
+        //noinspection ConstantConditions
+        return savedControllerState.getString(KEY_CLASS_NAME);
+    }
+
+    @NonNull
+    static String savedInstanceId(@NonNull Bundle savedControllerState) {
+        //noinspection ConstantConditions
+        return savedControllerState.getString(KEY_INSTANCE_ID);
+    }
+
+    @Nullable
+    static Bundle savedArgs(@NonNull Bundle savedControllerState) {
+        return savedControllerState.getBundle(KEY_ARGS);
+    }
+
+    static boolean savedNeedsAttach(@NonNull Bundle savedControllerState) {
+        return savedControllerState.getBoolean(KEY_NEEDS_ATTACH);
+    }
+
+    static void clearSavedNeedsAttach(@NonNull Bundle savedControllerState) {
+        savedControllerState.putBoolean(KEY_NEEDS_ATTACH, false);
+    }
+
+    @Nullable
+    static ControllerChangeHandler savedOverriddenPushHandler(@NonNull Bundle savedControllerState) {
+        return ControllerChangeHandler.fromBundle(savedControllerState.getBundle(KEY_OVERRIDDEN_PUSH_HANDLER));
+    }
+
+    @Nullable
+    static ControllerChangeHandler savedOverriddenPopHandler(@NonNull Bundle savedControllerState) {
+        return ControllerChangeHandler.fromBundle(savedControllerState.getBundle(KEY_OVERRIDDEN_POP_HANDLER));
+    }
 
-        outState.putBundle(KEY_SAVED_STATE, savedState);
+    @Nullable
+    static Bundle savedOverriddenPushHandlerState(@NonNull Bundle savedControllerState) {
+        return savedControllerState.getBundle(KEY_OVERRIDDEN_PUSH_HANDLER);
+    }
 
+    @Nullable
+    static Bundle savedOverriddenPopHandlerState(@NonNull Bundle savedControllerState) {
+        return savedControllerState.getBundle(KEY_OVERRIDDEN_POP_HANDLER);
+    }
+
+    // Builds the saved state of a Controller that has never been created, so it can be restored lazily
+    @NonNull
+    static Bundle newSavedState(@NonNull String className, @Nullable Bundle args, boolean needsAttach, @NonNull ArrayList<Bundle> childRouterStates) {
+        Bundle outState = new Bundle();
+        outState.putString(KEY_CLASS_NAME, className);
+        outState.putBundle(KEY_ARGS, args);
+        outState.putString(KEY_INSTANCE_ID, Conductor.getInstanceIdGenerator().nextInstanceId());
+        outState.putStringArrayList(KEY_REQUESTED_PERMISSIONS, new ArrayList<String>());
+        outState.putBoolean(KEY_NEEDS_ATTACH, needsAttach);
+        outState.putParcelableArrayList(KEY_CHILD_ROUTERS, childRouterStates);
         return outState;
     }
 
-    private void restoreInstanceState(@NonNull Bundle savedInstanceState) {
-        viewState = savedInstanceState.getBundle(KEY_VIEW_STATE);
-        if (viewState != null) {
-            viewState.setClassLoader(getClass().getClassLoader());
+    @NonNull
+    static List<Bundle> savedChildRouterStates(@NonNull Bundle savedControllerState) {
+        List<Bundle> childBundles = savedControllerState.getParcelableArrayList(KEY_CHILD_ROUTERS);
+        return childBundles != null ? childBundles : Collections.<Bundle>emptyList();
+    }
+
+    // Whether a Controller in the saved child routers of a Controller that hasn't been created has the given instance ID
+    static boolean savedChildRoutersHoldInstanceId(@NonNull Bundle savedControllerState, @NonNull String instanceId) {
+        for (Bundle childRouterState : savedChildRouterStates(savedControllerState)) {
+            for (Bundle transactionState : Router.savedTransactionStates(childRouterState)) {
+                Bundle childState = RouterTransactionKt.savedControllerState(transactionState);
+                if (childState != null && (instanceId.equals(savedInstanceId(childState))
+                        || savedChildRoutersHoldInstanceId(childState, instanceId))) {
+                    return true;
+                }
+            }
         }
+        return false;
+    }
 
-        instanceId = savedInstanceState.getString(KEY_INSTANCE_ID);
-        targetInstanceId = savedInstanceState.getString(KEY_TARGET_INSTANCE_ID);
-        requestedPermissions.addAll(savedInstanceState.getStringArrayList(KEY_REQUESTED_PERMISSIONS));
-        overriddenPushHandler = ControllerChangeHandler.fromBundle(savedInstanceState.getBundle(KEY_OVERRIDDEN_PUSH_HANDLER));
-        overriddenPopHandler = ControllerChangeHandler.fromBundle(savedInstanceState.getBundle(KEY_OVERRIDDEN_POP_HANDLER));
-        needsAttach = savedInstanceState.getBoolean(KEY_NEEDS_ATTACH);
-        retainViewMode = RetainViewMode.values()[savedInstanceState.getInt(KEY_RETAIN_VIEW_MODE, 0)];
+    // Removes the view state a Controller that was never created spilled into the store, along with that of its children
+    static void discardSavedSpilledViewState(@NonNull Bundle savedControllerState, @NonNull ControllerStateStore store) {
+        String key = savedControllerState.getString(KEY_VIEW_STATE_SPILL_KEY);
+        if (key != null) {
+            store.remove(key);
+            savedControllerState.remove(KEY_VIEW_STATE_SPILL_KEY);
+        }
 
-        List<Bundle> childBundles = savedInstanceState.getParcelableArrayList(KEY_CHILD_ROUTERS);
-        for (Bundle childBundle : childBundles) {
-            ControllerHostedRouter childRouter = new ControllerHostedRouter();
-            childRouter.setHostController(this);
-            childRouter.restoreInstanceState(childBundle);
-            childRouters.add(childRouter);
+        for (Bundle childRouterState : savedChildRouterStates(savedControllerState)) {
+            for (Bundle transactionState : Router.savedTransactionStates(childRouterState)) {
+                Bundle childState = RouterTransactionKt.savedControllerState(transactionState);
+                if (childState != null) {
+                    discardSavedSpilledViewState(childState, store);
+                }
+            }
         }
+    }
+
+    private void restoreInstanceState(@NonNull Bundle savedInstanceState) {
+        ConductorTracer tracer = findTracer();
+        long traceToken = tracer != null ? beginSpan(tracer, ConductorTracer.Span.RESTORE_INSTANCE_STATE) : 0;
+        try {
+            viewState = savedInstanceState.getBundle(KEY_VIEW_STATE);
+            if (viewState != null) {
+                viewState.setClassLoader(getClass().getClassLoader());
+            }
 
-        this.savedInstanceState = savedInstanceState.getBundle(KEY_SAVED_STATE);
-        if (this.savedInstanceState != null) {
-            this.savedInstanceState.setClassLoader(getClass().getClassLoader());
+            instanceId = savedInstanceState.getString(KEY_INSTANCE_ID);
+            targetInstanceId = savedInstanceState.getString(KEY_TARGET_INSTANCE_ID);
+            requestedPermissions.addAll(savedInstanceState.getStringArrayList(KEY_REQUESTED_PERMISSIONS));
+            overriddenPushHandler = ControllerChangeHandler.fromBundle(savedInstanceState.getBundle(KEY_OVERRIDDEN_PUSH_HANDLER));
+            overriddenPopHandler = ControllerChangeHandler.fromBundle(savedInstanceState.getBundle(KEY_OVERRIDDEN_POP_HANDLER));
+            needsAttach = savedInstanceState.getBoolean(KEY_NEEDS_ATTACH);
+            retainViewMode = RetainViewMode.values()[savedInstanceState.getInt(KEY_RETAIN_VIEW_MODE, 0)];
+            viewStateSpillKey = savedInstanceState.getString(KEY_VIEW_STATE_SPILL_KEY);
+
+            List<Bundle> childBundles = savedInstanceState.getParcelableArrayList(KEY_CHILD_ROUTERS);
+            for (Bundle childBundle : childBundles) {
+                ControllerHostedRouter childRouter = new ControllerHostedRouter();
+                childRouter.setHostController(this);
+                childRouter.restoreInstanceState(childBundle);
+                childRouters.add(childRouter);
+            }
+
+            this.savedInstanceState = savedInstanceState.getBundle(KEY_SAVED_STATE);
+            if (this.savedInstanceState != null) {
+                this.savedInstanceState.setClassLoader(getClass().getClassLoader());
+            }
+            performOnRestoreInstanceState();
+        } finally {
+            if (tracer != null) {
+                endSpan(tracer, ConductorTracer.Span.RESTORE_INSTANCE_STATE, traceToken);
+            }
         }
-        performOnRestoreInstanceState();
     }
 
     private void performOnRestoreInstanceState() {
         if (savedInstanceState != null && router != null) {
             onRestoreInstanceState(savedInstanceState);
 
-            List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
+            LifecycleListener[] listeners = lifecycleListeners;
             for (LifecycleListener lifecycleListener : listeners) {
                 lifecycleListener.onRestoreInstanceState(this, savedInstanceState);
             }
@@ -1299,14 +1841,11 @@ public abstract class Controller {
     final void changeStarted(@NonNull ControllerChangeHandler changeHandler, @NonNull ControllerChangeType changeType) {
         if (!changeType.isEnter) {
             isPerformingExitTransition = true;
-            for (ControllerHostedRouter router : childRouters) {
-                router.setDetachFrozen(true);
-            }
         }
 
         onChangeStarted(changeHandler, changeType);
 
-        List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
+        LifecycleListener[] listeners = lifecycleListeners;
         for (LifecycleListener lifecycleListener : listeners) {
             lifecycleListener.onChangeStart(this, changeHandler, changeType);
         }
@@ -1315,14 +1854,12 @@ public abstract class Controller {
     final void changeEnded(@NonNull ControllerChangeHandler changeHandler, @NonNull ControllerChangeType changeType) {
         if (!changeType.isEnter) {
             isPerformingExitTransition = false;
-            for (ControllerHostedRouter router : childRouters) {
-                router.setDetachFrozen(false);
-            }
+            router.releaseFrozenDetaches();
         }
 
         onChangeEnded(changeHandler, changeType);
 
-        List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
+        LifecycleListener[] listeners = lifecycleListeners;
         for (LifecycleListener lifecycleListener : listeners) {
             lifecycleListener.onChangeEnd(this, changeHandler, changeType);
         }
@@ -1338,38 +1875,44 @@ public abstract class Controller {
         changeHandler.onEnd();
     }
 
-    final void setDetachFrozen(boolean frozen) {
-        if (isDetachFrozen != frozen) {
-            isDetachFrozen = frozen;
-
-            for (ControllerHostedRouter router : childRouters) {
-                router.setDetachFrozen(frozen);
-            }
+    // Descendants of a Controller running its exit transition keep their views until it ends. Rather than flagging
+    // the whole subtree, the frozen state is resolved from the ancestor chain when a view actually detaches.
+    private boolean deferDetachIfFrozen() {
+        if (router != null && router.isDetachFrozen()) {
+            router.deferFrozenDetach(this);
+            return true;
+        }
+        return false;
+    }
 
-            if (!frozen && view != null && viewWasDetached) {
-                View aView = view;
-                detach(view, false, false);
-                if (view == null && aView.getParent() == router.container) {
-                    router.container.removeView(aView); // need to remove the view when this controller is a child controller
-                }
+    final void onDetachUnfrozen() {
+        if (view != null && viewWasDetached && !deferDetachIfFrozen()) {
+            View aView = view;
+            detach(view, false, false);
+            if (view == null && router != null && aView.getParent() == router.container) {
+                router.container.removeView(aView); // need to remove the view when this controller is a child controller
             }
         }
     }
 
+    final boolean participatesInOptionsMenu() {
+        return attached && hasOptionsMenu && !optionsMenuHidden;
+    }
+
     final void createOptionsMenu(@NonNull Menu menu, @NonNull MenuInflater inflater) {
-        if (attached && hasOptionsMenu && !optionsMenuHidden) {
+        if (participatesInOptionsMenu()) {
             onCreateOptionsMenu(menu, inflater);
         }
     }
 
     final void prepareOptionsMenu(@NonNull Menu menu) {
-        if (attached && hasOptionsMenu && !optionsMenuHidden) {
+        if (participatesInOptionsMenu()) {
             onPrepareOptionsMenu(menu);
         }
     }
 
     final boolean optionsItemSelected(@NonNull MenuItem item) {
-        return attached && hasOptionsMenu && !optionsMenuHidden && onOptionsItemSelected(item);
+        return participatesInOptionsMenu() && onOptionsItemSelected(item);
     }
 
     final void setParentController(@Nullable Controller controller) {
@@ -1377,32 +1920,12 @@ public abstract class Controller {
     }
 
     private void ensureRequiredConstructor() {
-        Constructor[] constructors = getClass().getConstructors();
-        if (getBundleConstructor(constructors) == null && getDefaultConstructor(constructors) == null) {
+        // Custom factories may construct Controllers however they like
+        if (Conductor.getControllerFactory().getClass() == ControllerFactory.class && ControllerFactory.findConstructor(getClass()) == null) {
             throw new RuntimeException(getClass() + " does not have a constructor that takes a Bundle argument or a default constructor. Controllers must have one of these in order to restore their states.");
         }
     }
 
-    @Nullable
-    private static Constructor getDefaultConstructor(@NonNull Constructor[] constructors) {
-        for (Constructor constructor : constructors) {
-            if (constructor.getParameterTypes().length == 0) {
-                return constructor;
-            }
-        }
-        return null;
-    }
-
-    @Nullable
-    private static Constructor getBundleConstructor(@NonNull Constructor[] constructors) {
-        for (Constructor constructor : constructors) {
-            if (constructor.getParameterTypes().length == 1 && constructor.getParameterTypes()[0] == Bundle.class) {
-                return constructor;
-            }
-        }
-        return null;
-    }
-
     /**
      * Modes that will influence when the Controller will allow its view to be destroyed
      */
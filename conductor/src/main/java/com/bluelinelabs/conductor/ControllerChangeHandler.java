@@ -9,11 +9,8 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.bluelinelabs.conductor.changehandler.SimpleSwapChangeHandler;
-import com.bluelinelabs.conductor.internal.ClassUtils;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * ControllerChangeHandlers are responsible for swapping the View for one Controller to the View
@@ -25,8 +22,6 @@ public abstract class ControllerChangeHandler {
     private static final String KEY_CLASS_NAME = "ControllerChangeHandler.className";
     private static final String KEY_SAVED_STATE = "ControllerChangeHandler.savedState";
 
-    static final Map<String, ChangeHandlerData> inProgressChangeHandlers = new HashMap<>();
-
     boolean forceRemoveViewOnPush;
     private boolean hasBeenUsed;
 
@@ -112,9 +107,8 @@ public abstract class ControllerChangeHandler {
     }
 
     private void ensureDefaultConstructor() {
-        try {
-            getClass().getConstructor();
-        } catch (Exception e) {
+        // Custom factories may construct change handlers however they like
+        if (Conductor.getChangeHandlerFactory().getClass() == ChangeHandlerFactory.class && ChangeHandlerFactory.findDefaultConstructor(getClass()) == null) {
             throw new RuntimeException(getClass() + " does not have a default constructor.");
         }
     }
@@ -123,7 +117,8 @@ public abstract class ControllerChangeHandler {
     public static ControllerChangeHandler fromBundle(@Nullable Bundle bundle) {
         if (bundle != null) {
             String className = bundle.getString(KEY_CLASS_NAME);
-            ControllerChangeHandler changeHandler = ClassUtils.newInstance(className);
+            //noinspection ConstantConditions
+            ControllerChangeHandler changeHandler = Conductor.getChangeHandlerFactory().instantiate(ControllerChangeHandler.class.getClassLoader(), className);
             //noinspection ConstantConditions
             changeHandler.restoreFromBundle(bundle.getBundle(KEY_SAVED_STATE));
             return changeHandler;
@@ -132,34 +127,52 @@ public abstract class ControllerChangeHandler {
         }
     }
 
-    static boolean completeHandlerImmediately(@NonNull String controllerInstanceId) {
-        ChangeHandlerData changeHandlerData = inProgressChangeHandlers.get(controllerInstanceId);
-        if (changeHandlerData != null) {
-            changeHandlerData.changeHandler.completeImmediately();
-            inProgressChangeHandlers.remove(controllerInstanceId);
-            return true;
-        }
-        return false;
+    // Accessors for a handler saved with toBundle(), so it can be read or written without being created
+
+    @NonNull
+    static Bundle newBundle(@NonNull String className, @NonNull Bundle savedState) {
+        Bundle bundle = new Bundle();
+        bundle.putString(KEY_CLASS_NAME, className);
+        bundle.putBundle(KEY_SAVED_STATE, savedState);
+        return bundle;
     }
 
-    static void abortOrComplete(@NonNull Controller toAbort, @Nullable Controller newController, @NonNull ControllerChangeHandler newChangeHandler) {
-        ChangeHandlerData changeHandlerData = inProgressChangeHandlers.get(toAbort.getInstanceId());
-        if (changeHandlerData != null) {
-            if (changeHandlerData.isPush) {
-                changeHandlerData.changeHandler.onAbortPush(newChangeHandler, newController);
-            } else {
-                changeHandlerData.changeHandler.completeImmediately();
-            }
+    @NonNull
+    static String savedClassName(@NonNull Bundle handlerBundle) {
+        //noinspection ConstantConditions
+        return handlerBundle.getString(KEY_CLASS_NAME);
+    }
 
-            inProgressChangeHandlers.remove(toAbort.getInstanceId());
-        }
+    @Nullable
+    static Bundle savedState(@NonNull Bundle handlerBundle) {
+        return handlerBundle.getBundle(KEY_SAVED_STATE);
     }
 
     static void executeChange(@NonNull final ChangeTransaction transaction) {
-        executeChange(transaction.to, transaction.from, transaction.isPush, transaction.container, transaction.changeHandler, transaction.listeners);
+        ConductorTracer tracer = Router.findTracer(transaction.router);
+        Controller tracedController = transaction.to != null ? transaction.to : transaction.from;
+        if (tracer == null || tracedController == null) {
+            executeChange(transaction.router, transaction.to, transaction.from, transaction.isPush, transaction.container, transaction.changeHandler, transaction.listeners);
+            return;
+        }
+
+        final ControllerChangeType changeType;
+        if (transaction.to != null) {
+            changeType = transaction.isPush ? ControllerChangeType.PUSH_ENTER : ControllerChangeType.POP_ENTER;
+        } else {
+            changeType = transaction.isPush ? ControllerChangeType.PUSH_EXIT : ControllerChangeType.POP_EXIT;
+        }
+        int routerDepth = transaction.router.getDepth();
+
+        long traceToken = tracer.beginSpan(ConductorTracer.Span.CHANGE, tracedController, routerDepth, changeType);
+        try {
+            executeChange(transaction.router, transaction.to, transaction.from, transaction.isPush, transaction.container, transaction.changeHandler, transaction.listeners);
+        } finally {
+            tracer.endSpan(ConductorTracer.Span.CHANGE, tracedController, routerDepth, changeType, traceToken);
+        }
     }
 
-    private static void executeChange(@Nullable final Controller to, @Nullable final Controller from, final boolean isPush, @Nullable final ViewGroup container, @Nullable final ControllerChangeHandler inHandler, @NonNull final List<ControllerChangeListener> listeners) {
+    private static void executeChange(@NonNull final Router router, @Nullable final Controller to, @Nullable final Controller from, final boolean isPush, @Nullable final ViewGroup container, @Nullable final ControllerChangeHandler inHandler, @NonNull final List<ControllerChangeListener> listeners) {
         if (container != null) {
             final ControllerChangeHandler handler;
             if (inHandler == null) {
@@ -173,15 +186,13 @@ public abstract class ControllerChangeHandler {
 
             if (from != null) {
                 if (isPush) {
-                    completeHandlerImmediately(from.getInstanceId());
+                    router.completeChangeImmediately(from);
                 } else {
-                    abortOrComplete(from, to, handler);
+                    router.abortOrCompleteChange(from, to, handler);
                 }
             }
 
-            if (to != null) {
-                inProgressChangeHandlers.put(to.getInstanceId(), new ChangeHandlerData(handler, isPush));
-            }
+            final InFlightChange inFlightChange = to != null ? router.trackInFlightChange(to, handler, isPush) : null;
 
             for (ControllerChangeListener listener : listeners) {
                 listener.onChangeStarted(to, from, isPush, container, handler);
@@ -214,7 +225,8 @@ public abstract class ControllerChangeHandler {
                     }
 
                     if (to != null) {
-                        inProgressChangeHandlers.remove(to.getInstanceId());
+                        //noinspection ConstantConditions
+                        router.untrackInFlightChange(inFlightChange);
                         to.changeEnded(handler, toChangeType);
                     }
 
@@ -276,6 +288,8 @@ public abstract class ControllerChangeHandler {
     }
 
     static class ChangeTransaction {
+        @NonNull
+        final Router router;
         @Nullable
         final Controller to;
         @Nullable
@@ -288,7 +302,8 @@ public abstract class ControllerChangeHandler {
         @NonNull
         final List<ControllerChangeListener> listeners;
 
-        public ChangeTransaction(@Nullable Controller to, @Nullable Controller from, boolean isPush, @Nullable ViewGroup container, @Nullable ControllerChangeHandler changeHandler, @NonNull List<ControllerChangeListener> listeners) {
+        public ChangeTransaction(@NonNull Router router, @Nullable Controller to, @Nullable Controller from, boolean isPush, @Nullable ViewGroup container, @Nullable ControllerChangeHandler changeHandler, @NonNull List<ControllerChangeListener> listeners) {
+            this.router = router;
             this.to = to;
             this.from = from;
             this.isPush = isPush;
@@ -309,14 +324,4 @@ public abstract class ControllerChangeHandler {
         void onChangeCompleted();
     }
 
-    private static class ChangeHandlerData {
-        public final ControllerChangeHandler changeHandler;
-        public final boolean isPush;
-
-        public ChangeHandlerData(ControllerChangeHandler changeHandler, boolean isPush) {
-            this.changeHandler = changeHandler;
-            this.isPush = isPush;
-        }
-    }
-
 }
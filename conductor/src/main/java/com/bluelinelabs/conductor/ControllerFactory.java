@@ -0,0 +1,138 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates {@link Controller}s when they are restored from saved instance state. This is Conductor's
+ * counterpart to FragmentFactory: installing a subclass through {@link Conductor#setControllerFactory(ControllerFactory)}
+ * lets Controllers take dependencies in their constructors instead of requiring a default or {@link Bundle}
+ * constructor. Subclasses should call through to {@code super} for any class they don't create themselves.
+ * <p>
+ * The default implementation first asks every installed {@link InstantiationRegistry}, then falls back to
+ * reflection, resolving the constructor of each class only once. Before creating a Controller it sets the ClassLoader
+ * of the args to the one that can see the Controller's class, so args holding Parcelables from split APKs or
+ * dynamic feature modules can be read.
+ */
+public class ControllerFactory {
+
+    private static final InstantiationRegistry[] NO_REGISTRIES = new InstantiationRegistry[0];
+
+    static volatile InstantiationRegistry[] registries = NO_REGISTRIES;
+
+    private static final Map<String, Class<?>> classes = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, ControllerConstructor> constructors = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new instance of the Controller with the passed class name.
+     *
+     * @param classLoader The ClassLoader to load the class with
+     * @param className   The fully qualified class name of the Controller
+     * @param args        The args the Controller was created with, or {@code null} if it had none. If the returned
+     *                    Controller doesn't hold on to these, they are copied into its {@link Controller#getArgs()}.
+     */
+    @NonNull
+    public Controller instantiate(@NonNull ClassLoader classLoader, @NonNull String className, @Nullable Bundle args) {
+        for (InstantiationRegistry registry : registries) {
+            if (args != null) {
+                // A registry can only create Controllers its own loader can see
+                args.setClassLoader(registry.getClass().getClassLoader());
+            }
+            Controller controller = registry.newController(className, args);
+            if (controller != null) {
+                return controller;
+            }
+        }
+
+        Class<?> cls = loadClass(classLoader, className);
+        if (args != null) {
+            args.setClassLoader(cls.getClassLoader());
+        }
+        ControllerConstructor constructor = findConstructor(cls);
+        if (constructor == null) {
+            throw new RuntimeException(cls + " does not have a constructor that takes a Bundle argument or a default constructor. Controllers must have one of these in order to restore their states.");
+        }
+
+        try {
+            return constructor.takesArgs ? constructor.constructor.newInstance(args) : constructor.constructor.newInstance();
+        } catch (Exception e) {
+            throw new RuntimeException("An exception occurred while creating a new instance of " + className + ". " + e.getMessage(), e);
+        }
+    }
+
+    static synchronized void addRegistry(@NonNull InstantiationRegistry registry) {
+        for (InstantiationRegistry installed : registries) {
+            if (installed == registry) {
+                return;
+            }
+        }
+
+        InstantiationRegistry[] updated = Arrays.copyOf(registries, registries.length + 1);
+        updated[registries.length] = registry;
+        registries = updated;
+    }
+
+    @NonNull
+    static Class<?> loadClass(@NonNull ClassLoader classLoader, @NonNull String className) {
+        Class<?> cls = classes.get(className);
+        if (cls == null || cls.getClassLoader() != classLoader) {
+            try {
+                cls = Class.forName(className, false, classLoader);
+            } catch (Exception e) {
+                throw new RuntimeException("An exception occurred while finding class for name " + className + ". " + e.getMessage(), e);
+            }
+            classes.put(className, cls);
+        }
+        return cls;
+    }
+
+    /**
+     * Returns the Bundle constructor of the passed class, falling back to its default constructor, or {@code null}
+     * if it has neither.
+     */
+    @Nullable
+    static ControllerConstructor findConstructor(@NonNull Class<?> cls) {
+        ControllerConstructor constructor = constructors.get(cls);
+        if (constructor == null) {
+            constructor = resolveConstructor(cls);
+            if (constructor == null) {
+                return null;
+            }
+            constructors.put(cls, constructor);
+        }
+        return constructor;
+    }
+
+    @Nullable @SuppressWarnings("unchecked")
+    private static ControllerConstructor resolveConstructor(@NonNull Class<?> cls) {
+        Constructor<?> defaultConstructor = null;
+        for (Constructor<?> constructor : cls.getConstructors()) {
+            Class<?>[] parameterTypes = constructor.getParameterTypes();
+            if (parameterTypes.length == 1 && parameterTypes[0] == Bundle.class) {
+                return new ControllerConstructor((Constructor<? extends Controller>) constructor, true);
+            } else if (parameterTypes.length == 0) {
+                defaultConstructor = constructor;
+            }
+        }
+        return defaultConstructor != null ? new ControllerConstructor((Constructor<? extends Controller>) defaultConstructor, false) : null;
+    }
+
+    static final class ControllerConstructor {
+
+        @NonNull final Constructor<? extends Controller> constructor;
+        final boolean takesArgs;
+
+        ControllerConstructor(@NonNull Constructor<? extends Controller> constructor, boolean takesArgs) {
+            this.constructor = constructor;
+            this.takesArgs = takesArgs;
+        }
+    }
+
+}
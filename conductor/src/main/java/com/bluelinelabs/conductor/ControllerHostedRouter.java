@@ -20,14 +20,14 @@ import java.util.Locale;
 
 class ControllerHostedRouter extends Router {
 
-    private final String KEY_HOST_ID = "ControllerHostedRouter.hostId";
-    private final String KEY_TAG = "ControllerHostedRouter.tag";
+    private static final String KEY_HOST_ID = "ControllerHostedRouter.hostId";
+    private static final String KEY_TAG = "ControllerHostedRouter.tag";
 
     private Controller hostController;
 
     @IdRes private int hostId;
     private String tag;
-    private boolean isDetachFrozen;
+    private boolean detachFreezeSuspended;
 
     ControllerHostedRouter() { }
 
@@ -52,10 +52,15 @@ class ControllerHostedRouter extends Router {
 
             hostController = controller;
             this.container = container;
+            // Activity lifecycle callbacks skip child routers of Controllers without a view, so catch up here
+            isActivityStopped = controller.getRouter() != null && controller.getRouter().isActivityStopped;
 
             for (RouterTransaction transaction : backstack) {
-                transaction.controller().setParentController(controller);
+                if (transaction.isMaterialized()) {
+                    transaction.controller().setParentController(controller);
+                }
             }
+            markOptionsMenuParticipantsDirty();
 
             watchContainerAttach();
         }
@@ -73,7 +78,7 @@ class ControllerHostedRouter extends Router {
             }
         }
         for (RouterTransaction transaction : backstack) {
-            if (transaction.controller().getView() != null) {
+            if (transaction.isMaterialized() && transaction.controller().getView() != null) {
                 transaction.controller().detach(transaction.controller().getView(), true, false);
             }
         }
@@ -82,35 +87,23 @@ class ControllerHostedRouter extends Router {
         container = null;
     }
 
-    final void setDetachFrozen(boolean frozen) {
-        isDetachFrozen = frozen;
-        for (RouterTransaction transaction : backstack) {
-            transaction.controller().setDetachFrozen(frozen);
+    @Override
+    boolean isDetachFrozen() {
+        if (detachFreezeSuspended || hostController == null) {
+            return false;
         }
+        return hostController.isPerformingExitTransition
+                || (hostController.getRouter() != null && hostController.getRouter().isDetachFrozen());
     }
 
     @Override
     void destroy(boolean popViews) {
-        setDetachFrozen(false);
+        // Views being torn down with this router shouldn't wait for an ancestor's exit transition to end
+        detachFreezeSuspended = true;
+        releaseFrozenDetaches();
         super.destroy(popViews);
-    }
-
-    @Override
-    protected void pushToBackstack(@NonNull RouterTransaction entry) {
-        if (isDetachFrozen) {
-            entry.controller().setDetachFrozen(true);
-        }
-        super.pushToBackstack(entry);
-    }
-
-    @Override
-    public void setBackstack(@NonNull List<RouterTransaction> newBackstack, @Nullable ControllerChangeHandler changeHandler) {
-        if (isDetachFrozen) {
-            for (RouterTransaction transaction : newBackstack) {
-                transaction.controller().setDetachFrozen(true);
-            }
-        }
-        super.setBackstack(newBackstack, changeHandler);
+        detachFreezeSuspended = false;
+        setTracer(null);
     }
 
     @Override
@@ -122,7 +115,7 @@ class ControllerHostedRouter extends Router {
         if (to != null && !hostController.isAttached()) {
             if (to.pushChangeHandler() == null || to.pushChangeHandler().removesFromViewOnPush()) {
                 for (RouterTransaction transaction : backstack) {
-                    transaction.controller().setNeedsAttach(false);
+                    transaction.clearNeedsAttach();
                 }
             }
         }
@@ -154,6 +147,14 @@ class ControllerHostedRouter extends Router {
         }
     }
 
+    @Override
+    void markOptionsMenuParticipantsDirty() {
+        super.markOptionsMenuParticipantsDirty();
+        if (hostController != null && hostController.getRouter() != null) {
+            hostController.getRouter().markOptionsMenuParticipantsDirty();
+        }
+    }
+
     @Override
     void startActivity(@NonNull Intent intent) {
         if (hostController != null && hostController.getRouter() != null) {
@@ -216,6 +217,72 @@ class ControllerHostedRouter extends Router {
         outState.putString(KEY_TAG, tag);
     }
 
+    @Override
+    boolean shouldMeasureSavedState() {
+        if (super.shouldMeasureSavedState()) {
+            return true;
+        }
+
+        Router parentRouter = hostController != null ? hostController.getRouter() : null;
+        return parentRouter != null && parentRouter.shouldMeasureSavedState();
+    }
+
+    @Override
+    boolean shouldDeferDestruction() {
+        if (super.shouldDeferDestruction()) {
+            return true;
+        }
+
+        Router parentRouter = hostController != null ? hostController.getRouter() : null;
+        return parentRouter != null && parentRouter.shouldDeferDestruction();
+    }
+
+    @Override @Nullable
+    ViewPool findViewPool() {
+        ViewPool viewPool = super.findViewPool();
+        if (viewPool != null || container == null) {
+            return viewPool;
+        }
+
+        Router parentRouter = hostController != null ? hostController.getRouter() : null;
+        return parentRouter != null ? parentRouter.findViewPool() : null;
+    }
+
+    @Override @Nullable
+    ConductorTracer findTracer() {
+        Router parentRouter = hostController != null ? hostController.getRouter() : null;
+        if (getTracer() != null || parentRouter == null) {
+            return super.findTracer();
+        }
+        return parentRouter.findTracer();
+    }
+
+    @Override @Nullable
+    HibernationPolicy findHibernationPolicy() {
+        Router parentRouter = hostController != null ? hostController.getRouter() : null;
+        if (getHibernationPolicy() != null || parentRouter == null) {
+            return super.findHibernationPolicy();
+        }
+        return parentRouter.findHibernationPolicy();
+    }
+
+    @Override
+    int getDepth() {
+        Router parentRouter = hostController != null ? hostController.getRouter() : null;
+        return parentRouter != null ? parentRouter.getDepth() + 1 : 1;
+    }
+
+    @Override @Nullable
+    Router getStateStoreOwner() {
+        Router owner = super.getStateStoreOwner();
+        if (owner != null) {
+            return owner;
+        }
+
+        Router parentRouter = hostController != null ? hostController.getRouter() : null;
+        return parentRouter != null ? parentRouter.getStateStoreOwner() : null;
+    }
+
     @Override
     public void restoreInstanceState(@NonNull Bundle savedInstanceState) {
         super.restoreInstanceState(savedInstanceState);
@@ -224,6 +291,23 @@ class ControllerHostedRouter extends Router {
         tag = savedInstanceState.getString(KEY_TAG);
     }
 
+    @NonNull
+    static Bundle newSavedState(int hostId, @Nullable String tag, @NonNull ArrayList<Bundle> transactionStates, boolean popsLastView) {
+        Bundle outState = Router.newSavedState(transactionStates, popsLastView);
+        outState.putInt(KEY_HOST_ID, hostId);
+        outState.putString(KEY_TAG, tag);
+        return outState;
+    }
+
+    static int savedHostId(@NonNull Bundle savedRouterState) {
+        return savedRouterState.getInt(KEY_HOST_ID);
+    }
+
+    @Nullable
+    static String savedTag(@NonNull Bundle savedRouterState) {
+        return savedRouterState.getString(KEY_TAG);
+    }
+
     @Override
     void setRouterOnController(@NonNull Controller controller) {
         controller.setParentController(hostController);
@@ -239,14 +323,6 @@ class ControllerHostedRouter extends Router {
         return tag;
     }
 
-    @Override @NonNull
-    List<Router> getSiblingRouters() {
-        List<Router> list = new ArrayList<>();
-        list.addAll(hostController.getChildRouters());
-        list.addAll(hostController.getRouter().getSiblingRouters());
-        return list;
-    }
-
     @Override @NonNull
     Router getRootRouter() {
         if (hostController != null && hostController.getRouter() != null) {
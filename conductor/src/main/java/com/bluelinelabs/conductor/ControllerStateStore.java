@@ -0,0 +1,40 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Storage for the view state of off-screen Controllers. When a {@link Router} has a store set through
+ * {@link Router#setStateStore(ControllerStateStore, int)}, Controllers below the retained depth hand their view
+ * state to the store instead of keeping it in memory and in the Router's saved state. The state is read back
+ * when the Controller's view is next created.
+ * <p>
+ * All methods are called on the main thread.
+ *
+ * @see FileControllerStateStore
+ */
+public interface ControllerStateStore {
+
+    /**
+     * Stores a Controller's state under the given key, replacing anything previously stored for it. Keys start
+     * with the Controller's instance ID and are unique for every write, so state is never shared between
+     * Controllers.
+     *
+     * @return Whether or not the state was stored. If false, the Controller keeps its state in memory.
+     */
+    boolean write(@NonNull String key, @NonNull Bundle state);
+
+    /**
+     * Returns the state stored under the given key, or {@code null} if there is none or it could not be read.
+     */
+    @Nullable
+    Bundle read(@NonNull String key);
+
+    /**
+     * Removes the state stored under the given key, if any.
+     */
+    void remove(@NonNull String key);
+
+}
@@ -0,0 +1,125 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Destroys Controllers that have been removed from their backstack and are no longer visible while the main
+ * thread is idle, instead of in the frame that removed them. Controllers are destroyed in the order they were
+ * queued, a slice at a time, so a large pop doesn't turn into one long frame.
+ *
+ * @see Router#setDefersDestruction(boolean)
+ */
+final class DeferredDestroyer implements MessageQueue.IdleHandler {
+
+    // Leaves most of a 60fps frame for whatever else runs while the main thread is idle
+    static final long SLICE_BUDGET_NANOS = 4_000_000;
+
+    @Nullable private static DeferredDestroyer instance;
+
+    private final ArrayDeque<Controller> queue = new ArrayDeque<>();
+    private boolean idleHandlerRegistered;
+
+    private DeferredDestroyer() { }
+
+    @NonNull
+    static DeferredDestroyer getInstance() {
+        if (instance == null) {
+            instance = new DeferredDestroyer();
+        }
+        return instance;
+    }
+
+    void enqueue(@NonNull Controller controller) {
+        queue.add(controller);
+
+        if (!idleHandlerRegistered) {
+            idleHandlerRegistered = true;
+            //noinspection ConstantConditions
+            Looper.myQueue().addIdleHandler(this);
+        }
+    }
+
+    @Override
+    public boolean queueIdle() {
+        long deadline = System.nanoTime() + SLICE_BUDGET_NANOS;
+        Controller controller;
+        while ((controller = queue.poll()) != null) {
+            controller.performDeferredDestroy();
+
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+
+        idleHandlerRegistered = !queue.isEmpty();
+        return idleHandlerRegistered;
+    }
+
+    /**
+     * Destroys every queued Controller right away.
+     */
+    void flush() {
+        Controller controller;
+        while ((controller = queue.poll()) != null) {
+            controller.performDeferredDestroy();
+        }
+    }
+
+    /**
+     * Destroys the queued Controllers of the router tree with the passed root right away. The queue is shared by
+     * every Activity in the process, so Controllers of other trees are left queued.
+     */
+    void flushRouterTree(@NonNull Router rootRouter) {
+        if (queue.isEmpty()) {
+            return;
+        }
+
+        Iterator<Controller> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            Controller controller = iterator.next();
+            Router router = controller.getRouter();
+            if (router != null && router.getRootRouter() == rootRouter) {
+                iterator.remove();
+                controller.performDeferredDestroy();
+                // Destroying may have flushed other entries, so start over
+                iterator = queue.iterator();
+            }
+        }
+    }
+
+    /**
+     * Destroys queued Controllers that are nested somewhere below the passed one right away, so they are still
+     * destroyed before their ancestor.
+     */
+    void flushDescendantsOf(@NonNull Controller ancestor) {
+        if (queue.isEmpty()) {
+            return;
+        }
+
+        Iterator<Controller> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            Controller controller = iterator.next();
+            for (Controller parent = controller.getParentController(); parent != null; parent = parent.getParentController()) {
+                if (parent == ancestor) {
+                    iterator.remove();
+                    controller.performDeferredDestroy();
+                    // Destroying may have flushed other entries, so start over
+                    iterator = queue.iterator();
+                    break;
+                }
+            }
+        }
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+}
@@ -0,0 +1,145 @@
+package com.bluelinelabs.conductor;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Parcel;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A {@link ControllerStateStore} that writes each stored state to its own file in an app-private directory.
+ * Files are written to a temporary name and renamed into place, so a process death mid-write never leaves a
+ * partially written state behind.
+ */
+public final class FileControllerStateStore implements ControllerStateStore {
+
+    private static final String DEFAULT_DIRECTORY = "conductor-state";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    @NonNull private final File directory;
+
+    /**
+     * Creates a store backed by a directory inside the application's files directory.
+     */
+    public FileControllerStateStore(@NonNull Context context) {
+        this(new File(context.getApplicationContext().getFilesDir(), DEFAULT_DIRECTORY));
+    }
+
+    public FileControllerStateStore(@NonNull File directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public boolean write(@NonNull String key, @NonNull Bundle state) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return false;
+        }
+
+        byte[] bytes;
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(state);
+            bytes = parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+
+        File file = fileFor(key);
+        File tempFile = new File(directory, file.getName() + TEMP_SUFFIX);
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(tempFile));
+            out.write(bytes);
+            out.close();
+            out = null;
+            return tempFile.renameTo(file);
+        } catch (IOException e) {
+            return false;
+        } finally {
+            closeQuietly(out);
+            tempFile.delete();
+        }
+    }
+
+    @Override @Nullable
+    public Bundle read(@NonNull String key) {
+        File file = fileFor(key);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        byte[] bytes = new byte[(int) file.length()];
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new FileInputStream(file));
+            in.readFully(bytes);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(bytes, 0, bytes.length);
+            parcel.setDataPosition(0);
+            return parcel.readBundle(getClass().getClassLoader());
+        } catch (RuntimeException e) {
+            return null;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @Override
+    public void remove(@NonNull String key) {
+        fileFor(key).delete();
+    }
+
+    /**
+     * Removes all stored state. Apps may call this when starting without saved instance state, as no Controller
+     * can claim state written by a previous process in that case.
+     */
+    public void clear() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    @NonNull
+    private File fileFor(@NonNull String key) {
+        // Escape anything that might not be valid in a file name, without allowing two keys to collide.
+        StringBuilder name = new StringBuilder(key.length());
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == '-' || c == '_') {
+                name.append(c);
+            } else {
+                name.append('%').append(Integer.toHexString(c | 0x10000).substring(1));
+            }
+        }
+        return new File(directory, name.toString());
+    }
+
+    private static void closeQuietly(@Nullable Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) { }
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.bluelinelabs.conductor;
+
+/**
+ * Limits how many off-screen Controllers a {@link Router} keeps in memory. Controllers more than retainedDepth
+ * entries below the top of their backstack, or off-screen for longer than maxIdleMillis, are hibernated: their
+ * instance state is saved, they are destroyed, and their backstack entry only keeps the saved state. The entry
+ * recreates its Controller from that state the next time it is needed, such as when it is popped back to, the
+ * same way entries are restored after process death.
+ * <p>
+ * Hibernated Controllers go through their full destroy lifecycle, including {@link Controller#onDestroy()}, and
+ * anything they hold is released with them. Their instance ID, tag, pending activity results and state kept in a
+ * {@link ControllerStateStore} carry over to the recreated Controller.
+ */
+public final class HibernationPolicy {
+
+    /**
+     * Used as maxIdleMillis to only hibernate Controllers based on their depth.
+     */
+    public static final long NO_IDLE_LIMIT = Long.MAX_VALUE;
+
+    private final int retainedDepth;
+    private final long maxIdleMillis;
+
+    /**
+     * Creates a policy that hibernates Controllers based on their depth only.
+     *
+     * @param retainedDepth The number of entries at the top of each backstack that are never hibernated
+     */
+    public HibernationPolicy(int retainedDepth) {
+        this(retainedDepth, NO_IDLE_LIMIT);
+    }
+
+    /**
+     * @param retainedDepth The number of entries at the top of each backstack that are only hibernated once idle.
+     *                      Pass {@link Integer#MAX_VALUE} to hibernate Controllers based on idle time only.
+     * @param maxIdleMillis How long a Controller may stay off-screen before it is hibernated, or {@link #NO_IDLE_LIMIT}
+     */
+    public HibernationPolicy(int retainedDepth, long maxIdleMillis) {
+        if (retainedDepth < 1) {
+            throw new IllegalArgumentException("retainedDepth must be at least 1.");
+        }
+        if (maxIdleMillis < 0) {
+            throw new IllegalArgumentException("maxIdleMillis must not be negative.");
+        }
+
+        this.retainedDepth = retainedDepth;
+        this.maxIdleMillis = maxIdleMillis;
+    }
+
+    public int getRetainedDepth() {
+        return retainedDepth;
+    }
+
+    public long getMaxIdleMillis() {
+        return maxIdleMillis;
+    }
+
+    /**
+     * Returns the uptime at which an entry at the passed depth that went off-screen at offscreenSince should be
+     * hibernated, or {@link Long#MAX_VALUE} if it shouldn't be hibernated.
+     */
+    long hibernationTime(int depth, long offscreenSince) {
+        if (depth >= retainedDepth) {
+            return offscreenSince;
+        } else if (maxIdleMillis == NO_IDLE_LIMIT || offscreenSince > Long.MAX_VALUE - maxIdleMillis) {
+            return Long.MAX_VALUE;
+        } else {
+            return offscreenSince + maxIdleMillis;
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.bluelinelabs.conductor;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A change to a {@link Controller} that has been started by a {@link Router} but whose {@link ControllerChangeHandler}
+ * has not completed yet.
+ *
+ * @see Router#getInFlightChanges()
+ */
+public final class InFlightChange {
+
+    @NonNull final Controller controller;
+    @NonNull final ControllerChangeHandler changeHandler;
+    final boolean isPush;
+    private final long startUptimeMillis;
+
+    InFlightChange(@NonNull Controller controller, @NonNull ControllerChangeHandler changeHandler, boolean isPush, long startUptimeMillis) {
+        this.controller = controller;
+        this.changeHandler = changeHandler;
+        this.isPush = isPush;
+        this.startUptimeMillis = startUptimeMillis;
+    }
+
+    /**
+     * Returns the Controller being changed to.
+     */
+    @NonNull
+    public Controller getController() {
+        return controller;
+    }
+
+    @NonNull
+    public ControllerChangeHandler getChangeHandler() {
+        return changeHandler;
+    }
+
+    public boolean isPush() {
+        return isPush;
+    }
+
+    /**
+     * Returns the time the change started, in the {@link android.os.SystemClock#uptimeMillis()} time base.
+     */
+    public long getStartUptimeMillis() {
+        return startUptimeMillis;
+    }
+
+    @Override @NonNull
+    public String toString() {
+        return (isPush ? "Push to " : "Pop to ") + controller.getClass().getSimpleName() + " (" + controller.getInstanceId() + ") using "
+                + changeHandler.getClass().getSimpleName() + ", started at " + startUptimeMillis;
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.bluelinelabs.conductor;
+
+import androidx.annotation.NonNull;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates the instance IDs assigned to new {@link Controller}s. IDs must be unique among all Controllers that
+ * exist in the process, including Controllers that will be restored from saved instance state. Generators may
+ * be called from any thread.
+ * <p>
+ * The generator is installed process-wide through {@link Conductor#setInstanceIdGenerator(InstanceIdGenerator)}.
+ * An Activity may be restored after other Activities have already created Controllers, so a generator can't
+ * learn which IDs restored Controllers use before it has to hand out new ones.
+ */
+public abstract class InstanceIdGenerator {
+
+    /**
+     * Returns a new, unique instance ID.
+     */
+    @NonNull
+    public abstract String nextInstanceId();
+
+    /**
+     * Returns a generator that hands out a process-wide, monotonically increasing 64-bit counter, formatted in
+     * base 36. This is the default. IDs are unique within a process for its first 2<sup>32</sup> Controllers. The
+     * high bits of the counter hold a random 31-bit epoch picked once per process, so IDs restored from an earlier
+     * process only collide with new ones if both processes picked the same epoch, which happens with a probability
+     * of 2<sup>-31</sup> per pair of processes.
+     */
+    @NonNull
+    public static InstanceIdGenerator monotonic() {
+        return new MonotonicInstanceIdGenerator();
+    }
+
+    /**
+     * Returns a generator that hands out random UUIDs, as Conductor did before IDs were made pluggable.
+     */
+    @NonNull
+    public static InstanceIdGenerator randomUuid() {
+        return new InstanceIdGenerator() {
+            @NonNull @Override
+            public String nextInstanceId() {
+                return UUID.randomUUID().toString();
+            }
+        };
+    }
+
+    private static class MonotonicInstanceIdGenerator extends InstanceIdGenerator {
+
+        private static final int COUNTER_BITS = 32;
+
+        private final AtomicLong lastId = new AtomicLong(newEpoch() << COUNTER_BITS);
+
+        // 31 random bits, keeping IDs positive so they format to at most 13 characters
+        private static long newEpoch() {
+            return new SecureRandom().nextInt() & Integer.MAX_VALUE;
+        }
+
+        @NonNull @Override
+        public String nextInstanceId() {
+            return Long.toString(lastId.incrementAndGet(), Character.MAX_RADIX);
+        }
+    }
+
+}
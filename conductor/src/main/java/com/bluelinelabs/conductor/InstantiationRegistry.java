@@ -0,0 +1,35 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Creates {@link Controller}s and {@link ControllerChangeHandler}s by class name without reflection. Registries are
+ * normally generated by the {@code conductor-compiler} annotation processor and installed through
+ * {@link Conductor#addInstantiationRegistry(InstantiationRegistry)}. The default {@link ControllerFactory} and
+ * {@link ChangeHandlerFactory} consult every installed registry before falling back to reflection.
+ */
+public interface InstantiationRegistry {
+
+    /**
+     * Returns a new instance of the Controller with the passed class name, or {@code null} if this registry
+     * doesn't know the class.
+     *
+     * @param className The binary name of the Controller's class, as returned by {@link Class#getName()}
+     * @param args      The args the Controller was created with, or {@code null} if it had none
+     */
+    @Nullable
+    Controller newController(@NonNull String className, @Nullable Bundle args);
+
+    /**
+     * Returns a new instance of the change handler with the passed class name, or {@code null} if this registry
+     * doesn't know the class.
+     *
+     * @param className The binary name of the change handler's class, as returned by {@link Class#getName()}
+     */
+    @Nullable
+    ControllerChangeHandler newChangeHandler(@NonNull String className);
+
+}
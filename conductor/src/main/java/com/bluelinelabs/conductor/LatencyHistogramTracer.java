@@ -0,0 +1,167 @@
+package com.bluelinelabs.conductor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link ConductorTracer} that aggregates the duration of every span into a latency histogram per
+ * {@link ConductorTracer.Span}. Recording is lock-free and allocation-free, and the histograms can be read from any
+ * thread while spans are being recorded.
+ * <p>
+ * Durations are bucketed by powers of two microseconds: bucket 0 holds spans shorter than 1µs, and bucket
+ * {@code i} holds spans of at least 2<sup>i-1</sup>µs and less than 2<sup>i</sup>µs. The last bucket also holds
+ * everything longer.
+ */
+public final class LatencyHistogramTracer implements ConductorTracer {
+
+    public static final int BUCKET_COUNT = 32;
+
+    private static final int SPAN_COUNT = Span.values().length;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(SPAN_COUNT * BUCKET_COUNT);
+    private final AtomicLongArray totalNanos = new AtomicLongArray(SPAN_COUNT);
+    private final AtomicLongArray maxNanos = new AtomicLongArray(SPAN_COUNT);
+
+    @Override
+    public long beginSpan(@NonNull Span span, @NonNull Controller controller, int routerDepth, @Nullable ControllerChangeType changeType) {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void endSpan(@NonNull Span span, @NonNull Controller controller, int routerDepth, @Nullable ControllerChangeType changeType, long token) {
+        record(span, System.nanoTime() - token);
+    }
+
+    /**
+     * Records a span of the passed duration, as if it had been reported by Conductor.
+     */
+    public void record(@NonNull Span span, long durationNanos) {
+        int spanIndex = span.ordinal();
+        buckets.incrementAndGet(spanIndex * BUCKET_COUNT + bucketFor(durationNanos));
+        totalNanos.addAndGet(spanIndex, durationNanos);
+
+        long max;
+        do {
+            max = maxNanos.get(spanIndex);
+        } while (durationNanos > max && !maxNanos.compareAndSet(spanIndex, max, durationNanos));
+    }
+
+    /**
+     * Returns the number of recorded spans of the passed type.
+     */
+    public long getCount(@NonNull Span span) {
+        long count = 0;
+        int offset = span.ordinal() * BUCKET_COUNT;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += buckets.get(offset + i);
+        }
+        return count;
+    }
+
+    public long getTotalNanos(@NonNull Span span) {
+        return totalNanos.get(span.ordinal());
+    }
+
+    public long getMaxNanos(@NonNull Span span) {
+        return maxNanos.get(span.ordinal());
+    }
+
+    /**
+     * Returns a copy of the histogram for the passed span type, with {@link #BUCKET_COUNT} entries.
+     */
+    @NonNull
+    public long[] getBuckets(@NonNull Span span) {
+        long[] counts = new long[BUCKET_COUNT];
+        int offset = span.ordinal() * BUCKET_COUNT;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(offset + i);
+        }
+        return counts;
+    }
+
+    /**
+     * Returns an upper bound, in microseconds, for the passed percentile of the durations of the passed span type.
+     * The result is the upper bound of the bucket the percentile falls into, or 0 if nothing has been recorded.
+     *
+     * @param percentile The percentile, between 0 and 100
+     */
+    public long getPercentileMicros(@NonNull Span span, double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100, was " + percentile);
+        }
+
+        long[] counts = getBuckets(span);
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long threshold = (long)Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= threshold && seen > 0) {
+                return bucketUpperBoundMicros(i);
+            }
+        }
+        return bucketUpperBoundMicros(BUCKET_COUNT - 1);
+    }
+
+    /**
+     * Clears all recorded spans. Spans recorded concurrently with a reset may be partially cleared.
+     */
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        for (int i = 0; i < SPAN_COUNT; i++) {
+            totalNanos.set(i, 0);
+            maxNanos.set(i, 0);
+        }
+    }
+
+    /**
+     * Returns the exclusive upper bound of the passed bucket, in microseconds. The last bucket is unbounded, and
+     * returns {@link Long#MAX_VALUE}.
+     */
+    public static long bucketUpperBoundMicros(int bucket) {
+        return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    static int bucketFor(long durationNanos) {
+        long micros = durationNanos / 1000;
+        if (micros <= 0) {
+            return 0;
+        }
+        return Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKET_COUNT - 1);
+    }
+
+    @Override @NonNull
+    public String toString() {
+        StringBuilder builder = new StringBuilder("LatencyHistogramTracer{");
+        boolean first = true;
+        for (Span span : Span.values()) {
+            long count = getCount(span);
+            if (count == 0) {
+                continue;
+            }
+
+            if (!first) {
+                builder.append(", ");
+            }
+            first = false;
+            builder.append(span.sectionName)
+                    .append(": count=").append(count)
+                    .append(", p50<").append(getPercentileMicros(span, 50)).append("µs")
+                    .append(", p99<").append(getPercentileMicros(span, 99)).append("µs")
+                    .append(", max=").append(getMaxNanos(span) / 1000).append("µs");
+        }
+        return builder.append('}').toString();
+    }
+
+}
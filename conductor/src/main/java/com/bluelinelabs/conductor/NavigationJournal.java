@@ -0,0 +1,266 @@
+package com.bluelinelabs.conductor;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps a {@link NavigationSnapshot} of a {@link Router} in a file, so the app can restore its navigation on a cold
+ * start where no saved instance state is available. Once set through {@link Router#setNavigationJournal(NavigationJournal)},
+ * a snapshot is captured after the backstack changes and written on a background thread. Changes made within the
+ * same main thread message are captured once, and a write still waiting for the background thread is replaced by
+ * newer snapshots rather than queued behind them. Each write goes to a temporary file that is renamed into place,
+ * so the journal never contains a partially written snapshot.
+ * <p>
+ * Snapshots hold args in the platform's Parcel format, which may no longer match the app's classes after an update.
+ * Each one is therefore written with a key identifying the build of the app, and snapshots written under a different
+ * key are discarded when read.
+ * <p>
+ * A typical Activity reads the journal when it is created without saved instance state:
+ * <pre>
+ * journal = new NavigationJournal(this);
+ * router = Conductor.attachRouter(this, container, savedInstanceState, savedInstanceState == null ? journal.read() : null);
+ * router.setNavigationJournal(journal);
+ * </pre>
+ * The journal is kept when the Activity finishes. Apps that don't want to restore navigation after the user has
+ * left should call {@link #clear()}.
+ */
+public final class NavigationJournal {
+
+    private static final String DEFAULT_FILE_NAME = "conductor-navigation";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static Executor defaultExecutor;
+
+    @NonNull private final File file;
+    @NonNull private final String key;
+    @NonNull private final Executor executor;
+    @NonNull private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // The latest snapshot that hasn't been picked up by the background thread yet
+    private final AtomicReference<PendingSnapshot> pendingSnapshot = new AtomicReference<>();
+    private final Object writeLock = new Object();
+
+    @Nullable private Router pendingRouter;
+    private long capturedGeneration;
+    private long writtenGeneration;
+
+    private final Runnable captureRunnable = new Runnable() {
+        @Override
+        public void run() {
+            Router router = pendingRouter;
+            pendingRouter = null;
+
+            // Don't record the teardown of a Router whose host is already gone
+            if (router != null && router.getActivity() != null) {
+                enqueueWrite(new PendingSnapshot(NavigationSnapshot.capture(router), ++capturedGeneration));
+            }
+        }
+    };
+
+    private final Runnable writeRunnable = new Runnable() {
+        @Override
+        public void run() {
+            PendingSnapshot snapshot = pendingSnapshot.getAndSet(null);
+            if (snapshot != null) {
+                write(snapshot);
+            }
+        }
+    };
+
+    /**
+     * Creates a journal backed by a file inside the application's files directory, keyed by the app's version code
+     * and install time.
+     */
+    public NavigationJournal(@NonNull Context context) {
+        this(new File(context.getApplicationContext().getFilesDir(), DEFAULT_FILE_NAME), buildKey(context));
+    }
+
+    /**
+     * @param file The file snapshots are written to
+     * @param key  Identifies the build of the app, such as its version code
+     */
+    public NavigationJournal(@NonNull File file, @NonNull String key) {
+        this(file, key, defaultExecutor());
+    }
+
+    /**
+     * @param file     The file snapshots are written to
+     * @param key      Identifies the build of the app, such as its version code
+     * @param executor The executor snapshots are written on
+     */
+    public NavigationJournal(@NonNull File file, @NonNull String key, @NonNull Executor executor) {
+        this.file = file;
+        this.key = key;
+        this.executor = executor;
+    }
+
+    /**
+     * Reads the last snapshot written to this journal. Can be called on any thread.
+     *
+     * @return The snapshot, or {@code null} if none has been written, it was written under a different key or it
+     *         could not be read
+     */
+    @Nullable
+    public NavigationSnapshot read() {
+        synchronized (writeLock) {
+            if (!file.isFile()) {
+                return null;
+            }
+
+            InputStream in = null;
+            boolean stale = false;
+            try {
+                in = new BufferedInputStream(new FileInputStream(file));
+                if (!key.equals(new DataInputStream(in).readUTF())) {
+                    stale = true;
+                    return null;
+                }
+                return NavigationSnapshot.readFrom(in);
+            } catch (IOException e) {
+                return null;
+            } finally {
+                closeQuietly(in);
+                if (stale) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the stored snapshot. Snapshots captured before this call are discarded, even if they haven't been
+     * written yet.
+     */
+    @UiThread
+    public void clear() {
+        mainHandler.removeCallbacks(captureRunnable);
+        pendingRouter = null;
+        pendingSnapshot.set(null);
+
+        synchronized (writeLock) {
+            writtenGeneration = Math.max(writtenGeneration, capturedGeneration);
+            file.delete();
+        }
+    }
+
+    // Called on the main thread by the root Router whenever its backstack or one of its descendants' changes
+    void onBackstackChanged(@NonNull Router router) {
+        if (pendingRouter == null) {
+            mainHandler.post(captureRunnable);
+        }
+        pendingRouter = router;
+    }
+
+    private void enqueueWrite(@NonNull PendingSnapshot snapshot) {
+        if (pendingSnapshot.getAndSet(snapshot) == null) {
+            executor.execute(writeRunnable);
+        }
+    }
+
+    private void write(@NonNull PendingSnapshot snapshot) {
+        synchronized (writeLock) {
+            // A newer snapshot may already have been written if the executor runs writes concurrently
+            if (snapshot.generation <= writtenGeneration) {
+                return;
+            }
+
+            File directory = file.getParentFile();
+            if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+                return;
+            }
+
+            File tempFile = new File(file.getPath() + TEMP_SUFFIX);
+            FileOutputStream fileOut = null;
+            try {
+                fileOut = new FileOutputStream(tempFile);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+                out.writeUTF(key);
+                snapshot.snapshot.writeTo(out);
+                out.flush();
+                fileOut.getFD().sync();
+                fileOut.close();
+                fileOut = null;
+
+                if (tempFile.renameTo(file)) {
+                    writtenGeneration = snapshot.generation;
+                }
+            } catch (IOException ignored) {
+                // The previous snapshot stays in place
+            } finally {
+                closeQuietly(fileOut);
+                tempFile.delete();
+            }
+        }
+    }
+
+    @NonNull
+    @SuppressWarnings("deprecation")
+    private static String buildKey(@NonNull Context context) {
+        try {
+            PackageInfo packageInfo = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+            long versionCode = Build.VERSION.SDK_INT >= Build.VERSION_CODES.P ? packageInfo.getLongVersionCode() : packageInfo.versionCode;
+            // The install time tells apart development builds that share a version code
+            return versionCode + "/" + packageInfo.lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return "";
+        }
+    }
+
+    @NonNull
+    private static synchronized Executor defaultExecutor() {
+        if (defaultExecutor == null) {
+            defaultExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "Conductor-journal");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return defaultExecutor;
+    }
+
+    private static void closeQuietly(@Nullable Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) { }
+        }
+    }
+
+    private static final class PendingSnapshot {
+
+        @NonNull final NavigationSnapshot snapshot;
+        final long generation;
+
+        PendingSnapshot(@NonNull NavigationSnapshot snapshot, long generation) {
+            this.snapshot = snapshot;
+            this.generation = generation;
+        }
+    }
+
+}
@@ -0,0 +1,594 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.os.Parcel;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+
+import com.bluelinelabs.conductor.internal.ThreadUtils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, compact record of a {@link Router}'s navigation: its backstack and the backstacks of all child
+ * routers, with the class, args and tag of each Controller and the class and state of its change handlers. Unlike
+ * saved instance state it leaves out view state and anything written in {@link Controller#onSaveInstanceState(Bundle)},
+ * which keeps it small enough to write on every change. Snapshots are usually written and read through a
+ * {@link NavigationJournal} and restored with {@link Conductor#attachRouter(android.app.Activity, android.view.ViewGroup, Bundle, NavigationSnapshot)}.
+ * <p>
+ * Args and change handler state are stored in the platform's Parcel format, so a snapshot is only meant to be read
+ * back on the device and by the build of the app that wrote it. {@link NavigationJournal} discards snapshots written
+ * by any other build.
+ */
+public final class NavigationSnapshot {
+
+    private static final int MAGIC = 0x434e5653; // "CNVS"
+    private static final int VERSION = 1;
+
+    // Guards against allocating huge arrays while reading a corrupt file
+    private static final int MAX_LENGTH = 1 << 24;
+
+    @NonNull private final RouterState root;
+
+    private NavigationSnapshot(@NonNull RouterState root) {
+        this.root = root;
+    }
+
+    /**
+     * Captures the current navigation of the passed router and all of its child routers.
+     */
+    @NonNull @UiThread
+    public static NavigationSnapshot capture(@NonNull Router router) {
+        ThreadUtils.ensureMainThread();
+
+        return new NavigationSnapshot(RouterState.capture(router, 0, null));
+    }
+
+    /**
+     * Returns whether or not the captured router had an empty backstack.
+     */
+    public boolean isEmpty() {
+        return root.entries.isEmpty();
+    }
+
+    /**
+     * Writes this snapshot to the passed stream. The stream is not closed.
+     */
+    public void writeTo(@NonNull OutputStream outputStream) throws IOException {
+        // Class names repeat a lot across a backstack, so each one is written once up front and referenced by index
+        Map<String, Integer> classNames = new LinkedHashMap<>();
+        root.collectClassNames(classNames);
+
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        writeVarInt(out, classNames.size());
+        for (String className : classNames.keySet()) {
+            out.writeUTF(className);
+        }
+        root.writeTo(out, classNames);
+        out.flush();
+    }
+
+    /**
+     * Reads a snapshot previously written by {@link #writeTo(OutputStream)}. The stream is not closed.
+     *
+     * @throws IOException If the stream could not be read or doesn't contain a snapshot written by this version
+     *                     of Conductor
+     */
+    @NonNull
+    public static NavigationSnapshot readFrom(@NonNull InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a navigation snapshot.");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported navigation snapshot version " + version + ".");
+        }
+
+        String[] classNames = new String[readLength(in)];
+        for (int i = 0; i < classNames.length; i++) {
+            classNames[i] = in.readUTF();
+        }
+        return new NavigationSnapshot(RouterState.readFrom(in, classNames));
+    }
+
+    /**
+     * Restores this snapshot into the passed router, which must have an empty backstack. Controllers are restored
+     * lazily, the same way as from saved instance state, so only the visible ones are created. Nothing is changed
+     * if the class of any Controller or change handler can't be found, for example because it has been renamed
+     * since the snapshot was written.
+     *
+     * @return Whether or not the snapshot was restored
+     */
+    boolean restoreInto(@NonNull Router router) {
+        // Most Controllers are only created once they are needed, so check up front that their classes still exist
+        Map<String, Integer> classNames = new LinkedHashMap<>();
+        root.collectClassNames(classNames);
+
+        List<RouterTransaction> transactions;
+        try {
+            for (String className : classNames.keySet()) {
+                ControllerFactory.loadClass(Controller.class.getClassLoader(), className);
+            }
+            transactions = root.newTransactions();
+        } catch (RuntimeException e) {
+            return false;
+        }
+
+        router.restoreBackstack(transactions, root.popsLastView);
+        router.getTransactionIndexer().skipPast(root.maxTransactionIndex());
+        return true;
+    }
+
+    static final class RouterState {
+
+        final boolean popsLastView;
+        final int hostId;
+        @Nullable final String tag;
+        // Ordered from root to top
+        @NonNull final List<Entry> entries;
+
+        RouterState(boolean popsLastView, int hostId, @Nullable String tag, @NonNull List<Entry> entries) {
+            this.popsLastView = popsLastView;
+            this.hostId = hostId;
+            this.tag = tag;
+            this.entries = entries;
+        }
+
+        @NonNull
+        static RouterState capture(@NonNull Router router, int hostId, @Nullable String tag) {
+            List<Entry> entries = new ArrayList<>(router.backstack.size());
+            Iterator<RouterTransaction> iterator = router.backstack.reverseIterator();
+            while (iterator.hasNext()) {
+                entries.add(Entry.capture(iterator.next()));
+            }
+            return new RouterState(router.getPopsLastView(), hostId, tag, entries);
+        }
+
+        // Captures a child router of a Controller that hasn't been created, straight from its saved state
+        @NonNull
+        static RouterState captureSaved(@NonNull List<Bundle> transactionStates, @NonNull Bundle savedRouterState) {
+            List<Entry> entries = new ArrayList<>(transactionStates.size());
+            // Saved entries are ordered from top to root
+            for (int i = transactionStates.size() - 1; i >= 0; i--) {
+                entries.add(Entry.captureSaved(transactionStates.get(i)));
+            }
+            return new RouterState(
+                    Router.savedPopsLastView(savedRouterState),
+                    ControllerHostedRouter.savedHostId(savedRouterState),
+                    ControllerHostedRouter.savedTag(savedRouterState),
+                    entries
+            );
+        }
+
+        // Ordered from root to top
+        @NonNull
+        List<RouterTransaction> newTransactions() {
+            List<Bundle> transactionStates = newTransactionStates();
+            List<RouterTransaction> transactions = new ArrayList<>(transactionStates.size());
+            for (int i = transactionStates.size() - 1; i >= 0; i--) {
+                transactions.add(new RouterTransaction(transactionStates.get(i)));
+            }
+            return transactions;
+        }
+
+        // Builds the saved state a ControllerHostedRouter would have written for this router
+        @NonNull
+        Bundle newSavedState() {
+            return ControllerHostedRouter.newSavedState(hostId, tag, newTransactionStates(), popsLastView);
+        }
+
+        // Ordered from top to root, like saved instance state. Entries that were visible are marked as needing attach,
+        // matching how Router finds its visible transactions.
+        @NonNull
+        private ArrayList<Bundle> newTransactionStates() {
+            ArrayList<Bundle> transactionStates = new ArrayList<>(entries.size());
+            boolean visible = true;
+            for (int i = entries.size() - 1; i >= 0; i--) {
+                Entry entry = entries.get(i);
+                transactionStates.add(entry.newTransactionState(visible));
+                visible = entry.pushHandler != null && !entry.pushHandler.newHandler().removesFromViewOnPush();
+            }
+            return transactionStates;
+        }
+
+        int maxTransactionIndex() {
+            int max = 0;
+            for (Entry entry : entries) {
+                max = Math.max(max, entry.transactionIndex);
+                for (RouterState childRouter : entry.childRouters) {
+                    max = Math.max(max, childRouter.maxTransactionIndex());
+                }
+            }
+            return max;
+        }
+
+        void collectClassNames(@NonNull Map<String, Integer> classNames) {
+            for (Entry entry : entries) {
+                entry.collectClassNames(classNames);
+            }
+        }
+
+        void writeTo(@NonNull DataOutputStream out, @NonNull Map<String, Integer> classNames) throws IOException {
+            out.writeBoolean(popsLastView);
+            out.writeInt(hostId);
+            writeString(out, tag);
+            writeVarInt(out, entries.size());
+            for (Entry entry : entries) {
+                entry.writeTo(out, classNames);
+            }
+        }
+
+        @NonNull
+        static RouterState readFrom(@NonNull DataInputStream in, @NonNull String[] classNames) throws IOException {
+            boolean popsLastView = in.readBoolean();
+            int hostId = in.readInt();
+            String tag = readString(in);
+            int size = readLength(in);
+            List<Entry> entries = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                entries.add(Entry.readFrom(in, classNames));
+            }
+            return new RouterState(popsLastView, hostId, tag, entries);
+        }
+    }
+
+    static final class Entry {
+
+        @NonNull final String controllerClass;
+        @Nullable final byte[] args;
+        @Nullable final String tag;
+        final int transactionIndex;
+        @Nullable final HandlerState pushHandler;
+        @Nullable final HandlerState popHandler;
+        @NonNull final List<RouterState> childRouters;
+
+        Entry(@NonNull String controllerClass, @Nullable byte[] args, @Nullable String tag, int transactionIndex,
+              @Nullable HandlerState pushHandler, @Nullable HandlerState popHandler, @NonNull List<RouterState> childRouters) {
+            this.controllerClass = controllerClass;
+            this.args = args;
+            this.tag = tag;
+            this.transactionIndex = transactionIndex;
+            this.pushHandler = pushHandler;
+            this.popHandler = popHandler;
+            this.childRouters = childRouters;
+        }
+
+        @NonNull
+        static Entry capture(@NonNull RouterTransaction transaction) {
+            String controllerClass;
+            @Nullable Bundle args;
+            List<RouterState> childRouters = Collections.emptyList();
+
+            if (transaction.isMaterialized()) {
+                Controller controller = transaction.controller();
+                controllerClass = controller.getClass().getName();
+                args = controller.getArgs();
+
+                for (ControllerHostedRouter childRouter : controller.childRouters) {
+                    if (childRouter.hasRootController()) {
+                        if (childRouters.isEmpty()) {
+                            childRouters = new ArrayList<>(controller.childRouters.size());
+                        }
+                        childRouters.add(RouterState.capture(childRouter, childRouter.getHostId(), childRouter.getTag()));
+                    }
+                }
+            } else {
+                // Capturing shouldn't create Controllers that were restored lazily, so read everything from their saved state
+                Bundle savedState = transaction.savedControllerState();
+                //noinspection ConstantConditions
+                controllerClass = Controller.savedClassName(savedState);
+                args = Controller.savedArgs(savedState);
+                childRouters = captureSavedChildRouters(savedState);
+            }
+
+            return new Entry(
+                    controllerClass,
+                    marshallArgs(transaction, args),
+                    transaction.tag(),
+                    transaction.getTransactionIndex(),
+                    HandlerState.capture(transaction.pushChangeHandler()),
+                    HandlerState.capture(transaction.popChangeHandler()),
+                    childRouters
+            );
+        }
+
+        // Snapshots are captured after every change, so the args of each entry are only marshalled once
+        @Nullable
+        private static byte[] marshallArgs(@NonNull RouterTransaction transaction, @Nullable Bundle args) {
+            if (args != transaction.getSnapshotArgsSource()) {
+                transaction.setSnapshotArgs(marshall(args));
+                transaction.setSnapshotArgsSource(args);
+            }
+            return transaction.getSnapshotArgs();
+        }
+
+        // Captures a transaction of a Controller that hasn't been created, straight from its saved state
+        @NonNull
+        static Entry captureSaved(@NonNull Bundle transactionState) {
+            Bundle savedState = RouterTransactionKt.savedControllerState(transactionState);
+            //noinspection ConstantConditions
+            Bundle pushHandler = Controller.savedOverriddenPushHandlerState(savedState);
+            Bundle popHandler = Controller.savedOverriddenPopHandlerState(savedState);
+
+            return new Entry(
+                    Controller.savedClassName(savedState),
+                    marshall(Controller.savedArgs(savedState)),
+                    RouterTransactionKt.savedTag(transactionState),
+                    RouterTransactionKt.savedTransactionIndex(transactionState),
+                    HandlerState.captureSaved(pushHandler != null ? pushHandler : RouterTransactionKt.savedPushHandlerState(transactionState)),
+                    HandlerState.captureSaved(popHandler != null ? popHandler : RouterTransactionKt.savedPopHandlerState(transactionState)),
+                    captureSavedChildRouters(savedState)
+            );
+        }
+
+        @NonNull
+        private static List<RouterState> captureSavedChildRouters(@NonNull Bundle savedControllerState) {
+            List<RouterState> childRouters = Collections.emptyList();
+            for (Bundle childRouterState : Controller.savedChildRouterStates(savedControllerState)) {
+                List<Bundle> transactionStates = Router.savedTransactionStates(childRouterState);
+                if (!transactionStates.isEmpty()) {
+                    if (childRouters.isEmpty()) {
+                        childRouters = new ArrayList<>();
+                    }
+                    childRouters.add(RouterState.captureSaved(transactionStates, childRouterState));
+                }
+            }
+            return childRouters;
+        }
+
+        // Builds the saved state of a transaction whose Controller hasn't been created yet
+        @NonNull
+        Bundle newTransactionState(boolean needsAttach) {
+            ArrayList<Bundle> childRouterStates = new ArrayList<>(childRouters.size());
+            for (RouterState childRouter : childRouters) {
+                childRouterStates.add(childRouter.newSavedState());
+            }
+
+            return RouterTransactionKt.newSavedTransactionState(
+                    Controller.newSavedState(controllerClass, unmarshall(args), needsAttach, childRouterStates),
+                    pushHandler != null ? pushHandler.newBundle() : null,
+                    popHandler != null ? popHandler.newBundle() : null,
+                    tag,
+                    transactionIndex
+            );
+        }
+
+        void collectClassNames(@NonNull Map<String, Integer> classNames) {
+            addClassName(classNames, controllerClass);
+            if (pushHandler != null) {
+                addClassName(classNames, pushHandler.className);
+            }
+            if (popHandler != null) {
+                addClassName(classNames, popHandler.className);
+            }
+            for (RouterState childRouter : childRouters) {
+                childRouter.collectClassNames(classNames);
+            }
+        }
+
+        void writeTo(@NonNull DataOutputStream out, @NonNull Map<String, Integer> classNames) throws IOException {
+            //noinspection ConstantConditions
+            writeVarInt(out, classNames.get(controllerClass));
+            writeString(out, tag);
+            // Unassigned indices are -1
+            writeVarInt(out, transactionIndex + 1);
+            HandlerState.writeTo(out, pushHandler, classNames);
+            HandlerState.writeTo(out, popHandler, classNames);
+            writeBytes(out, args);
+            writeVarInt(out, childRouters.size());
+            for (RouterState childRouter : childRouters) {
+                childRouter.writeTo(out, classNames);
+            }
+        }
+
+        @NonNull
+        static Entry readFrom(@NonNull DataInputStream in, @NonNull String[] classNames) throws IOException {
+            String controllerClass = readClassName(in, classNames);
+            String tag = readString(in);
+            int transactionIndex = readVarInt(in) - 1;
+            HandlerState pushHandler = HandlerState.readFrom(in, classNames);
+            HandlerState popHandler = HandlerState.readFrom(in, classNames);
+            byte[] args = readBytes(in);
+
+            int childCount = readLength(in);
+            List<RouterState> childRouters = childCount > 0 ? new ArrayList<RouterState>(childCount) : Collections.<RouterState>emptyList();
+            for (int i = 0; i < childCount; i++) {
+                childRouters.add(RouterState.readFrom(in, classNames));
+            }
+
+            return new Entry(controllerClass, args, tag, transactionIndex, pushHandler, popHandler, childRouters);
+        }
+    }
+
+    static final class HandlerState {
+
+        @NonNull final String className;
+        @Nullable final byte[] state;
+
+        HandlerState(@NonNull String className, @Nullable byte[] state) {
+            this.className = className;
+            this.state = state;
+        }
+
+        @Nullable
+        static HandlerState capture(@Nullable ControllerChangeHandler handler) {
+            if (handler == null) {
+                return null;
+            }
+
+            Bundle state = new Bundle();
+            handler.saveToBundle(state);
+            return new HandlerState(handler.getClass().getName(), marshall(state));
+        }
+
+        @Nullable
+        static HandlerState captureSaved(@Nullable Bundle handlerBundle) {
+            if (handlerBundle == null) {
+                return null;
+            }
+
+            return new HandlerState(ControllerChangeHandler.savedClassName(handlerBundle), marshall(ControllerChangeHandler.savedState(handlerBundle)));
+        }
+
+        // The handler as written by ControllerChangeHandler.toBundle()
+        @NonNull
+        Bundle newBundle() {
+            Bundle state = unmarshall(this.state);
+            return ControllerChangeHandler.newBundle(className, state != null ? state : new Bundle());
+        }
+
+        @NonNull
+        ControllerChangeHandler newHandler() {
+            ControllerChangeHandler handler = Conductor.getChangeHandlerFactory().instantiate(ControllerChangeHandler.class.getClassLoader(), className);
+            Bundle state = unmarshall(this.state);
+            handler.restoreFromBundle(state != null ? state : new Bundle());
+            return handler;
+        }
+
+        static void writeTo(@NonNull DataOutputStream out, @Nullable HandlerState handler, @NonNull Map<String, Integer> classNames) throws IOException {
+            if (handler == null) {
+                writeVarInt(out, 0);
+            } else {
+                //noinspection ConstantConditions
+                writeVarInt(out, classNames.get(handler.className) + 1);
+                writeBytes(out, handler.state);
+            }
+        }
+
+        @Nullable
+        static HandlerState readFrom(@NonNull DataInputStream in, @NonNull String[] classNames) throws IOException {
+            int classIndex = readVarInt(in) - 1;
+            if (classIndex < 0) {
+                return null;
+            } else if (classIndex >= classNames.length) {
+                throw new IOException("Invalid class reference " + classIndex + ".");
+            }
+            return new HandlerState(classNames[classIndex], readBytes(in));
+        }
+    }
+
+    private static void addClassName(@NonNull Map<String, Integer> classNames, @NonNull String className) {
+        if (!classNames.containsKey(className)) {
+            classNames.put(className, classNames.size());
+        }
+    }
+
+    @NonNull
+    private static String readClassName(@NonNull DataInputStream in, @NonNull String[] classNames) throws IOException {
+        int classIndex = readVarInt(in);
+        if (classIndex >= classNames.length) {
+            throw new IOException("Invalid class reference " + classIndex + ".");
+        }
+        return classNames[classIndex];
+    }
+
+    // Empty bundles are common and are stored as null
+    @Nullable
+    private static byte[] marshall(@Nullable Bundle bundle) {
+        if (bundle == null || bundle.isEmpty()) {
+            return null;
+        }
+
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(bundle);
+            return parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @Nullable
+    private static Bundle unmarshall(@Nullable byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(bytes, 0, bytes.length);
+            parcel.setDataPosition(0);
+            return parcel.readBundle(Controller.class.getClassLoader());
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static void writeString(@NonNull DataOutputStream out, @Nullable String string) throws IOException {
+        out.writeBoolean(string != null);
+        if (string != null) {
+            out.writeUTF(string);
+        }
+    }
+
+    @Nullable
+    private static String readString(@NonNull DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeBytes(@NonNull DataOutputStream out, @Nullable byte[] bytes) throws IOException {
+        if (bytes == null) {
+            writeVarInt(out, 0);
+        } else {
+            writeVarInt(out, bytes.length + 1);
+            out.write(bytes);
+        }
+    }
+
+    @Nullable
+    private static byte[] readBytes(@NonNull DataInputStream in) throws IOException {
+        int length = readLength(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    // Unsigned LEB128, so the small counts and indices that make up most of a snapshot take a single byte
+    private static void writeVarInt(@NonNull DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(@NonNull DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer.");
+    }
+
+    private static int readLength(@NonNull DataInputStream in) throws IOException {
+        int length = readVarInt(in);
+        if (length < 0 || length > MAX_LENGTH) {
+            throw new IOException("Invalid length " + length + ".");
+        }
+        return length;
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.bluelinelabs.conductor;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A Controller view being inflated ahead of time on a background thread. The main thread never waits for it: if
+ * the view isn't ready when the Controller inflates, the prewarm is abandoned and the Controller inflates as usual.
+ */
+final class PrewarmedView implements Runnable {
+
+    private static final int PENDING = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+    private static final int ABANDONED = 3;
+
+    private static Executor defaultExecutor;
+
+    @NonNull private final Controller controller;
+    @NonNull private final ViewGroup container;
+    @NonNull private final LayoutInflater inflater;
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+    @Nullable private volatile View view;
+
+    private PrewarmedView(@NonNull Controller controller, @NonNull ViewGroup container) {
+        this.controller = controller;
+        this.container = container;
+
+        // LayoutInflater instances cache constructor arguments, so the background thread gets its own
+        inflater = LayoutInflater.from(container.getContext()).cloneInContext(container.getContext());
+    }
+
+    @NonNull
+    static PrewarmedView start(@NonNull Controller controller, @NonNull ViewGroup container, @Nullable Executor executor) {
+        PrewarmedView prewarmedView = new PrewarmedView(controller, container);
+        (executor != null ? executor : defaultExecutor()).execute(prewarmedView);
+        return prewarmedView;
+    }
+
+    @Override
+    public void run() {
+        if (!state.compareAndSet(PENDING, RUNNING)) {
+            return;
+        }
+
+        View view = null;
+        try {
+            view = controller.onPrewarmView(inflater, container);
+        } catch (RuntimeException e) {
+            // Not every view can be built off the main thread. Leave it to the regular inflation.
+        }
+
+        this.view = view;
+        if (!state.compareAndSet(RUNNING, DONE)) {
+            this.view = null;
+        }
+    }
+
+    /**
+     * Returns the prewarmed view if it is ready and was built for the passed container, otherwise abandons it and
+     * returns {@code null}. Either way, this prewarm is finished afterwards.
+     */
+    @Nullable
+    View take(@NonNull ViewGroup parent) {
+        if (state.compareAndSet(DONE, ABANDONED)) {
+            View view = this.view;
+            this.view = null;
+            return parent == container ? view : null;
+        }
+
+        abandon();
+        return null;
+    }
+
+    void abandon() {
+        state.set(ABANDONED);
+        view = null;
+    }
+
+    @NonNull
+    private static synchronized Executor defaultExecutor() {
+        if (defaultExecutor == null) {
+            defaultExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "Conductor-prewarm");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return defaultExecutor;
+    }
+
+}
@@ -4,6 +4,10 @@ import android.app.Activity;
 import android.content.Intent;
 import android.content.IntentSender;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
@@ -22,9 +26,15 @@ import com.bluelinelabs.conductor.internal.ThreadUtils;
 import com.bluelinelabs.conductor.internal.TransactionIndexer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * A Router implements navigation and backstack handling for {@link Controller}s. Router objects are attached
@@ -35,13 +45,52 @@ public abstract class Router {
 
     private static final String KEY_BACKSTACK = "Router.backstack";
     private static final String KEY_POPS_LAST_VIEW = "Router.popsLastView";
+    private static final Controller[] NO_CONTROLLERS = new Controller[0];
+
+    // Routers with a tracer of their own. While there are none, tracer lookups skip walking the router tree.
+    private static int tracedRouterCount;
 
     final Backstack backstack = new Backstack();
     private final List<ControllerChangeListener> changeListeners = new ArrayList<>();
     private final List<ChangeTransaction> pendingControllerChanges = new ArrayList<>();
     final List<Controller> destroyingControllers = new ArrayList<>();
+    // Controllers of this Router that currently hold a view, in the order their views were created. Only these can
+    // react to Activity start/resume/pause/stop, so those callbacks skip everything else. Copy-on-write, so a
+    // callback that pushes or pops doesn't disturb the dispatch in progress.
+    private Controller[] viewHoldingControllers = NO_CONTROLLERS;
+
+    // Tree-wide instance id lookup table. Only the root router's instance is populated.
+    private final Map<String, Controller> instanceIdRegistry = new HashMap<>();
+    // Tree-wide lookup of the Controller owning each Controller view, so containers can be cleaned up without
+    // walking every router that shares them. Only the root router's instance is populated.
+    private final Map<View, Controller> viewOwners = new IdentityHashMap<>();
+    // Controllers whose views detached while an ancestor's exit transition froze them, revisited once it ends. Only
+    // the root router's instance is populated.
+    private final List<Controller> frozenDetaches = new ArrayList<>();
 
     private boolean popsLastView = false;
+    private boolean measuresSavedState = false;
+    private boolean defersDestruction = false;
+    @Nullable private StateBudget stateBudget;
+    @Nullable private ControllerStateStore stateStore;
+    @Nullable private ViewPool viewPool;
+    @Nullable private ConductorTracer tracer;
+    @Nullable private NavigationJournal navigationJournal;
+    @Nullable private HibernationPolicy hibernationPolicy;
+    @Nullable private Handler hibernationHandler;
+    // Rarely holds more than two changes, so a list scanned by identity beats a map here
+    private final List<InFlightChange> inFlightChanges = new ArrayList<>(2);
+    private final Runnable hibernationRunnable = new Runnable() {
+        @Override
+        public void run() {
+            hibernateOffscreenControllers();
+        }
+    };
+    private int stateStoreRetainedDepth;
+    // Attached Controllers in this Router's tree that take part in the options menu, in dispatch order. Rebuilt
+    // lazily after any Controller in the tree gains or loses participation.
+    private final List<Controller> optionsMenuParticipants = new ArrayList<>();
+    private boolean optionsMenuParticipantsDirty = true;
     boolean containerFullyAttached = false;
     boolean isActivityStopped = false;
 
@@ -136,6 +185,7 @@ public abstract class Router {
             trackDestroyingController(backstack.pop());
             performControllerChange(backstack.peek(), topTransaction, false);
         } else {
+            RouterTransaction controllerTransaction = backstack.transactionFor(controller);
             RouterTransaction removedTransaction = null;
             RouterTransaction nextTransaction = null;
             Iterator<RouterTransaction> iterator = backstack.iterator();
@@ -144,7 +194,7 @@ public abstract class Router {
 
             while (iterator.hasNext()) {
                 RouterTransaction transaction = iterator.next();
-                if (transaction.controller() == controller) {
+                if (transaction == controllerTransaction) {
                     trackDestroyingController(transaction);
                     iterator.remove();
                     removedTransaction = transaction;
@@ -160,6 +210,7 @@ public abstract class Router {
                 performControllerChange(nextTransaction, removedTransaction, false);
             }
         }
+        onBackstackChanged();
 
         if (popsLastView) {
             return topTransaction != null;
@@ -181,6 +232,31 @@ public abstract class Router {
         RouterTransaction from = backstack.peek();
         pushToBackstack(transaction);
         performControllerChange(transaction, from, true);
+        onBackstackChanged();
+    }
+
+    /**
+     * Starts building the view of a {@link Controller} that is about to be pushed on a background thread, so the
+     * push doesn't have to inflate it. Only Controllers that implement {@link Controller#onPrewarmView(LayoutInflater, ViewGroup)}
+     * benefit. If the view isn't ready by the time the Controller is shown, it is inflated on the main thread as usual.
+     *
+     * @param transaction The transaction that will be pushed to this Router
+     */
+    @UiThread
+    public void prewarm(@NonNull RouterTransaction transaction) {
+        prewarm(transaction, null);
+    }
+
+    /**
+     * Same as {@link #prewarm(RouterTransaction)}, using the passed executor instead of Conductor's background thread.
+     */
+    @UiThread
+    public void prewarm(@NonNull RouterTransaction transaction, @Nullable Executor executor) {
+        ThreadUtils.ensureMainThread();
+
+        if (container != null) {
+            transaction.controller().prewarm(container, executor);
+        }
     }
 
     /**
@@ -217,6 +293,7 @@ public abstract class Router {
             handler.setForceRemoveViewOnPush(true);
         }
         performControllerChange(transaction.pushChangeHandler(handler), topTransaction, true);
+        onBackstackChanged();
     }
 
     void destroy(boolean popViews) {
@@ -257,6 +334,10 @@ public abstract class Router {
         return this;
     }
 
+    final boolean getPopsLastView() {
+        return popsLastView;
+    }
+
     /**
      * Pops all {@link Controller}s until only the root is left
      *
@@ -314,15 +395,24 @@ public abstract class Router {
     public boolean popToTag(@NonNull String tag, @Nullable ControllerChangeHandler changeHandler) {
         ThreadUtils.ensureMainThread();
 
-        for (RouterTransaction transaction : backstack) {
-            if (tag.equals(transaction.tag())) {
-                popToTransaction(transaction, changeHandler);
-                return true;
-            }
+        RouterTransaction transaction = backstack.transactionWithTag(tag);
+        if (transaction != null) {
+            popToTransaction(transaction, changeHandler);
+            return true;
         }
         return false;
     }
 
+    /**
+     * Begins a batch of backstack operations that will be applied as a single change when committed. Use this
+     * instead of consecutive push and pop calls, so that Controllers which only exist in the middle of the
+     * sequence are never shown.
+     */
+    @NonNull
+    public BackstackTransaction beginTransaction() {
+        return new BackstackTransaction(this);
+    }
+
     /**
      * Sets the root Controller. If any {@link Controller}s are currently in the backstack, they will be removed.
      *
@@ -345,15 +435,42 @@ public abstract class Router {
      */
     @Nullable
     public Controller getControllerWithInstanceId(@NonNull String instanceId) {
-        for (RouterTransaction transaction : backstack) {
-            Controller controllerWithId = transaction.controller().findController(instanceId);
-            if (controllerWithId != null) {
-                return controllerWithId;
+        Controller registered = getRootRouter().instanceIdRegistry.get(instanceId);
+        if (registered != null && isHostedInTree(registered)) {
+            return registered;
+        }
+
+        RouterTransaction directTransaction = backstack.transactionWithInstanceId(instanceId);
+        if (directTransaction != null) {
+            return directTransaction.controller();
+        }
+
+        // Controllers restored into routers that were not yet connected to the root won't have been
+        // registered there, so fall back to searching the child routers. Controllers that haven't been
+        // created since being restored are only created if their saved state shows they hold the match.
+        for (int pass = 0; pass < 2; pass++) {
+            for (RouterTransaction transaction : backstack) {
+                if (pass == 0 ? !transaction.isMaterialized() : !savedStateHoldsInstanceId(transaction, instanceId)) {
+                    continue;
+                }
+
+                for (Router childRouter : transaction.controller().getChildRouters()) {
+                    Controller controllerWithId = childRouter.getControllerWithInstanceId(instanceId);
+                    if (controllerWithId != null) {
+                        registerInstanceId(controllerWithId);
+                        return controllerWithId;
+                    }
+                }
             }
         }
         return null;
     }
 
+    private static boolean savedStateHoldsInstanceId(@NonNull RouterTransaction transaction, @NonNull String instanceId) {
+        Bundle savedState = transaction.savedControllerState();
+        return savedState != null && Controller.savedChildRoutersHoldInstanceId(savedState, instanceId);
+    }
+
     /**
      * Returns the hosted Controller that was pushed with the given tag or {@code null} if no
      * such Controller exists in this Router.
@@ -362,12 +479,8 @@ public abstract class Router {
      */
     @Nullable
     public Controller getControllerWithTag(@NonNull String tag) {
-        for (RouterTransaction transaction : backstack) {
-            if (tag.equals(transaction.tag())) {
-                return transaction.controller();
-            }
-        }
-        return null;
+        RouterTransaction transaction = backstack.transactionWithTag(tag);
+        return transaction != null ? transaction.controller() : null;
     }
 
     /**
@@ -403,48 +516,36 @@ public abstract class Router {
     public void setBackstack(@NonNull List<RouterTransaction> newBackstack, @Nullable ControllerChangeHandler changeHandler) {
         ThreadUtils.ensureMainThread();
 
-        List<RouterTransaction> oldTransactions = getBackstack();
         List<RouterTransaction> oldVisibleTransactions = getVisibleTransactions(backstack.iterator(), false);
+        BackstackDiff diff = BackstackDiff.calculate(backstack, newBackstack);
 
         removeAllExceptVisibleAndUnowned();
         ensureOrderedTransactionIndices(newBackstack);
-        ensureNoDuplicateControllers(newBackstack);
 
         backstack.setBackstack(newBackstack);
+        // Controllers that stay attached may have been reordered
+        markOptionsMenuParticipantsDirty();
 
-        List<RouterTransaction> transactionsToBeRemoved = new ArrayList<>();
-        for (RouterTransaction oldTransaction : oldTransactions) {
-            boolean contains = false;
-            for (RouterTransaction newTransaction : newBackstack) {
-                if (oldTransaction.controller() == newTransaction.controller()) {
-                    contains = true;
-                    break;
-                }
-            }
-
-            if (!contains) {
-                // Inform the controller that it will be destroyed soon
-                oldTransaction.controller().isBeingDestroyed = true;
-                transactionsToBeRemoved.add(oldTransaction);
-            }
+        for (RouterTransaction removedTransaction : diff.removed) {
+            // Inform the controller that it will be destroyed soon
+            removedTransaction.controller().isBeingDestroyed = true;
         }
 
         // Ensure all new controllers have a valid router set
-        Iterator<RouterTransaction> backstackIterator = backstack.reverseIterator();
-        while (backstackIterator.hasNext()) {
-            RouterTransaction transaction = backstackIterator.next();
+        for (RouterTransaction transaction : newBackstack) {
             transaction.onAttachedToRouter();
-            setRouterOnController(transaction.controller());
+            setRouterOnTransaction(transaction);
         }
 
         if (newBackstack.size() > 0) {
-            List<RouterTransaction> reverseNewBackstack = new ArrayList<>(newBackstack);
-            Collections.reverse(reverseNewBackstack);
-            List<RouterTransaction> newVisibleTransactions = getVisibleTransactions(reverseNewBackstack.iterator(), false);
-            boolean newRootRequiresPush = !(newVisibleTransactions.size() > 0 && oldTransactions.contains(newVisibleTransactions.get(0)));
+            List<RouterTransaction> newVisibleTransactions = getVisibleTransactions(backstack.iterator(), false);
 
             boolean visibleTransactionsChanged = !backstacksAreEqual(newVisibleTransactions, oldVisibleTransactions);
             if (visibleTransactionsChanged) {
+                boolean newRootRequiresPush = !diff.wasPresent(newVisibleTransactions.get(0));
+                Set<Controller> oldVisibleControllers = controllersOf(oldVisibleTransactions);
+                Set<Controller> newVisibleControllers = controllersOf(newVisibleTransactions);
+
                 RouterTransaction oldRootTransaction = oldVisibleTransactions.size() > 0 ? oldVisibleTransactions.get(0) : null;
                 RouterTransaction newRootTransaction = newVisibleTransactions.get(0);
 
@@ -452,7 +553,7 @@ public abstract class Router {
                 if (oldRootTransaction == null || oldRootTransaction.controller() != newRootTransaction.controller()) {
                     // Ensure the existing root controller is fully pushed to the view hierarchy
                     if (oldRootTransaction != null) {
-                        ControllerChangeHandler.completeHandlerImmediately(oldRootTransaction.controller().getInstanceId());
+                        completeChangeImmediately(oldRootTransaction.controller());
                     }
                     performControllerChange(newRootTransaction, oldRootTransaction, newRootRequiresPush, changeHandler);
                 }
@@ -460,10 +561,10 @@ public abstract class Router {
                 // Remove all visible controllers that were previously on the backstack
                 for (int i = oldVisibleTransactions.size() - 1; i > 0; i--) {
                     RouterTransaction transaction = oldVisibleTransactions.get(i);
-                    if (!newVisibleTransactions.contains(transaction)) {
+                    if (!newVisibleControllers.contains(transaction.controller())) {
                         ControllerChangeHandler localHandler = changeHandler != null ? changeHandler.copy() : new SimpleSwapChangeHandler();
                         localHandler.setForceRemoveViewOnPush(true);
-                        ControllerChangeHandler.completeHandlerImmediately(transaction.controller().getInstanceId());
+                        completeChangeImmediately(transaction.controller());
 
                         if (transaction.controller().view != null) {
                             performControllerChange(null, transaction, newRootRequiresPush, localHandler);
@@ -474,7 +575,7 @@ public abstract class Router {
                 // Add any new controllers to the backstack
                 for (int i = 1; i < newVisibleTransactions.size(); i++) {
                     RouterTransaction transaction = newVisibleTransactions.get(i);
-                    if (!oldVisibleTransactions.contains(transaction)) {
+                    if (!oldVisibleControllers.contains(transaction.controller())) {
                         performControllerChange(transaction, newVisibleTransactions.get(i - 1), true, transaction.pushChangeHandler());
                     }
                 }
@@ -485,7 +586,7 @@ public abstract class Router {
             for (int i = oldVisibleTransactions.size() - 1; i >= 0; i--) {
                 RouterTransaction transaction = oldVisibleTransactions.get(i);
                 ControllerChangeHandler localHandler = changeHandler != null ? changeHandler.copy() : new SimpleSwapChangeHandler();
-                ControllerChangeHandler.completeHandlerImmediately(transaction.controller().getInstanceId());
+                completeChangeImmediately(transaction.controller());
                 performControllerChange(null, transaction, false, localHandler);
             }
         }
@@ -493,20 +594,24 @@ public abstract class Router {
         // Destroy all old controllers that are no longer on the backstack. We don't do this when we initially
         // set the backstack to prevent the possibility that they'll be destroyed before the controller
         // change handler runs.
-        for (RouterTransaction removedTransaction : transactionsToBeRemoved) {
-
+        if (!diff.removed.isEmpty()) {
             // Still need to ensure the controller isn't queued up to be removed later on.
-            boolean willBeRemoved = false;
+            Set<Controller> pendingRemovals = Collections.newSetFromMap(new IdentityHashMap<Controller, Boolean>());
             for (ChangeTransaction pendingTransaction : pendingControllerChanges) {
-                if (pendingTransaction.from == removedTransaction.controller()) {
-                    willBeRemoved = true;
+                if (pendingTransaction.from != null) {
+                    pendingRemovals.add(pendingTransaction.from);
                 }
             }
 
-            if (!willBeRemoved) {
-                removedTransaction.controller().destroy();
+            for (RouterTransaction removedTransaction : diff.removed) {
+                if (!pendingRemovals.contains(removedTransaction.controller())) {
+                    removedTransaction.controller().destroy();
+                }
             }
         }
+
+        spillOffscreenViewState();
+        onBackstackChanged();
     }
 
     /**
@@ -549,10 +654,10 @@ public abstract class Router {
         while (backstackIterator.hasNext()) {
             RouterTransaction transaction = backstackIterator.next();
 
-            if (transaction.controller().getNeedsAttach()) {
+            if (transaction.needsAttach()) {
                 performControllerChange(transaction, null, true, new SimpleSwapChangeHandler(false));
             } else {
-                setRouterOnController(transaction.controller());
+                setRouterOnTransaction(transaction);
             }
         }
     }
@@ -567,52 +672,147 @@ public abstract class Router {
     public final void onActivityStarted(@NonNull Activity activity) {
         isActivityStopped = false;
 
-        for (RouterTransaction transaction : backstack) {
-            transaction.controller().activityStarted(activity);
+        Controller[] controllers = viewHoldingControllers;
+        for (int i = controllers.length - 1; i >= 0; i--) {
+            Controller controller = controllers[i];
+            if (!backstack.contains(controller)) {
+                // Still animating out after being popped
+                continue;
+            }
+            controller.activityStarted(activity);
 
-            for (Router childRouter : transaction.controller().getChildRouters()) {
-                childRouter.onActivityStarted(activity);
+            for (int j = 0; j < controller.childRouters.size(); j++) {
+                controller.childRouters.get(j).onActivityStarted(activity);
             }
         }
     }
 
     public final void onActivityResumed(@NonNull Activity activity) {
-        for (RouterTransaction transaction : backstack) {
-            transaction.controller().activityResumed(activity);
+        Controller[] controllers = viewHoldingControllers;
+        for (int i = controllers.length - 1; i >= 0; i--) {
+            Controller controller = controllers[i];
+            if (!backstack.contains(controller)) {
+                // Still animating out after being popped
+                continue;
+            }
+            controller.activityResumed(activity);
 
-            for (Router childRouter : transaction.controller().getChildRouters()) {
-                childRouter.onActivityResumed(activity);
+            for (int j = 0; j < controller.childRouters.size(); j++) {
+                controller.childRouters.get(j).onActivityResumed(activity);
             }
         }
     }
 
     public final void onActivityPaused(@NonNull Activity activity) {
-        for (RouterTransaction transaction : backstack) {
-            transaction.controller().activityPaused(activity);
+        Controller[] controllers = viewHoldingControllers;
+        for (int i = controllers.length - 1; i >= 0; i--) {
+            Controller controller = controllers[i];
+            if (!backstack.contains(controller)) {
+                // Still animating out after being popped
+                continue;
+            }
+            controller.activityPaused(activity);
 
-            for (Router childRouter : transaction.controller().getChildRouters()) {
-                childRouter.onActivityPaused(activity);
+            for (int j = 0; j < controller.childRouters.size(); j++) {
+                controller.childRouters.get(j).onActivityPaused(activity);
             }
         }
     }
 
     public final void onActivityStopped(@NonNull Activity activity) {
-        for (RouterTransaction transaction : backstack) {
-            transaction.controller().activityStopped(activity);
+        Controller[] controllers = viewHoldingControllers;
+        for (int i = controllers.length - 1; i >= 0; i--) {
+            Controller controller = controllers[i];
+            if (!backstack.contains(controller)) {
+                // Still animating out after being popped
+                continue;
+            }
+            controller.activityStopped(activity);
 
-            for (Router childRouter : transaction.controller().getChildRouters()) {
-                childRouter.onActivityStopped(activity);
+            for (int j = 0; j < controller.childRouters.size(); j++) {
+                controller.childRouters.get(j).onActivityStopped(activity);
             }
         }
 
         isActivityStopped = true;
     }
 
+    // Whether a Controller in this router's backstack is the descendant of one running its exit transition
+    boolean isDetachFrozen() {
+        return false;
+    }
+
+    final void deferFrozenDetach(@NonNull Controller controller) {
+        List<Controller> pending = getRootRouter().frozenDetaches;
+        if (!pending.contains(controller)) {
+            pending.add(controller);
+        }
+    }
+
+    // Detaches the deferred views that are no longer frozen. Those still under an exiting ancestor are deferred again.
+    final void releaseFrozenDetaches() {
+        List<Controller> pending = getRootRouter().frozenDetaches;
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Controller[] controllers = pending.toArray(new Controller[0]);
+        pending.clear();
+        for (Controller controller : controllers) {
+            controller.onDetachUnfrozen();
+        }
+    }
+
+    final void onControllerViewCreated(@NonNull Controller controller) {
+        getRootRouter().viewOwners.put(controller.view, controller);
+
+        for (Controller viewHoldingController : viewHoldingControllers) {
+            if (viewHoldingController == controller) {
+                return;
+            }
+        }
+
+        Controller[] controllers = Arrays.copyOf(viewHoldingControllers, viewHoldingControllers.length + 1);
+        controllers[viewHoldingControllers.length] = controller;
+        viewHoldingControllers = controllers;
+    }
+
+    final void onControllerViewDestroyed(@NonNull Controller controller, @NonNull View view) {
+        Map<View, Controller> owners = getRootRouter().viewOwners;
+        if (owners.get(view) == controller) {
+            owners.remove(view);
+        }
+
+        Controller[] current = viewHoldingControllers;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == controller) {
+                if (current.length == 1) {
+                    viewHoldingControllers = NO_CONTROLLERS;
+                } else {
+                    Controller[] controllers = new Controller[current.length - 1];
+                    System.arraycopy(current, 0, controllers, 0, i);
+                    System.arraycopy(current, i + 1, controllers, i, current.length - i - 1);
+                    viewHoldingControllers = controllers;
+                }
+                return;
+            }
+        }
+    }
+
     public void onActivityDestroyed(@NonNull Activity activity, boolean isConfigurationChange) {
+        DeferredDestroyer.getInstance().flushRouterTree(getRootRouter());
         prepareForContainerRemoval();
         changeListeners.clear();
 
         for (RouterTransaction transaction : backstack) {
+            if (!transaction.isMaterialized()) {
+                // Never created again once the Activity is gone, so its spilled view state has to be removed here
+                if (!isConfigurationChange) {
+                    discardSpilledViewState(transaction);
+                }
+                continue;
+            }
+
             transaction.controller().activityDestroyed(activity);
 
             for (Router childRouter : transaction.controller().getChildRouters()) {
@@ -629,6 +829,20 @@ public abstract class Router {
             }
         }
 
+        // Pooled views hold on to the destroyed Activity's context
+        if (viewPool != null) {
+            viewPool.clear();
+        }
+        inFlightChanges.clear();
+        viewOwners.clear();
+        frozenDetaches.clear();
+        if (hibernationHandler != null) {
+            hibernationHandler.removeCallbacks(hibernationRunnable);
+        }
+        if (!isConfigurationChange) {
+            setTracer(null);
+        }
+
         container = null;
     }
 
@@ -636,7 +850,11 @@ public abstract class Router {
         pendingControllerChanges.clear(); // rely on backstack based restoration in rebindIfNeeded
 
         for (RouterTransaction transaction : backstack) {
-            if (ControllerChangeHandler.completeHandlerImmediately(transaction.controller().getInstanceId())) {
+            if (!transaction.isMaterialized()) {
+                continue;
+            }
+
+            if (completeChangeImmediately(transaction.controller())) {
                 transaction.controller().setNeedsAttach(true);
             }
 
@@ -645,13 +863,477 @@ public abstract class Router {
     }
 
     public void saveInstanceState(@NonNull Bundle outState) {
+        spillOffscreenViewState();
+
         Bundle backstackState = new Bundle();
-        backstack.saveInstanceState(backstackState);
+        backstack.saveInstanceState(backstackState, shouldMeasureSavedState(), stateBudget);
 
         outState.putParcelable(KEY_BACKSTACK, backstackState);
         outState.putBoolean(KEY_POPS_LAST_VIEW, popsLastView);
     }
 
+    /**
+     * Sets a {@link StateBudget} that limits the size of the state written by {@link #saveInstanceState(Bundle)}.
+     * Setting a budget also enables measuring for this router and its descendants.
+     *
+     * @param stateBudget The budget, or {@code null} to remove it
+     */
+    public void setStateBudget(@Nullable StateBudget stateBudget) {
+        this.stateBudget = stateBudget;
+    }
+
+    @Nullable
+    public StateBudget getStateBudget() {
+        return stateBudget;
+    }
+
+    /**
+     * Sets whether or not this router and its descendants should record the marshalled size of each entry
+     * whenever their state is saved. This is useful for diagnosing oversized saved state, but has a cost
+     * proportional to the size of the state, so it is off by default.
+     */
+    public void setMeasuresSavedState(boolean measuresSavedState) {
+        this.measuresSavedState = measuresSavedState;
+    }
+
+    /**
+     * Returns the sizes recorded the last time this router saved its state, ordered from root to most
+     * recently pushed. Empty unless measuring was enabled when the state was saved.
+     */
+    @NonNull
+    public List<SavedStateSize> getSavedStateSizes() {
+        return backstack.getLastSavedSizes();
+    }
+
+    boolean shouldMeasureSavedState() {
+        return measuresSavedState || stateBudget != null;
+    }
+
+    /**
+     * Sets whether or not Controllers removed from this router and its descendants while they aren't visible are
+     * destroyed while the main thread is idle, a few at a time, rather than right away. Their lifecycle callbacks
+     * still run in the order the Controllers were removed, with child Controllers before their parents, and any that
+     * are still waiting are destroyed when the Activity is destroyed. Off by default.
+     */
+    public void setDefersDestruction(boolean defersDestruction) {
+        this.defersDestruction = defersDestruction;
+    }
+
+    boolean shouldDeferDestruction() {
+        return defersDestruction;
+    }
+
+    /**
+     * Sets a {@link ControllerStateStore} for the view state of off-screen Controllers in this router and its
+     * descendants. The view state of Controllers more than retainedDepth entries below the top of their backstack is
+     * moved into the store once their views have been released, and is no longer held in memory or written to this
+     * router's saved state. It is read back when the Controller's view is next created.
+     *
+     * @param stateStore    The store, or {@code null} to stop moving state into a store. Controllers whose state is
+     *                      already in a previous store still read it back from there.
+     * @param retainedDepth The number of entries at the top of each backstack that keep their view state in memory
+     */
+    public void setStateStore(@Nullable ControllerStateStore stateStore, int retainedDepth) {
+        if (retainedDepth < 0) {
+            throw new IllegalArgumentException("retainedDepth must not be negative.");
+        }
+
+        this.stateStore = stateStore;
+        stateStoreRetainedDepth = retainedDepth;
+
+        spillOffscreenViewState();
+    }
+
+    @Nullable
+    public ControllerStateStore getStateStore() {
+        return stateStore;
+    }
+
+    /**
+     * Returns the changes this router has started whose {@link ControllerChangeHandler}s have not completed yet,
+     * in the order they were started. Child routers track their own changes.
+     */
+    @NonNull
+    public List<InFlightChange> getInFlightChanges() {
+        return new ArrayList<>(inFlightChanges);
+    }
+
+    @NonNull
+    final InFlightChange trackInFlightChange(@NonNull Controller controller, @NonNull ControllerChangeHandler changeHandler, boolean isPush) {
+        removeInFlightChange(controller);
+
+        InFlightChange change = new InFlightChange(controller, changeHandler, isPush, SystemClock.uptimeMillis());
+        inFlightChanges.add(change);
+        return change;
+    }
+
+    final void untrackInFlightChange(@NonNull InFlightChange change) {
+        for (int i = 0; i < inFlightChanges.size(); i++) {
+            if (inFlightChanges.get(i) == change) {
+                inFlightChanges.remove(i);
+                // The Controller that was changed away from may only be hibernated once the change is done
+                scheduleHibernation();
+                return;
+            }
+        }
+    }
+
+    private boolean hasInFlightChange(@NonNull Controller controller) {
+        for (int i = 0; i < inFlightChanges.size(); i++) {
+            if (inFlightChanges.get(i).controller == controller) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Immediately completes the in-flight change to the passed controller, if there is one.
+     *
+     * @return Whether or not there was a change to complete
+     */
+    final boolean completeChangeImmediately(@NonNull Controller controller) {
+        InFlightChange change = removeInFlightChange(controller);
+        if (change != null) {
+            change.changeHandler.completeImmediately();
+            return true;
+        }
+        return false;
+    }
+
+    final void abortOrCompleteChange(@NonNull Controller toAbort, @Nullable Controller newController, @NonNull ControllerChangeHandler newChangeHandler) {
+        InFlightChange change = removeInFlightChange(toAbort);
+        if (change != null) {
+            if (change.isPush) {
+                change.changeHandler.onAbortPush(newChangeHandler, newController);
+            } else {
+                change.changeHandler.completeImmediately();
+            }
+        }
+    }
+
+    @Nullable
+    final InFlightChange removeInFlightChange(@NonNull Controller controller) {
+        for (int i = 0; i < inFlightChanges.size(); i++) {
+            if (inFlightChanges.get(i).controller == controller) {
+                return inFlightChanges.remove(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets a {@link ViewPool} that Controllers in this router and its descendants release their views into, and
+     * take pooled views from, as long as they opt in through {@link Controller#getViewPoolKey()}.
+     *
+     * @param viewPool The pool, or {@code null} to stop pooling views
+     */
+    public void setViewPool(@Nullable ViewPool viewPool) {
+        this.viewPool = viewPool;
+    }
+
+    @Nullable
+    public ViewPool getViewPool() {
+        return viewPool;
+    }
+
+    /**
+     * Returns the {@link ViewPool} that applies to this router, or {@code null} if there is none or this router has
+     * no container to pool views for.
+     */
+    @Nullable
+    ViewPool findViewPool() {
+        return container != null ? viewPool : null;
+    }
+
+    /**
+     * Sets a {@link ConductorTracer} that receives spans for this router and its descendants, instead of the one set
+     * through {@link Conductor#setTracer(ConductorTracer)}.
+     *
+     * @param tracer The tracer, or {@code null} to use the tracer of the parent router or the process-wide one
+     */
+    @UiThread
+    public void setTracer(@Nullable ConductorTracer tracer) {
+        ThreadUtils.ensureMainThread();
+
+        if (this.tracer == null && tracer != null) {
+            tracedRouterCount++;
+        } else if (this.tracer != null && tracer == null) {
+            tracedRouterCount--;
+        }
+        this.tracer = tracer;
+    }
+
+    @Nullable
+    public ConductorTracer getTracer() {
+        return tracer;
+    }
+
+    /**
+     * Returns the {@link ConductorTracer} that applies to this router, or {@code null} if tracing is disabled.
+     */
+    @Nullable
+    ConductorTracer findTracer() {
+        return tracer != null ? tracer : Conductor.getTracer();
+    }
+
+    /**
+     * Returns the {@link ConductorTracer} that applies to the given router, without walking the router tree while no
+     * router has a tracer of its own.
+     */
+    @Nullable
+    static ConductorTracer findTracer(@Nullable Router router) {
+        if (router == null || tracedRouterCount == 0) {
+            return Conductor.getTracer();
+        }
+        return router.findTracer();
+    }
+
+    /**
+     * Returns how deeply this router is nested, 0 for a router hosted by an Activity.
+     */
+    int getDepth() {
+        return 0;
+    }
+
+    /**
+     * Returns the router whose {@link ControllerStateStore} applies to this router, or {@code null} if there is none.
+     */
+    @Nullable
+    Router getStateStoreOwner() {
+        return stateStore != null ? this : null;
+    }
+
+    // Called by controllers in this router once they have saved their view state and released their view
+    final void onViewReleased(@NonNull Controller controller) {
+        Router owner = getStateStoreOwner();
+        if (owner == null) {
+            return;
+        }
+
+        Iterator<RouterTransaction> iterator = backstack.iterator();
+        for (int i = 0; i < owner.stateStoreRetainedDepth && iterator.hasNext(); i++) {
+            RouterTransaction transaction = iterator.next();
+            if (transaction.isMaterialized() && transaction.controller() == controller) {
+                return;
+            }
+        }
+
+        if (backstack.contains(controller)) {
+            //noinspection ConstantConditions
+            controller.spillViewState(owner.stateStore);
+        }
+    }
+
+    private void discardSpilledViewState(@NonNull RouterTransaction transaction) {
+        Router owner = getStateStoreOwner();
+        Bundle savedState = transaction.savedControllerState();
+        if (owner != null && savedState != null) {
+            //noinspection ConstantConditions
+            Controller.discardSavedSpilledViewState(savedState, owner.stateStore);
+        }
+    }
+
+    private void spillOffscreenViewState() {
+        Router owner = getStateStoreOwner();
+        if (owner == null) {
+            return;
+        }
+
+        Iterator<RouterTransaction> iterator = backstack.iterator();
+        for (int i = 0; iterator.hasNext(); i++) {
+            RouterTransaction transaction = iterator.next();
+            // Restored entries keep their view state in their saved state until their Controller is created
+            if (i >= owner.stateStoreRetainedDepth && transaction.isMaterialized()) {
+                //noinspection ConstantConditions
+                transaction.controller().spillViewState(owner.stateStore);
+            }
+        }
+    }
+
+    /**
+     * Sets a {@link HibernationPolicy} for this router and its descendants. Off-screen Controllers the policy selects
+     * are saved and destroyed, and recreated from their saved state when they are next needed. Hibernated Controllers
+     * are not returned by {@link #getControllers()}, and accessing the Controller of their transaction recreates it.
+     *
+     * @param hibernationPolicy The policy, or {@code null} to keep all Controllers in memory
+     */
+    @UiThread
+    public void setHibernationPolicy(@Nullable HibernationPolicy hibernationPolicy) {
+        ThreadUtils.ensureMainThread();
+
+        this.hibernationPolicy = hibernationPolicy;
+        scheduleHibernation();
+    }
+
+    @Nullable
+    public HibernationPolicy getHibernationPolicy() {
+        return hibernationPolicy;
+    }
+
+    /**
+     * Returns the {@link HibernationPolicy} that applies to this router, or {@code null} if there is none.
+     */
+    @Nullable
+    HibernationPolicy findHibernationPolicy() {
+        return hibernationPolicy;
+    }
+
+    // Hibernation runs once the current message is done, so Controllers that are only briefly off-screen while the
+    // backstack is being rearranged are left alone.
+    private void scheduleHibernation() {
+        if (findHibernationPolicy() == null) {
+            return;
+        }
+
+        Handler handler = getHibernationHandler();
+        handler.removeCallbacks(hibernationRunnable);
+        handler.post(hibernationRunnable);
+    }
+
+    @NonNull
+    private Handler getHibernationHandler() {
+        if (hibernationHandler == null) {
+            hibernationHandler = new Handler(Looper.getMainLooper());
+        }
+        return hibernationHandler;
+    }
+
+    private void hibernateOffscreenControllers() {
+        HibernationPolicy policy = findHibernationPolicy();
+        if (policy == null || getActivity() == null) {
+            return;
+        }
+
+        long now = SystemClock.uptimeMillis();
+        long nextHibernationTime = Long.MAX_VALUE;
+
+        Iterator<RouterTransaction> iterator = backstack.iterator();
+        for (int depth = 0; iterator.hasNext(); depth++) {
+            RouterTransaction transaction = iterator.next();
+            if (!transaction.isMaterialized()) {
+                continue;
+            }
+
+            Controller controller = transaction.controller();
+            if (!controller.canHibernate() || hasInFlightChange(controller)) {
+                transaction.setOffscreenSince(0);
+            } else {
+                if (transaction.getOffscreenSince() == 0) {
+                    transaction.setOffscreenSince(now);
+                }
+
+                long hibernationTime = policy.hibernationTime(depth, transaction.getOffscreenSince());
+                if (hibernationTime <= now) {
+                    hibernate(transaction);
+                    continue;
+                }
+                nextHibernationTime = Math.min(nextHibernationTime, hibernationTime);
+            }
+
+            for (Router childRouter : controller.getChildRouters()) {
+                childRouter.hibernateOffscreenControllers();
+            }
+        }
+
+        if (nextHibernationTime != Long.MAX_VALUE) {
+            Handler handler = getHibernationHandler();
+            handler.removeCallbacks(hibernationRunnable);
+            handler.postAtTime(hibernationRunnable, nextHibernationTime);
+        }
+    }
+
+    private void hibernate(@NonNull RouterTransaction transaction) {
+        Controller controller = transaction.controller();
+        backstack.onHibernating(transaction);
+        transaction.hibernate(controller.hibernate(), this);
+    }
+
+    /**
+     * Frees memory held by this router and its descendants to the extent the report's level calls for, and records
+     * what was freed in the report. Called for routers hosted by an Activity when the Activity is asked to trim its
+     * memory.
+     *
+     * @see TrimMemoryReport
+     */
+    @UiThread
+    public final void onTrimMemory(@NonNull TrimMemoryReport report) {
+        ThreadUtils.ensureMainThread();
+        trimMemory(report);
+    }
+
+    final void trimMemory(@NonNull TrimMemoryReport report) {
+        if (viewPool != null) {
+            report.recordReleasedPooledViews(viewPool.trimToSize(report.pooledViewsToKeep(viewPool.size())));
+        }
+
+        boolean hibernates = report.hibernatesOffscreenControllers() && findHibernationPolicy() != null && getActivity() != null;
+
+        Iterator<RouterTransaction> iterator = backstack.iterator();
+        for (int depth = 0; iterator.hasNext(); depth++) {
+            RouterTransaction transaction = iterator.next();
+            if (!transaction.isMaterialized()) {
+                continue;
+            }
+
+            Controller controller = transaction.controller();
+            if (hibernates && depth > 0 && controller.canHibernate() && !hasInFlightChange(controller)) {
+                hibernate(transaction);
+                report.recordHibernatedController();
+            } else {
+                controller.trimMemory(report);
+            }
+        }
+    }
+
+    /**
+     * Sets a {@link NavigationJournal} that records a {@link NavigationSnapshot} of this router after every change to
+     * its backstack or to the backstack of any of its descendants. Only applies to routers hosted by an Activity.
+     *
+     * @param navigationJournal The journal, or {@code null} to stop recording
+     */
+    @UiThread
+    public void setNavigationJournal(@Nullable NavigationJournal navigationJournal) {
+        ThreadUtils.ensureMainThread();
+
+        this.navigationJournal = navigationJournal;
+        onBackstackChanged();
+    }
+
+    @Nullable
+    public NavigationJournal getNavigationJournal() {
+        return navigationJournal;
+    }
+
+    // Called once a public backstack operation has been applied, including those on descendant routers
+    final void onBackstackChanged() {
+        scheduleHibernation();
+
+        Router rootRouter = getRootRouter();
+        if (rootRouter.navigationJournal != null) {
+            rootRouter.navigationJournal.onBackstackChanged(rootRouter);
+        }
+    }
+
+    /**
+     * Fills this router's empty backstack with the passed transactions, ordered from root to top, without performing
+     * any changes. Transactions that need attaching are attached by the next call to {@link #rebindIfNeeded()}, and
+     * Controllers that haven't been created yet are only created then.
+     */
+    final void restoreBackstack(@NonNull List<RouterTransaction> transactions, boolean popsLastView) {
+        this.popsLastView = popsLastView;
+
+        for (RouterTransaction transaction : transactions) {
+            transaction.onAttachedToRouter();
+            backstack.push(transaction);
+        }
+
+        for (RouterTransaction transaction : transactions) {
+            setRouterOnTransaction(transaction);
+        }
+        markOptionsMenuParticipantsDirty();
+    }
+
     public void restoreInstanceState(@NonNull Bundle savedInstanceState) {
         Bundle backstackBundle = savedInstanceState.getParcelable(KEY_BACKSTACK);
         //noinspection ConstantConditions
@@ -660,43 +1342,82 @@ public abstract class Router {
 
         Iterator<RouterTransaction> backstackIterator = backstack.reverseIterator();
         while (backstackIterator.hasNext()) {
-            setRouterOnController(backstackIterator.next().controller());
+            setRouterOnTransaction(backstackIterator.next());
         }
     }
 
-    public final void onCreateOptionsMenu(@NonNull Menu menu, @NonNull MenuInflater inflater) {
-        for (RouterTransaction transaction : backstack) {
-            transaction.controller().createOptionsMenu(menu, inflater);
+    // Called by a restored transaction in this router's backstack once it has created its Controller
+    void onTransactionMaterialized(@NonNull RouterTransaction transaction) {
+        backstack.onMaterialized(transaction);
+        setRouterOnController(transaction.controller());
+    }
 
-            for (Router childRouter : transaction.controller().getChildRouters()) {
-                childRouter.onCreateOptionsMenu(menu, inflater);
-            }
+    public final void onCreateOptionsMenu(@NonNull Menu menu, @NonNull MenuInflater inflater) {
+        List<Controller> participants = getOptionsMenuParticipants();
+        for (int i = 0; i < participants.size(); i++) {
+            participants.get(i).createOptionsMenu(menu, inflater);
         }
     }
 
     public final void onPrepareOptionsMenu(@NonNull Menu menu) {
-        for (RouterTransaction transaction : backstack) {
-            transaction.controller().prepareOptionsMenu(menu);
-
-            for (Router childRouter : transaction.controller().getChildRouters()) {
-                childRouter.onPrepareOptionsMenu(menu);
-            }
+        List<Controller> participants = getOptionsMenuParticipants();
+        for (int i = 0; i < participants.size(); i++) {
+            participants.get(i).prepareOptionsMenu(menu);
         }
     }
 
     public final boolean onOptionsItemSelected(@NonNull MenuItem item) {
-        for (RouterTransaction transaction : backstack) {
-            if (transaction.controller().optionsItemSelected(item)) {
+        List<Controller> participants = getOptionsMenuParticipants();
+        for (int i = 0; i < participants.size(); i++) {
+            if (participants.get(i).optionsItemSelected(item)) {
                 return true;
             }
+        }
+        return false;
+    }
 
-            for (Router childRouter : transaction.controller().getChildRouters()) {
-                if (childRouter.onOptionsItemSelected(item)) {
-                    return true;
+    /**
+     * Called when a Controller in this Router gains or loses participation in the options menu, either by being
+     * attached or detached, or through {@link Controller#setHasOptionsMenu(boolean)} or
+     * {@link Controller#setOptionsMenuHidden(boolean)}.
+     */
+    final void onOptionsMenuParticipationChanged() {
+        markOptionsMenuParticipantsDirty();
+        invalidateOptionsMenu();
+    }
+
+    void markOptionsMenuParticipantsDirty() {
+        optionsMenuParticipantsDirty = true;
+    }
+
+    @NonNull
+    private List<Controller> getOptionsMenuParticipants() {
+        if (optionsMenuParticipantsDirty) {
+            optionsMenuParticipantsDirty = false;
+            optionsMenuParticipants.clear();
+
+            // Same order the menu has always been dispatched in: top to root, each Controller before its children.
+            // Children can only be attached while their parent is, so detached subtrees are skipped entirely.
+            for (RouterTransaction transaction : backstack) {
+                if (!transaction.isMaterialized()) {
+                    continue;
+                }
+
+                Controller controller = transaction.controller();
+                if (!controller.isAttached()) {
+                    continue;
+                }
+
+                if (controller.participatesInOptionsMenu()) {
+                    optionsMenuParticipants.add(controller);
+                }
+
+                for (Router childRouter : controller.getChildRouters()) {
+                    optionsMenuParticipants.addAll(childRouter.getOptionsMenuParticipants());
                 }
             }
         }
-        return false;
+        return optionsMenuParticipants;
     }
 
     private void popToTransaction(@NonNull RouterTransaction transaction, @Nullable ControllerChangeHandler changeHandler) {
@@ -741,17 +1462,25 @@ public abstract class Router {
 
     void onContextAvailable() {
         for (RouterTransaction transaction : backstack) {
-            transaction.controller().onContextAvailable();
+            if (transaction.isMaterialized()) {
+                transaction.controller().onContextAvailable();
+            }
         }
     }
 
+    /**
+     * Returns the Controllers in this router's backstack that have been created, ordered from root to top.
+     */
     @NonNull
     final List<Controller> getControllers() {
         List<Controller> controllers = new ArrayList<>(backstack.size());
 
         Iterator<RouterTransaction> backstackIterator = backstack.reverseIterator();
         while (backstackIterator.hasNext()) {
-            controllers.add(backstackIterator.next().controller());
+            RouterTransaction transaction = backstackIterator.next();
+            if (transaction.isMaterialized()) {
+                controllers.add(transaction.controller());
+            }
         }
 
         return controllers;
@@ -760,7 +1489,7 @@ public abstract class Router {
     @Nullable
     public final Boolean handleRequestedPermission(@NonNull String permission) {
         for (RouterTransaction transaction : backstack) {
-            if (transaction.controller().didRequestPermission(permission)) {
+            if (transaction.isMaterialized() && transaction.controller().didRequestPermission(permission)) {
                 return transaction.controller().shouldShowRequestPermissionRationale(permission);
             }
         }
@@ -820,7 +1549,7 @@ public abstract class Router {
             throw new IllegalStateException("Trying to push a controller that has already been destroyed. (" + to.getClass().getSimpleName() + ")");
         }
 
-        final ChangeTransaction transaction = new ChangeTransaction(to, from, isPush, container, changeHandler, new ArrayList<>(changeListeners));
+        final ChangeTransaction transaction = new ChangeTransaction(this, to, from, isPush, container, changeHandler, new ArrayList<>(changeListeners));
 
         if (pendingControllerChanges.size() > 0) {
             // If we already have changes queued up (awaiting full container attach), queue this one up as well so they don't happen
@@ -862,6 +1591,22 @@ public abstract class Router {
             throw new IllegalStateException("Trying to push a controller that already exists on the backstack.");
         }
         backstack.push(entry);
+
+        // Pushing moves exactly one entry past the retained depth
+        Router owner = getStateStoreOwner();
+        if (owner != null) {
+            Iterator<RouterTransaction> iterator = backstack.iterator();
+            for (int i = 0; iterator.hasNext(); i++) {
+                RouterTransaction transaction = iterator.next();
+                if (i == owner.stateStoreRetainedDepth) {
+                    if (transaction.isMaterialized()) {
+                        //noinspection ConstantConditions
+                        transaction.controller().spillViewState(owner.stateStore);
+                    }
+                    break;
+                }
+            }
+        }
     }
 
     private void trackDestroyingController(@NonNull RouterTransaction transaction) {
@@ -883,25 +1628,15 @@ public abstract class Router {
         }
     }
 
+    // Removes everything from the container except the views of Controllers that are still on a backstack, which
+    // includes this router's visible Controllers and those of other routers sharing the container.
     private void removeAllExceptVisibleAndUnowned() {
-        List<View> views = new ArrayList<>();
+        Map<View, Controller> owners = getRootRouter().viewOwners;
 
-        for (RouterTransaction transaction : getVisibleTransactions(backstack.iterator(), false)) {
-            if (transaction.controller().getView() != null) {
-                views.add(transaction.controller().getView());
-            }
-        }
-
-        for (Router router : getSiblingRouters()) {
-            if (router.container == container) {
-                addRouterViewsToList(router, views);
-            }
-        }
-
-        final int childCount = container.getChildCount();
-        for (int i = childCount - 1; i >= 0; i--) {
+        for (int i = container.getChildCount() - 1; i >= 0; i--) {
             final View child = container.getChildAt(i);
-            if (!views.contains(child)) {
+            Controller owner = owners.get(child);
+            if (owner == null || owner.router == null || !owner.router.backstack.contains(owner)) {
                 container.removeView(child);
             }
         }
@@ -923,29 +1658,6 @@ public abstract class Router {
         }
     }
 
-    private void ensureNoDuplicateControllers(List<RouterTransaction> backstack) {
-        for (int i = 0; i < backstack.size(); i++) {
-            Controller controller = backstack.get(i).controller();
-            for (int j = i + 1; j < backstack.size(); j++) {
-                if (backstack.get(j).controller() == controller) {
-                    throw new IllegalStateException("Trying to push the same controller to the backstack more than once.");
-                }
-            }
-        }
-    }
-
-    private void addRouterViewsToList(@NonNull Router router, @NonNull List<View> list) {
-        for (Controller controller : router.getControllers()) {
-            if (controller.getView() != null) {
-                list.add(controller.getView());
-            }
-
-            for (Router child : controller.getChildRouters()) {
-                addRouterViewsToList(child, list);
-            }
-        }
-    }
-
     private List<RouterTransaction> getVisibleTransactions(@NonNull Iterator<RouterTransaction> backstackIterator, boolean onlyTop) {
         boolean visible = true;
 
@@ -968,6 +1680,15 @@ public abstract class Router {
         return transactions;
     }
 
+    @NonNull
+    private static Set<Controller> controllersOf(@NonNull List<RouterTransaction> transactions) {
+        Set<Controller> controllers = Collections.newSetFromMap(new IdentityHashMap<Controller, Boolean>(transactions.size()));
+        for (int i = 0; i < transactions.size(); i++) {
+            controllers.add(transactions.get(i).controller());
+        }
+        return controllers;
+    }
+
     private boolean backstacksAreEqual(List<RouterTransaction> lhs, List<RouterTransaction> rhs) {
         if (lhs.size() != rhs.size()) {
             return false;
@@ -984,9 +1705,46 @@ public abstract class Router {
 
     void setRouterOnController(@NonNull Controller controller) {
         controller.setRouter(this);
+        registerInstanceId(controller);
         controller.onContextAvailable();
     }
 
+    // Restored transactions create their Controller on first access and have their router set then
+    private void setRouterOnTransaction(@NonNull RouterTransaction transaction) {
+        if (transaction.isMaterialized()) {
+            setRouterOnController(transaction.controller());
+        } else {
+            transaction.setRestoringRouter(this);
+        }
+    }
+
+    final void registerInstanceId(@NonNull Controller controller) {
+        getRootRouter().instanceIdRegistry.put(controller.getInstanceId(), controller);
+    }
+
+    final void unregisterInstanceId(@NonNull Controller controller) {
+        Map<String, Controller> registry = getRootRouter().instanceIdRegistry;
+        if (registry.get(controller.getInstanceId()) == controller) {
+            registry.remove(controller.getInstanceId());
+        }
+    }
+
+    // Returns whether the passed controller is currently on this router's backstack or on the backstack
+    // of one of its descendant routers. Walks up the parent chain, so this is O(depth).
+    private boolean isHostedInTree(@NonNull Controller controller) {
+        Controller current = controller;
+        while (current != null) {
+            Router currentRouter = current.getRouter();
+            if (currentRouter == null || !currentRouter.backstack.contains(current)) {
+                return false;
+            } else if (currentRouter == this) {
+                return true;
+            }
+            current = current.getParentController();
+        }
+        return false;
+    }
+
     abstract void invalidateOptionsMenu();
     abstract void startActivity(@NonNull Intent intent);
     abstract void startActivityForResult(@NonNull String instanceId, @NonNull Intent intent, int requestCode);
@@ -997,8 +1755,32 @@ public abstract class Router {
     abstract void unregisterForActivityResults(@NonNull String instanceId);
     abstract void requestPermissions(@NonNull String instanceId, @NonNull String[] permissions, int requestCode);
     abstract boolean hasHost();
-    @NonNull abstract List<Router> getSiblingRouters();
     @NonNull abstract Router getRootRouter();
+
+    /**
+     * Returns the saved states of the transactions in a router's saved instance state, ordered from top to root,
+     * without restoring them.
+     */
+    @NonNull
+    static List<Bundle> savedTransactionStates(@NonNull Bundle savedRouterState) {
+        Bundle backstackState = savedRouterState.getParcelable(KEY_BACKSTACK);
+        return backstackState != null ? Backstack.savedEntries(backstackState) : Collections.<Bundle>emptyList();
+    }
+
+    /**
+     * Builds the saved instance state of a router from the saved states of its transactions, ordered from top to root.
+     */
+    @NonNull
+    static Bundle newSavedState(@NonNull ArrayList<Bundle> transactionStates, boolean popsLastView) {
+        Bundle outState = new Bundle();
+        outState.putParcelable(KEY_BACKSTACK, Backstack.newSavedState(transactionStates));
+        outState.putBoolean(KEY_POPS_LAST_VIEW, popsLastView);
+        return outState;
+    }
+
+    static boolean savedPopsLastView(@NonNull Bundle savedRouterState) {
+        return savedRouterState.getBoolean(KEY_POPS_LAST_VIEW);
+    }
     @NonNull abstract TransactionIndexer getTransactionIndexer();
 
 }
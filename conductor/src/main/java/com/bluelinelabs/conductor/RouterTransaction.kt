@@ -18,8 +18,9 @@ private const val KEY_ATTACHED_TO_ROUTER = "RouterTransaction.attachedToRouter"
  */
 class RouterTransaction
 private constructor(
-  @get:JvmName("controller")
-  val controller: Controller,
+  private var materializedController: Controller?,
+  // The saved state of a restored Controller that hasn't been created yet
+  private var savedControllerState: Bundle?,
   private var tag: String? = null,
   private var pushControllerChangeHandler: ControllerChangeHandler? = null,
   private var popControllerChangeHandler: ControllerChangeHandler? = null,
@@ -28,10 +29,50 @@ private constructor(
   var transactionIndex: Int = INVALID_INDEX
 ) {
 
+  private var savedOverriddenPushHandler: ControllerChangeHandler? = null
+  private var savedOverriddenPopHandler: ControllerChangeHandler? = null
+
+  /**
+   * The router that is told once a restored Controller has been created, so it can take it over.
+   */
+  @RestrictTo(LIBRARY)
+  var restoringRouter: Router? = null
+
+  /**
+   * The uptime at which this entry's [Controller] was found off-screen by its router's [HibernationPolicy], or 0.
+   */
+  @RestrictTo(LIBRARY)
+  var offscreenSince: Long = 0
+
+  /**
+   * The args [Bundle] that [snapshotArgs] were marshalled from by [NavigationSnapshot]. Args are set when a
+   * [Controller] is constructed, so they are only marshalled again once this entry holds a different Bundle.
+   */
+  @RestrictTo(LIBRARY)
+  var snapshotArgsSource: Bundle? = null
+
+  @RestrictTo(LIBRARY)
+  var snapshotArgs: ByteArray? = null
+
+  /**
+   * The [Controller] of this transaction. Transactions restored from saved state only create their Controller the
+   * first time this is accessed.
+   */
+  @get:JvmName("controller")
+  val controller: Controller
+    get() = materializedController ?: materialize()
+
+  /**
+   * Whether or not the [Controller] of this transaction has been created.
+   */
+  @get:RestrictTo(LIBRARY)
+  val isMaterialized: Boolean
+    get() = materializedController != null
 
   @RestrictTo(LIBRARY)
   internal constructor(bundle: Bundle) : this(
-    controller = Controller.newInstance(bundle.getBundle(KEY_VIEW_CONTROLLER_BUNDLE)!!),
+    materializedController = null,
+    savedControllerState = bundle.getBundle(KEY_VIEW_CONTROLLER_BUNDLE)!!,
     pushControllerChangeHandler = ControllerChangeHandler.fromBundle(
       bundle.getBundle(
         KEY_PUSH_TRANSITION
@@ -45,7 +86,75 @@ private constructor(
     tag = bundle.getString(KEY_TAG),
     transactionIndex = bundle.getInt(KEY_INDEX),
     attachedToRouter = bundle.getBoolean(KEY_ATTACHED_TO_ROUTER)
-  )
+  ) {
+    savedControllerState?.let {
+      savedOverriddenPushHandler = Controller.savedOverriddenPushHandler(it)
+      savedOverriddenPopHandler = Controller.savedOverriddenPopHandler(it)
+    }
+  }
+
+  private fun materialize(): Controller {
+    val controller = Controller.newInstance(savedControllerState!!)
+    materializedController = controller
+    savedControllerState = null
+    savedOverriddenPushHandler = null
+    savedOverriddenPopHandler = null
+
+    restoringRouter?.let {
+      restoringRouter = null
+      it.onTransactionMaterialized(this)
+    }
+    return controller
+  }
+
+  /**
+   * Drops this transaction's [Controller] in favor of its saved state. The Controller is recreated from that state
+   * the next time it is accessed, and the router is told so it can take it over.
+   */
+  @RestrictTo(LIBRARY)
+  fun hibernate(savedState: Bundle, router: Router) {
+    materializedController = null
+    savedControllerState = savedState
+    savedOverriddenPushHandler = Controller.savedOverriddenPushHandler(savedState)
+    savedOverriddenPopHandler = Controller.savedOverriddenPopHandler(savedState)
+    restoringRouter = router
+    offscreenSince = 0
+  }
+
+  /**
+   * Returns the instance ID of this transaction's [Controller] without creating it.
+   */
+  @RestrictTo(LIBRARY)
+  fun instanceId(): String = materializedController?.instanceId ?: Controller.savedInstanceId(savedControllerState!!)
+
+  /**
+   * Returns whether or not this transaction's [Controller] needs to be attached, without creating it.
+   */
+  @RestrictTo(LIBRARY)
+  fun needsAttach(): Boolean = materializedController?.needsAttach ?: Controller.savedNeedsAttach(savedControllerState!!)
+
+  @RestrictTo(LIBRARY)
+  fun clearNeedsAttach() {
+    val controller = materializedController
+    if (controller != null) {
+      controller.setNeedsAttach(false)
+    } else {
+      Controller.clearSavedNeedsAttach(savedControllerState!!)
+    }
+  }
+
+  /**
+   * Returns the key that identifies this entry when diffing backstacks: its [Controller] once created, or the
+   * transaction itself before that, as no other transaction can hold a Controller that doesn't exist yet.
+   */
+  @RestrictTo(LIBRARY)
+  fun diffKey(): Any = materializedController ?: this
+
+  /**
+   * Returns the saved state of this transaction's [Controller] if it hasn't been created yet.
+   */
+  @RestrictTo(LIBRARY)
+  fun savedControllerState(): Bundle? = savedControllerState
 
   fun onAttachedToRouter() {
     attachedToRouter = true
@@ -63,7 +172,8 @@ private constructor(
   }
 
   fun pushChangeHandler(): ControllerChangeHandler? {
-    return controller.overriddenPushHandler ?: pushControllerChangeHandler
+    val overriddenHandler = materializedController?.overriddenPushHandler ?: savedOverriddenPushHandler
+    return overriddenHandler ?: pushControllerChangeHandler
   }
 
   fun pushChangeHandler(handler: ControllerChangeHandler?): RouterTransaction {
@@ -76,7 +186,8 @@ private constructor(
   }
 
   fun popChangeHandler(): ControllerChangeHandler? {
-    return controller.overriddenPopHandler ?: popControllerChangeHandler
+    val overriddenHandler = materializedController?.overriddenPopHandler ?: savedOverriddenPopHandler
+    return overriddenHandler ?: popControllerChangeHandler
   }
 
   fun popChangeHandler(handler: ControllerChangeHandler?): RouterTransaction {
@@ -98,7 +209,8 @@ private constructor(
    * Used to serialize this transaction into a Bundle
    */
   fun saveInstanceState(): Bundle = Bundle().apply {
-    putBundle(KEY_VIEW_CONTROLLER_BUNDLE, controller.saveInstanceState())
+    // Copied, as the saved state may be reduced in place by a StateBudget
+    putBundle(KEY_VIEW_CONTROLLER_BUNDLE, materializedController?.saveInstanceState() ?: Bundle(savedControllerState))
     pushControllerChangeHandler?.let { putBundle(KEY_PUSH_TRANSITION, it.toBundle()) }
     popControllerChangeHandler?.let { putBundle(KEY_POP_TRANSITION, it.toBundle()) }
     putString(KEY_TAG, tag)
@@ -109,7 +221,7 @@ private constructor(
   companion object {
 
     @JvmStatic
-    fun with(controller: Controller): RouterTransaction = RouterTransaction(controller)
+    fun with(controller: Controller): RouterTransaction = RouterTransaction(controller, null)
   }
 }
 
@@ -121,3 +233,38 @@ fun Controller.asTransaction(
     .pushChangeHandler(pushChangeHandler)
     .popChangeHandler(popChangeHandler)
 }
+
+internal fun savedControllerState(savedTransactionState: Bundle): Bundle? {
+  return savedTransactionState.getBundle(KEY_VIEW_CONTROLLER_BUNDLE)
+}
+
+internal fun newSavedTransactionState(
+  controllerState: Bundle,
+  pushHandlerState: Bundle?,
+  popHandlerState: Bundle?,
+  tag: String?,
+  transactionIndex: Int
+): Bundle = Bundle().apply {
+  putBundle(KEY_VIEW_CONTROLLER_BUNDLE, controllerState)
+  pushHandlerState?.let { putBundle(KEY_PUSH_TRANSITION, it) }
+  popHandlerState?.let { putBundle(KEY_POP_TRANSITION, it) }
+  putString(KEY_TAG, tag)
+  putInt(KEY_INDEX, transactionIndex)
+  putBoolean(KEY_ATTACHED_TO_ROUTER, true)
+}
+
+internal fun savedTag(savedTransactionState: Bundle): String? {
+  return savedTransactionState.getString(KEY_TAG)
+}
+
+internal fun savedTransactionIndex(savedTransactionState: Bundle): Int {
+  return savedTransactionState.getInt(KEY_INDEX)
+}
+
+internal fun savedPushHandlerState(savedTransactionState: Bundle): Bundle? {
+  return savedTransactionState.getBundle(KEY_PUSH_TRANSITION)
+}
+
+internal fun savedPopHandlerState(savedTransactionState: Bundle): Bundle? {
+  return savedTransactionState.getBundle(KEY_POP_TRANSITION)
+}
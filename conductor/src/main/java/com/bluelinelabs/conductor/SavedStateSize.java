@@ -0,0 +1,118 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.os.Parcel;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The measured, marshalled size of a single backstack entry's saved state, as recorded the last time its
+ * {@link Router} saved its instance state. Sizes are only recorded for routers that have a {@link StateBudget}
+ * or have had measuring enabled through {@link Router#setMeasuresSavedState(boolean)}.
+ */
+public final class SavedStateSize {
+
+    @NonNull private final String controllerClassName;
+    @NonNull private final String instanceId;
+    @Nullable private final String tag;
+    private final int totalBytes;
+    private final int viewStateBytes;
+    @NonNull private final List<SavedStateSize> children;
+
+    SavedStateSize(@NonNull String controllerClassName, @NonNull String instanceId, @Nullable String tag, int totalBytes, int viewStateBytes, @NonNull List<SavedStateSize> children) {
+        this.controllerClassName = controllerClassName;
+        this.instanceId = instanceId;
+        this.tag = tag;
+        this.totalBytes = totalBytes;
+        this.viewStateBytes = viewStateBytes;
+        this.children = Collections.unmodifiableList(children);
+    }
+
+    /**
+     * Returns the fully qualified class name of the measured Controller.
+     */
+    @NonNull
+    public String getControllerClassName() {
+        return controllerClassName;
+    }
+
+    /**
+     * Returns the instance ID of the measured Controller.
+     */
+    @NonNull
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * Returns the tag of the measured entry's {@link RouterTransaction}, if any.
+     */
+    @Nullable
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Returns the size in bytes of the whole entry, including the state of all of its child routers.
+     */
+    public int getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Returns the size in bytes of the Controller's own saved view state, or 0 if none was saved.
+     */
+    public int getViewStateBytes() {
+        return viewStateBytes;
+    }
+
+    /**
+     * Returns the sizes of the entries of all of this Controller's child routers.
+     */
+    @NonNull
+    public List<SavedStateSize> getChildren() {
+        return children;
+    }
+
+    @Override @NonNull
+    public String toString() {
+        return controllerClassName + "(" + instanceId + "): " + totalBytes + " bytes, " + viewStateBytes + " in view state, " + children.size() + " children";
+    }
+
+    @NonNull
+    static SavedStateSize measure(@NonNull RouterTransaction entry, @NonNull Bundle entryState) {
+        Bundle controllerState = RouterTransactionKt.savedControllerState(entryState);
+        Bundle viewState = controllerState != null ? Controller.savedViewState(controllerState) : null;
+
+        // Restored entries whose Controllers haven't been created don't have live child routers to measure
+        List<SavedStateSize> children = new ArrayList<>();
+        String controllerClassName;
+        if (entry.isMaterialized()) {
+            Controller controller = entry.controller();
+            controllerClassName = controller.getClass().getName();
+            for (Router childRouter : controller.getChildRouters()) {
+                children.addAll(childRouter.backstack.getLastSavedSizes());
+            }
+        } else {
+            //noinspection ConstantConditions
+            controllerClassName = Controller.savedClassName(entry.savedControllerState());
+        }
+
+        return new SavedStateSize(controllerClassName, entry.instanceId(), entry.tag(), sizeOf(entryState), viewState != null ? sizeOf(viewState) : 0, children);
+    }
+
+    static int sizeOf(@NonNull Bundle bundle) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(bundle);
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * Limits the size of the state a {@link Router} writes in {@link Router#saveInstanceState(Bundle)}. When the
+ * marshalled size of the backstack exceeds the budget, the {@link Policy} is applied to off-screen entries,
+ * starting at the root, until the state fits or no entries are left to reduce. The top entries, up to
+ * the retained depth, are never reduced.
+ */
+public final class StateBudget {
+
+    /**
+     * Drops the saved view state of an entry. The Controller will recreate its view without saved state if it is
+     * restored after process death. View state held in memory is not affected.
+     */
+    public static final Policy DROP_VIEW_STATE = new Policy() {
+        @Override
+        public void reduce(@Nullable Controller controller, @NonNull Bundle savedState) {
+            Controller.removeSavedViewState(savedState);
+        }
+    };
+
+    private final int maxBytes;
+    private final int retainedDepth;
+    @NonNull private final Policy policy;
+
+    /**
+     * Creates a budget that drops view state of all entries below the top once maxBytes is exceeded.
+     *
+     * @param maxBytes The maximum number of bytes the router's saved backstack should occupy
+     */
+    public StateBudget(int maxBytes) {
+        this(maxBytes, 1, DROP_VIEW_STATE);
+    }
+
+    /**
+     * @param maxBytes      The maximum number of bytes the router's saved backstack should occupy
+     * @param retainedDepth The number of entries at the top of the backstack that are never reduced
+     * @param policy        The policy used to reduce the saved state of an entry
+     */
+    public StateBudget(int maxBytes, int retainedDepth, @NonNull Policy policy) {
+        if (maxBytes < 0 || retainedDepth < 0) {
+            throw new IllegalArgumentException("maxBytes and retainedDepth must not be negative.");
+        }
+
+        this.maxBytes = maxBytes;
+        this.retainedDepth = retainedDepth;
+        this.policy = policy;
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    public int getRetainedDepth() {
+        return retainedDepth;
+    }
+
+    @NonNull
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    // All lists are ordered from top to root, matching Backstack iteration order.
+    void apply(@NonNull List<RouterTransaction> entries, @NonNull List<Bundle> entryStates, @NonNull List<SavedStateSize> sizes) {
+        int totalBytes = 0;
+        for (int i = 0; i < sizes.size(); i++) {
+            totalBytes += sizes.get(i).getTotalBytes();
+        }
+
+        for (int i = entries.size() - 1; i >= retainedDepth && totalBytes > maxBytes; i--) {
+            RouterTransaction entry = entries.get(i);
+            if (entry.isMaterialized() && entry.controller().isAttached()) {
+                continue;
+            }
+
+            Bundle controllerState = RouterTransactionKt.savedControllerState(entryStates.get(i));
+            if (controllerState == null) {
+                continue;
+            }
+
+            policy.reduce(entry.isMaterialized() ? entry.controller() : null, controllerState);
+
+            SavedStateSize reducedSize = SavedStateSize.measure(entry, entryStates.get(i));
+            totalBytes -= sizes.get(i).getTotalBytes() - reducedSize.getTotalBytes();
+            sizes.set(i, reducedSize);
+        }
+    }
+
+    /**
+     * Reduces the saved state of a single off-screen backstack entry.
+     */
+    public interface Policy {
+        /**
+         * @param controller The Controller whose state is being reduced, or {@code null} if it hasn't been created, as
+         *                   with entries that were restored lazily or hibernated. It is not created for this call.
+         * @param savedState The Controller's saved state, which may be modified in place
+         */
+        void reduce(@Nullable Controller controller, @NonNull Bundle savedState);
+    }
+}
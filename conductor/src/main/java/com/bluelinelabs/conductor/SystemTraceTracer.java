@@ -0,0 +1,41 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Build;
+import android.os.Trace;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A {@link ConductorTracer} that emits {@link Trace} sections, so Conductor's work shows up in systrace and
+ * Perfetto captures. Sections are named after the operation and the Controller's class, for example
+ * "Conductor:attach HomeController". Does nothing on API levels before 18, where tracing isn't available.
+ */
+public final class SystemTraceTracer implements ConductorTracer {
+
+    private static final int MAX_SECTION_NAME_LENGTH = 127;
+
+    @Override
+    public long beginSpan(@NonNull Span span, @NonNull Controller controller, int routerDepth, @Nullable ControllerChangeType changeType) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            StringBuilder sectionName = new StringBuilder("Conductor:").append(span.sectionName);
+            if (changeType != null) {
+                sectionName.append(' ').append(changeType.name());
+            }
+            sectionName.append(' ').append(controller.getClass().getSimpleName());
+            if (sectionName.length() > MAX_SECTION_NAME_LENGTH) {
+                sectionName.setLength(MAX_SECTION_NAME_LENGTH);
+            }
+            Trace.beginSection(sectionName.toString());
+        }
+        return 0;
+    }
+
+    @Override
+    public void endSpan(@NonNull Span span, @NonNull Controller controller, int routerDepth, @Nullable ControllerChangeType changeType, long token) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+    }
+
+}
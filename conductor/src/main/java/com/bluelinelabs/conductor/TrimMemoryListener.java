@@ -0,0 +1,18 @@
+package com.bluelinelabs.conductor;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Receives a {@link TrimMemoryReport} each time Conductor has freed memory for an Activity in response to
+ * {@code onTrimMemory} or {@code onLowMemory}, for example to correlate with out of memory telemetry.
+ *
+ * @see Conductor#setTrimMemoryListener(TrimMemoryListener)
+ */
+public interface TrimMemoryListener {
+
+    /**
+     * Called on the main thread once all of the Activity's routers have been trimmed.
+     */
+    void onMemoryTrimmed(@NonNull TrimMemoryReport report);
+
+}
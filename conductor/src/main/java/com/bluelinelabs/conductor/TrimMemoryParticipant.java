@@ -0,0 +1,20 @@
+package com.bluelinelabs.conductor;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Frees memory held on behalf of a {@link Controller}, such as the saved states of a pager adapter's pages, when
+ * the system is low on memory. Registered through {@link Controller#addTrimMemoryParticipant(TrimMemoryParticipant)}.
+ * <p>
+ * Called on the main thread.
+ */
+public interface TrimMemoryParticipant {
+
+    /**
+     * Frees what can be freed at the report's level, and records it in the report.
+     *
+     * @see TrimMemoryReport#savedStatesToKeep(int)
+     */
+    void onTrimMemory(@NonNull TrimMemoryReport report);
+
+}
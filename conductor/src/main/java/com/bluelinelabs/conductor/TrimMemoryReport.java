@@ -0,0 +1,142 @@
+package com.bluelinelabs.conductor;
+
+import android.content.ComponentCallbacks2;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Describes a single round of freeing memory in response to {@link ComponentCallbacks2#onTrimMemory(int)}, and
+ * records what was freed along the way. Which measures are taken depends on the trim level:
+ * <ul>
+ *     <li>At {@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_LOW}, {@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_CRITICAL}
+ *     and from {@link ComponentCallbacks2#TRIM_MEMORY_BACKGROUND} on, detached Controllers that retain their views
+ *     save their view state and release them without returning them to a {@link ViewPool}. Pools drop half of their
+ *     views at {@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_LOW} and {@link ComponentCallbacks2#TRIM_MEMORY_BACKGROUND},
+ *     and all of them at {@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_CRITICAL} and from
+ *     {@link ComponentCallbacks2#TRIM_MEMORY_MODERATE} on. {@link ComponentCallbacks2#TRIM_MEMORY_UI_HIDDEN}, which is sent whenever
+ *     the app moves to the background, doesn't release any views.</li>
+ *     <li>{@link TrimMemoryParticipant}s, such as pager adapters, drop the older half of their saved states at
+ *     {@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_LOW} and {@link ComponentCallbacks2#TRIM_MEMORY_BACKGROUND},
+ *     and all but the most recent one at {@link ComponentCallbacks2#TRIM_MEMORY_RUNNING_CRITICAL} and from
+ *     {@link ComponentCallbacks2#TRIM_MEMORY_MODERATE} on.</li>
+ *     <li>At those last levels, routers with a {@link HibernationPolicy} also hibernate every off-screen
+ *     Controller below the top of their backstack.</li>
+ * </ul>
+ *
+ * @see Conductor#setTrimMemoryListener(TrimMemoryListener)
+ */
+public final class TrimMemoryReport {
+
+    private final int level;
+    private int releasedViews;
+    private int releasedPooledViews;
+    private int hibernatedControllers;
+    private int droppedSavedStates;
+
+    /**
+     * @param level The level passed to {@link ComponentCallbacks2#onTrimMemory(int)}
+     */
+    public TrimMemoryReport(int level) {
+        this.level = level;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns the number of retained views that were released.
+     */
+    public int getReleasedViews() {
+        return releasedViews;
+    }
+
+    /**
+     * Returns the number of views that were dropped from {@link ViewPool}s.
+     */
+    public int getReleasedPooledViews() {
+        return releasedPooledViews;
+    }
+
+    /**
+     * Returns the number of Controllers that were hibernated.
+     */
+    public int getHibernatedControllers() {
+        return hibernatedControllers;
+    }
+
+    /**
+     * Returns the number of saved states, such as those of pager pages, that were dropped.
+     */
+    public int getDroppedSavedStates() {
+        return droppedSavedStates;
+    }
+
+    /**
+     * Returns how many of the passed number of saved states a {@link TrimMemoryParticipant} should keep at this
+     * report's level. The most recently saved ones should be kept.
+     */
+    public int savedStatesToKeep(int savedStates) {
+        if (isSevere()) {
+            return Math.min(savedStates, 1);
+        } else if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW || level == ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            return (savedStates + 1) / 2;
+        } else {
+            return savedStates;
+        }
+    }
+
+    /**
+     * Records saved states dropped by a {@link TrimMemoryParticipant}.
+     */
+    public void recordDroppedSavedStates(int count) {
+        droppedSavedStates += count;
+    }
+
+    boolean releasesRetainedViews() {
+        return level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+                || level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND;
+    }
+
+    // Returns how many of the passed number of pooled views a ViewPool should keep at this report's level
+    int pooledViewsToKeep(int pooledViews) {
+        if (isSevere()) {
+            return 0;
+        } else if (releasesRetainedViews()) {
+            return pooledViews / 2;
+        } else {
+            return pooledViews;
+        }
+    }
+
+    boolean hibernatesOffscreenControllers() {
+        return isSevere();
+    }
+
+    void recordReleasedView() {
+        releasedViews++;
+    }
+
+    void recordReleasedPooledViews(int count) {
+        releasedPooledViews += count;
+    }
+
+    void recordHibernatedController() {
+        hibernatedControllers++;
+    }
+
+    private boolean isSevere() {
+        return level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL || level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE;
+    }
+
+    @Override @NonNull
+    public String toString() {
+        return "TrimMemoryReport{level=" + level
+                + ", releasedViews=" + releasedViews
+                + ", releasedPooledViews=" + releasedPooledViews
+                + ", hibernatedControllers=" + hibernatedControllers
+                + ", droppedSavedStates=" + droppedSavedStates
+                + "}";
+    }
+
+}
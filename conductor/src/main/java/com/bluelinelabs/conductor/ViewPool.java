@@ -0,0 +1,158 @@
+package com.bluelinelabs.conductor;
+
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded pool of released Controller views, shared by all Controllers of a {@link Router} and its descendants.
+ * Controllers opt in by returning a non-null key from {@link Controller#getViewPoolKey()}. When such a Controller
+ * releases its view, the view is returned to the pool, and the next Controller with an equal key receives it
+ * through {@link Controller#onBindView(View, android.os.Bundle)} instead of inflating a new one.
+ * <p>
+ * Once the pool is full, views are evicted from the least recently used key first. Pools hold views created with
+ * an Activity context, so they are cleared when the hosting Activity is destroyed.
+ */
+public final class ViewPool {
+
+    private final int maxSize;
+    private final LinkedHashMap<Object, ArrayDeque<View>> views = new LinkedHashMap<>(16, 0.75f, true);
+    private int size;
+
+    private int hits;
+    private int misses;
+    private int evictions;
+
+    /**
+     * @param maxSize The maximum number of views held across all keys
+     */
+    public ViewPool(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive.");
+        }
+        this.maxSize = maxSize;
+    }
+
+    @Nullable
+    View acquire(@NonNull Object key) {
+        ArrayDeque<View> pooled = views.get(key);
+        View view = null;
+
+        if (pooled != null) {
+            while (view == null && !pooled.isEmpty()) {
+                view = pooled.pollLast();
+                size--;
+
+                // Views are released while detaching, before their container has finished removing them. One
+                // that still has a parent by now was never removed, so it is not ours to hand out.
+                if (view.getParent() != null) {
+                    view = null;
+                    evictions++;
+                }
+            }
+
+            if (pooled.isEmpty()) {
+                views.remove(key);
+            }
+        }
+
+        if (view != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return view;
+    }
+
+    void release(@NonNull Object key, @NonNull View view) {
+        if (size == maxSize) {
+            evictEldest();
+        }
+
+        ArrayDeque<View> pooled = views.get(key);
+        if (pooled == null) {
+            pooled = new ArrayDeque<>(2);
+            views.put(key, pooled);
+        }
+        pooled.addLast(view);
+        size++;
+    }
+
+    private void evictEldest() {
+        Iterator<Map.Entry<Object, ArrayDeque<View>>> iterator = views.entrySet().iterator();
+        ArrayDeque<View> eldest = iterator.next().getValue();
+        eldest.pollFirst();
+        if (eldest.isEmpty()) {
+            iterator.remove();
+        }
+        size--;
+        evictions++;
+    }
+
+    /**
+     * Evicts views, starting with the least recently used key, until at most the passed number is left.
+     *
+     * @return The number of views evicted
+     */
+    int trimToSize(int maxViews) {
+        int evicted = 0;
+        while (size > maxViews) {
+            evictEldest();
+            evicted++;
+        }
+        return evicted;
+    }
+
+    /**
+     * Removes all pooled views. Hit, miss and eviction counts are not reset.
+     */
+    public void clear() {
+        views.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns the number of views currently held by this pool.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of times a Controller was given a pooled view instead of creating a new one.
+     */
+    public int getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of times a Controller had to create a new view because none was pooled for its key.
+     */
+    public int getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of views dropped from the pool, either to stay within its maximum size or because they
+     * were still in a container when they were needed.
+     */
+    public int getEvictionCount() {
+        return evictions;
+    }
+
+    @Override @NonNull
+    public String toString() {
+        return "ViewPool(size=" + size + "/" + maxSize + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ")";
+    }
+
+}
@@ -4,6 +4,7 @@ import android.annotation.TargetApi;
 import android.app.Activity;
 import android.app.Application.ActivityLifecycleCallbacks;
 import android.app.Fragment;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentSender;
@@ -21,9 +22,13 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.bluelinelabs.conductor.ActivityHostedRouter;
+import com.bluelinelabs.conductor.Conductor;
 import com.bluelinelabs.conductor.Router;
+import com.bluelinelabs.conductor.TrimMemoryListener;
+import com.bluelinelabs.conductor.TrimMemoryReport;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -48,7 +53,12 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
     private SparseArray<String> activityRequestMap = new SparseArray<>();
     private ArrayList<PendingPermissionRequest> pendingPermissionRequests = new ArrayList<>();
 
+    private static final ActivityHostedRouter[] NO_ROUTERS = new ActivityHostedRouter[0];
+
     private final Map<Integer, ActivityHostedRouter> routerMap = new HashMap<>();
+    // Snapshot of routerMap's values, replaced whenever a router is added, so lifecycle callbacks can iterate it
+    // without copying.
+    private ActivityHostedRouter[] routers = NO_ROUTERS;
 
     public LifecycleHandler() {
         setRetainInstance(true);
@@ -92,6 +102,7 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
                 }
             }
             routerMap.put(getRouterHashKey(container), router);
+            routers = routerMap.values().toArray(new ActivityHostedRouter[0]);
         } else {
             router.setHost(this, container);
         }
@@ -101,7 +112,7 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
 
     @NonNull
     public List<Router> getRouters() {
-        return new ArrayList<Router>(routerMap.values());
+        return new ArrayList<Router>(Arrays.asList(routers));
     }
 
     @Nullable
@@ -164,6 +175,7 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
         }
 
         routerMap.clear();
+        routers = NO_ROUTERS;
     }
 
     @Override
@@ -205,7 +217,7 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
                 requestPermissions(request.instanceId, request.permissions, request.requestCode);
             }
 
-            for (ActivityHostedRouter router : new ArrayList<>(routerMap.values())) {
+            for (ActivityHostedRouter router : routers) {
                 router.onContextAvailable();
             }
         }
@@ -258,6 +270,34 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
         return super.shouldShowRequestPermissionRationale(permission);
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        trimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        trimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    }
+
+    private void trimMemory(int level) {
+        if (activity == null || routers.length == 0) {
+            return;
+        }
+
+        TrimMemoryReport report = new TrimMemoryReport(level);
+        for (ActivityHostedRouter router : routers) {
+            router.onTrimMemory(report);
+        }
+
+        TrimMemoryListener listener = Conductor.getTrimMemoryListener();
+        if (listener != null) {
+            listener.onMemoryTrimmed(report);
+        }
+    }
+
     @Override
     public void onCreateOptionsMenu(Menu menu, MenuInflater inflater) {
         super.onCreateOptionsMenu(menu, inflater);
@@ -332,7 +372,7 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
         if (findInActivity(activity) == LifecycleHandler.this) {
             this.activity = activity;
 
-            for (ActivityHostedRouter router : new ArrayList<>(routerMap.values())) {
+            for (ActivityHostedRouter router : routers) {
                 router.onContextAvailable();
             }
         }
@@ -343,7 +383,7 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
         if (this.activity == activity) {
             hasPreparedForHostDetach = false;
 
-            for (Router router : getRouters()) {
+            for (ActivityHostedRouter router : routers) {
                 router.onActivityStarted(activity);
             }
         }
@@ -352,7 +392,7 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
     @Override
     public void onActivityResumed(Activity activity) {
         if (this.activity == activity) {
-            for (Router router : getRouters()) {
+            for (ActivityHostedRouter router : routers) {
                 router.onActivityResumed(activity);
             }
         }
@@ -361,7 +401,7 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
     @Override
     public void onActivityPaused(Activity activity) {
         if (this.activity == activity) {
-            for (Router router : getRouters()) {
+            for (ActivityHostedRouter router : routers) {
                 router.onActivityPaused(activity);
             }
         }
@@ -372,7 +412,7 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
         if (this.activity == activity) {
             prepareForHostDetachIfNeeded();
 
-            for (Router router : getRouters()) {
+            for (ActivityHostedRouter router : routers) {
                 router.onActivityStopped(activity);
             }
         }
@@ -400,7 +440,7 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
         if (!hasPreparedForHostDetach) {
             hasPreparedForHostDetach = true;
 
-            for (Router router : getRouters()) {
+            for (ActivityHostedRouter router : routers) {
                 router.prepareForHostDetach();
             }
         }
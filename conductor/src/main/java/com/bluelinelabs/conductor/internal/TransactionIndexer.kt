@@ -13,6 +13,15 @@ class TransactionIndexer {
         return ++currentIndex
     }
 
+    /**
+     * Ensures indices handed out from now on are greater than the passed one.
+     */
+    fun skipPast(index: Int) {
+        if (currentIndex < index) {
+            currentIndex = index
+        }
+    }
+
     fun saveInstanceState(outState: Bundle) {
         outState.putInt(KEY_INDEX, currentIndex)
     }
@@ -0,0 +1,131 @@
+package com.bluelinelabs.conductor;
+
+import android.app.Activity;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+
+import com.bluelinelabs.conductor.Controller.RetainViewMode;
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.TestController;
+import com.bluelinelabs.conductor.util.ViewUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ActivityLifecycleFanOutTests {
+
+    private ActivityProxy activityProxy;
+    private Router router;
+
+    @Before
+    public void setup() {
+        activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+    }
+
+    @Test
+    public void testOnlyControllersWithViewsAreVisited() {
+        List<CountingController> controllers = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            CountingController controller = new CountingController();
+            controllers.add(controller);
+            router.pushController(RouterTransaction.with(controller));
+        }
+
+        activityProxy.pause().stop(false).start().resume();
+
+        assertEquals(4, visitedCount(controllers));
+        CountingController top = controllers.get(controllers.size() - 1);
+        assertEquals(1, top.startedCalls);
+        assertEquals(1, top.resumedCalls);
+        assertEquals(1, top.pausedCalls);
+        assertEquals(1, top.stoppedCalls);
+    }
+
+    @Test
+    public void testRetainedViewsAreVisited() {
+        CountingController retained = new CountingController();
+        retained.setRetainViewMode(RetainViewMode.RETAIN_DETACH);
+        CountingController released = new CountingController();
+        CountingController top = new CountingController();
+        router.setRoot(RouterTransaction.with(released));
+        router.pushController(RouterTransaction.with(retained));
+        router.pushController(RouterTransaction.with(top));
+
+        activityProxy.pause().stop(false).start().resume();
+
+        assertEquals(0, released.startedCalls);
+        assertEquals(1, retained.startedCalls);
+        assertEquals(1, top.startedCalls);
+    }
+
+    @Test
+    public void testChildRoutersOfControllersWithoutViewsAreSkipped() {
+        TestController parent = new TestController();
+        router.setRoot(RouterTransaction.with(parent));
+        ViewUtils.reportAttached(parent.getView(), true);
+
+        CountingController child = new CountingController();
+        parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.CHILD_VIEW_ID_1))
+                .setRoot(RouterTransaction.with(child));
+
+        activityProxy.pause().stop(false).start().resume();
+        assertEquals(1, child.startedCalls);
+
+        CountingController top = new CountingController();
+        router.pushController(RouterTransaction.with(top));
+
+        activityProxy.pause().stop(false).start().resume();
+        assertEquals(1, child.startedCalls);
+        assertEquals(1, child.stoppedCalls);
+        assertEquals(1, top.startedCalls);
+    }
+
+    private static int visitedCount(@NonNull List<CountingController> controllers) {
+        int count = 0;
+        for (CountingController controller : controllers) {
+            count += controller.startedCalls + controller.resumedCalls + controller.pausedCalls + controller.stoppedCalls;
+        }
+        return count;
+    }
+
+    public static class CountingController extends TestController {
+
+        int startedCalls;
+        int resumedCalls;
+        int pausedCalls;
+        int stoppedCalls;
+
+        @Override
+        protected void onActivityStarted(@NonNull Activity activity) {
+            startedCalls++;
+        }
+
+        @Override
+        protected void onActivityResumed(@NonNull Activity activity) {
+            resumedCalls++;
+        }
+
+        @Override
+        protected void onActivityPaused(@NonNull Activity activity) {
+            pausedCalls++;
+        }
+
+        @Override
+        protected void onActivityStopped(@NonNull Activity activity) {
+            stoppedCalls++;
+        }
+    }
+
+}
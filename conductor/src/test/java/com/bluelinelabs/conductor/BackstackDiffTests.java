@@ -0,0 +1,56 @@
+package com.bluelinelabs.conductor;
+
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BackstackDiffTests {
+
+    private Backstack backstack;
+
+    @Before
+    public void setup() {
+        backstack = new Backstack();
+    }
+
+    @Test
+    public void testDiff() {
+        RouterTransaction root = RouterTransaction.with(new TestController());
+        RouterTransaction middle = RouterTransaction.with(new TestController());
+        RouterTransaction top = RouterTransaction.with(new TestController());
+        RouterTransaction inserted = RouterTransaction.with(new TestController());
+        backstack.setBackstack(Arrays.asList(root, middle, top));
+
+        BackstackDiff diff = BackstackDiff.calculate(backstack, Arrays.asList(root, top, inserted));
+
+        assertEquals(Collections.singletonList(middle), diff.removed);
+        assertTrue(diff.wasPresent(top));
+        assertFalse(diff.wasPresent(inserted));
+    }
+
+    @Test
+    public void testDiffMatchesByController() {
+        TestController controller = new TestController();
+        backstack.push(RouterTransaction.with(controller));
+
+        RouterTransaction transaction = RouterTransaction.with(controller);
+        BackstackDiff diff = BackstackDiff.calculate(backstack, Collections.singletonList(transaction));
+
+        assertTrue(diff.removed.isEmpty());
+        assertTrue(diff.wasPresent(transaction));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDuplicateControllersThrow() {
+        TestController controller = new TestController();
+        BackstackDiff.calculate(backstack, Arrays.asList(RouterTransaction.with(controller), RouterTransaction.with(controller)));
+    }
+}
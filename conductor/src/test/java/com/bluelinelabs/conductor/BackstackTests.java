@@ -5,7 +5,13 @@ import com.bluelinelabs.conductor.util.TestController;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Collections;
+import java.util.Iterator;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class BackstackTests {
 
@@ -66,4 +72,57 @@ public class BackstackTests {
         assertEquals(1, backstack.size());
         assertEquals(transaction1, backstack.peek());
     }
+
+    @Test
+    public void testIndicesFollowPushAndPop() {
+        TestController controller1 = new TestController();
+        TestController controller2 = new TestController();
+        RouterTransaction transaction1 = RouterTransaction.with(controller1).tag("tag");
+        RouterTransaction transaction2 = RouterTransaction.with(controller2).tag("tag");
+
+        backstack.push(transaction1);
+        backstack.push(transaction2);
+
+        assertTrue(backstack.contains(controller1));
+        assertEquals(transaction2, backstack.transactionWithTag("tag"));
+        assertEquals(transaction1, backstack.transactionWithInstanceId(controller1.getInstanceId()));
+
+        backstack.pop();
+
+        assertFalse(backstack.contains(controller2));
+        assertNull(backstack.transactionWithInstanceId(controller2.getInstanceId()));
+        assertEquals(transaction1, backstack.transactionWithTag("tag"));
+    }
+
+    @Test
+    public void testIndicesFollowIteratorRemoval() {
+        TestController controller1 = new TestController();
+        TestController controller2 = new TestController();
+        backstack.push(RouterTransaction.with(controller1).tag("1"));
+        backstack.push(RouterTransaction.with(controller2).tag("2"));
+
+        Iterator<RouterTransaction> iterator = backstack.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().controller() == controller1) {
+                iterator.remove();
+            }
+        }
+
+        assertFalse(backstack.contains(controller1));
+        assertNull(backstack.transactionWithTag("1"));
+        assertTrue(backstack.contains(controller2));
+    }
+
+    @Test
+    public void testIndicesFollowSetBackstack() {
+        RouterTransaction transaction1 = RouterTransaction.with(new TestController()).tag("1");
+        RouterTransaction transaction2 = RouterTransaction.with(new TestController()).tag("2");
+        backstack.push(transaction1);
+
+        backstack.setBackstack(Collections.singletonList(transaction2));
+
+        assertFalse(backstack.contains(transaction1.controller()));
+        assertNull(backstack.transactionWithTag("1"));
+        assertEquals(transaction2, backstack.transactionWithTag("2"));
+    }
 }
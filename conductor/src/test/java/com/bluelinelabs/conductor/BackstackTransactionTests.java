@@ -0,0 +1,178 @@
+package com.bluelinelabs.conductor;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class BackstackTransactionTests {
+
+    private Router router;
+
+    @Before
+    public void setup() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+    }
+
+    @Test
+    public void testAppliesNetResult() {
+        TestController root = new TestController();
+        TestController middle = new TestController();
+        TestController top = new TestController();
+        TestController newTop = new TestController();
+        router.setRoot(RouterTransaction.with(root));
+        router.pushController(RouterTransaction.with(middle));
+        router.pushController(RouterTransaction.with(top));
+
+        router.beginTransaction()
+                .pop()
+                .pop()
+                .push(RouterTransaction.with(newTop))
+                .commit();
+
+        List<RouterTransaction> backstack = router.getBackstack();
+        assertEquals(2, backstack.size());
+        assertSame(root, backstack.get(0).controller());
+        assertSame(newTop, backstack.get(1).controller());
+        assertTrue(newTop.isAttached());
+        assertTrue(middle.isDestroyed());
+        assertTrue(top.isDestroyed());
+    }
+
+    @Test
+    public void testIntermediateControllersAreNeverCreated() {
+        TestController root = new TestController();
+        TestController intermediate = new TestController();
+        TestController top = new TestController();
+        router.setRoot(RouterTransaction.with(root));
+
+        router.beginTransaction()
+                .push(RouterTransaction.with(intermediate))
+                .pop()
+                .push(RouterTransaction.with(top))
+                .commit();
+
+        assertEquals(0, intermediate.currentCallState.createViewCalls);
+        assertEquals(0, intermediate.currentCallState.attachCalls);
+        assertNull(intermediate.getRouter());
+        assertEquals(1, top.currentCallState.createViewCalls);
+        assertEquals(2, router.getBackstackSize());
+    }
+
+    @Test
+    public void testUsesPushHandlerOfNewTop() {
+        router.setRoot(RouterTransaction.with(new TestController()));
+        CountingListener intermediateListener = new CountingListener();
+        CountingListener topListener = new CountingListener();
+
+        router.beginTransaction()
+                .push(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.listeningChangeHandler(intermediateListener)))
+                .push(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.listeningChangeHandler(topListener)))
+                .commit();
+
+        assertEquals(0, intermediateListener.changes);
+        assertEquals(1, topListener.changes);
+    }
+
+    @Test
+    public void testUsesPopHandlerOfOldTop() {
+        TestController root = new TestController();
+        CountingListener popListener = new CountingListener();
+        router.setRoot(RouterTransaction.with(root));
+        router.pushController(RouterTransaction.with(new TestController()));
+        router.pushController(RouterTransaction.with(new TestController()).popChangeHandler(MockChangeHandler.listeningChangeHandler(popListener)));
+
+        router.beginTransaction()
+                .popToRoot()
+                .commit();
+
+        assertEquals(1, router.getBackstackSize());
+        assertEquals(1, popListener.changes);
+        assertTrue(root.isAttached());
+    }
+
+    @Test
+    public void testUnchangedBackstackIsNoOp() {
+        TestController root = new TestController();
+        router.setRoot(RouterTransaction.with(root));
+        int attachCalls = root.currentCallState.attachCalls;
+
+        router.beginTransaction()
+                .push(RouterTransaction.with(new TestController()))
+                .pop()
+                .commit();
+
+        assertEquals(attachCalls, root.currentCallState.attachCalls);
+        assertTrue(root.isAttached());
+    }
+
+    @Test
+    public void testPopToTag() {
+        TestController tagged = new TestController();
+        router.setRoot(RouterTransaction.with(new TestController()));
+        router.pushController(RouterTransaction.with(tagged).tag("tagged"));
+        router.pushController(RouterTransaction.with(new TestController()));
+
+        router.beginTransaction()
+                .popToTag("tagged")
+                .commit();
+
+        assertEquals(2, router.getBackstackSize());
+        assertSame(tagged, router.getBackstack().get(1).controller());
+        assertTrue(tagged.isAttached());
+    }
+
+    @Test
+    public void testKeepsPushMadeAfterBegin() {
+        TestController root = new TestController();
+        TestController interleaved = new TestController();
+        TestController top = new TestController();
+        router.setRoot(RouterTransaction.with(root));
+
+        BackstackTransaction transaction = router.beginTransaction()
+                .push(RouterTransaction.with(top));
+        router.pushController(RouterTransaction.with(interleaved));
+        transaction.commit();
+
+        List<RouterTransaction> backstack = router.getBackstack();
+        assertEquals(3, backstack.size());
+        assertSame(root, backstack.get(0).controller());
+        assertSame(interleaved, backstack.get(1).controller());
+        assertSame(top, backstack.get(2).controller());
+        assertFalse(interleaved.isDestroyed());
+        assertTrue(top.isAttached());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCannotCommitTwice() {
+        BackstackTransaction transaction = router.beginTransaction().setRoot(RouterTransaction.with(new TestController()));
+        transaction.commit();
+        transaction.commit();
+    }
+
+    private static class CountingListener extends MockChangeHandler.ChangeHandlerListener {
+
+        int changes;
+
+        @Override
+        public void willStartChange() {
+            changes++;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bluelinelabs.conductor.ConductorTracer.Span;
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ConductorTracerTests {
+
+    private Router router;
+
+    @Before
+    public void setup() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+    }
+
+    @After
+    public void tearDown() {
+        Conductor.setTracer(null);
+        router.setTracer(null);
+    }
+
+    @Test
+    public void testPushReportsNestedSpans() {
+        RecordingTracer tracer = new RecordingTracer();
+        router.setTracer(tracer);
+        TestController controller = new TestController();
+
+        router.setRoot(RouterTransaction.with(controller));
+
+        assertTrue(tracer.stack.isEmpty());
+        Span[] expected = { Span.CHANGE, Span.INFLATE, Span.CREATE_VIEW, Span.ATTACH };
+        for (Span span : expected) {
+            assertTrue(span + " not reported", tracer.begun.contains(span));
+        }
+        assertEquals(Span.CHANGE, tracer.begun.get(0));
+        assertSame(controller, tracer.changeController);
+        assertEquals(ControllerChangeType.PUSH_ENTER, tracer.changeType);
+    }
+
+    @Test
+    public void testPopReportsDetachAndDestroy() {
+        router.setRoot(RouterTransaction.with(new TestController()));
+        router.pushController(RouterTransaction.with(new TestController()));
+        RecordingTracer tracer = new RecordingTracer();
+        router.setTracer(tracer);
+
+        router.popCurrentController();
+
+        assertTrue(tracer.stack.isEmpty());
+        assertTrue(tracer.begun.contains(Span.DETACH));
+        assertTrue(tracer.begun.contains(Span.DESTROY));
+        assertEquals(ControllerChangeType.POP_ENTER, tracer.changeType);
+    }
+
+    @Test
+    public void testChildRoutersInheritTracer() {
+        RecordingTracer tracer = new RecordingTracer();
+        router.setTracer(tracer);
+        TestController parent = new TestController();
+        router.setRoot(RouterTransaction.with(parent));
+        TestController child = new TestController();
+        tracer.trackedController = child;
+
+        parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.CHILD_VIEW_ID_1))
+                .setRoot(RouterTransaction.with(child));
+
+        assertTrue(tracer.depths.size() > 0);
+        for (int depth : tracer.depths) {
+            assertEquals(1, depth);
+        }
+    }
+
+    @Test
+    public void testProcessWideTracerIsUsedWithoutRouterTracer() {
+        RecordingTracer tracer = new RecordingTracer();
+        Conductor.setTracer(tracer);
+        TestController controller = new TestController();
+        router.setRoot(RouterTransaction.with(controller));
+
+        Controller.newInstance(controller.saveInstanceState());
+
+        assertTrue(tracer.begun.contains(Span.ATTACH));
+        assertTrue(tracer.begun.contains(Span.SAVE_INSTANCE_STATE));
+        assertTrue(tracer.begun.contains(Span.RESTORE_INSTANCE_STATE));
+        assertTrue(tracer.stack.isEmpty());
+    }
+
+    @Test
+    public void testRouterTracerOverridesProcessWideTracer() {
+        RecordingTracer processWideTracer = new RecordingTracer();
+        RecordingTracer routerTracer = new RecordingTracer();
+        Conductor.setTracer(processWideTracer);
+        router.setTracer(routerTracer);
+
+        router.setRoot(RouterTransaction.with(new TestController()));
+
+        assertTrue(processWideTracer.begun.isEmpty());
+        assertTrue(routerTracer.begun.contains(Span.ATTACH));
+    }
+
+    @Test
+    public void testSpansEndWhenCreateViewThrows() {
+        RecordingTracer tracer = new RecordingTracer();
+        router.setTracer(tracer);
+
+        try {
+            router.setRoot(RouterTransaction.with(new ThrowingController()));
+            fail();
+        } catch (IllegalStateException ignored) { }
+
+        assertTrue(tracer.begun.contains(Span.CREATE_VIEW));
+        assertTrue(tracer.stack.isEmpty());
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        LatencyHistogramTracer tracer = new LatencyHistogramTracer();
+        tracer.record(Span.ATTACH, 500);          // < 1µs
+        tracer.record(Span.ATTACH, 1_500);        // [1µs, 2µs)
+        tracer.record(Span.ATTACH, 3_000_000);    // [2048µs, 4096µs)
+        tracer.record(Span.ATTACH, 3_500_000);
+
+        long[] buckets = tracer.getBuckets(Span.ATTACH);
+        assertEquals(1, buckets[0]);
+        assertEquals(1, buckets[1]);
+        assertEquals(2, buckets[12]);
+        assertEquals(4, tracer.getCount(Span.ATTACH));
+        assertEquals(0, tracer.getCount(Span.DETACH));
+        assertEquals(3_500_000, tracer.getMaxNanos(Span.ATTACH));
+        assertEquals(2, tracer.getPercentileMicros(Span.ATTACH, 50));
+        assertEquals(4096, tracer.getPercentileMicros(Span.ATTACH, 99));
+
+        tracer.reset();
+        assertEquals(0, tracer.getCount(Span.ATTACH));
+        assertEquals(0, tracer.getPercentileMicros(Span.ATTACH, 50));
+    }
+
+    public static class ThrowingController extends Controller {
+
+        @NonNull @Override
+        protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container, @Nullable Bundle savedViewState) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private static class RecordingTracer implements ConductorTracer {
+
+        final List<Span> begun = new ArrayList<>();
+        final List<Integer> depths = new ArrayList<>();
+        final Deque<Span> stack = new ArrayDeque<>();
+        Controller trackedController;
+        Controller changeController;
+        ControllerChangeType changeType;
+
+        @Override
+        public long beginSpan(@NonNull Span span, @NonNull Controller controller, int routerDepth, @Nullable ControllerChangeType changeType) {
+            begun.add(span);
+            stack.push(span);
+            if (controller == trackedController) {
+                depths.add(routerDepth);
+            }
+            if (span == Span.CHANGE) {
+                changeController = controller;
+                this.changeType = changeType;
+            }
+            return begun.size();
+        }
+
+        @Override
+        public void endSpan(@NonNull Span span, @NonNull Controller controller, int routerDepth, @Nullable ControllerChangeType changeType, long token) {
+            assertEquals(span, stack.pop());
+        }
+    }
+
+}
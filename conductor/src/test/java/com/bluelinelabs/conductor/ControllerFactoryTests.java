@@ -0,0 +1,213 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ControllerFactoryTests {
+
+    private final ControllerFactory originalControllerFactory = Conductor.getControllerFactory();
+    private final ChangeHandlerFactory originalChangeHandlerFactory = Conductor.getChangeHandlerFactory();
+
+    @After
+    public void tearDown() {
+        Conductor.setControllerFactory(originalControllerFactory);
+        Conductor.setChangeHandlerFactory(originalChangeHandlerFactory);
+    }
+
+    @Test
+    public void testDefaultFactoryRestoresArgs() {
+        Bundle args = new Bundle();
+        args.putString("key", "value");
+        ArgsController controller = new ArgsController(args);
+
+        Controller restored = Controller.newInstance(controller.saveInstanceState());
+
+        assertTrue(restored instanceof ArgsController);
+        assertEquals("value", restored.getArgs().getString("key"));
+        assertEquals(controller.getInstanceId(), restored.getInstanceId());
+    }
+
+    @Test
+    public void testRestoredArgsUseControllerClassLoader() {
+        Bundle args = new Bundle();
+        args.putString("key", "value");
+
+        Controller restored = Controller.newInstance(new ArgsController(args).saveInstanceState());
+
+        assertSame(ArgsController.class.getClassLoader(), restored.getArgs().getClassLoader());
+    }
+
+    @Test
+    public void testFactoryIsConsultedBeforeClassIsLoaded() {
+        Conductor.setControllerFactory(new ControllerFactory() {
+            @NonNull @Override
+            public Controller instantiate(@NonNull ClassLoader classLoader, @NonNull String className, @Nullable Bundle args) {
+                if (className.equals("com.example.RenamedController")) {
+                    return new ArgsController(args);
+                }
+                return super.instantiate(classLoader, className, args);
+            }
+        });
+
+        Bundle args = new Bundle();
+        args.putString("key", "value");
+        Controller restored = Controller.newInstance(Controller.newSavedState("com.example.RenamedController", args, false, new ArrayList<Bundle>()));
+
+        assertTrue(restored instanceof ArgsController);
+        assertEquals("value", restored.getArgs().getString("key"));
+    }
+
+    @Test
+    public void testDefaultConstructorControllersKeepArgs() {
+        TestController controller = new TestController();
+        controller.getArgs().putString("key", "value");
+
+        Controller restored = Controller.newInstance(controller.saveInstanceState());
+
+        assertTrue(restored instanceof TestController);
+        assertEquals("value", restored.getArgs().getString("key"));
+    }
+
+    @Test
+    public void testCustomFactoryAllowsConstructorInjection() {
+        final String dependency = "injected";
+        Conductor.setControllerFactory(new ControllerFactory() {
+            @NonNull @Override
+            public Controller instantiate(@NonNull ClassLoader classLoader, @NonNull String className, @Nullable Bundle args) {
+                if (className.equals(InjectedController.class.getName())) {
+                    return new InjectedController(dependency);
+                }
+                return super.instantiate(classLoader, className, args);
+            }
+        });
+
+        InjectedController controller = new InjectedController("original");
+        controller.getArgs().putInt("key", 42);
+
+        InjectedController restored = (InjectedController) Controller.newInstance(controller.saveInstanceState());
+
+        assertEquals("injected", restored.dependency);
+        assertEquals(42, restored.getArgs().getInt("key"));
+    }
+
+    @Test
+    public void testChangeHandlerFactoryIsUsedForCopies() {
+        final int[] instantiations = new int[1];
+        Conductor.setChangeHandlerFactory(new ChangeHandlerFactory() {
+            @NonNull @Override
+            public ControllerChangeHandler instantiate(@NonNull ClassLoader classLoader, @NonNull String className) {
+                instantiations[0]++;
+                return super.instantiate(classLoader, className);
+            }
+        });
+
+        StatefulChangeHandler handler = new StatefulChangeHandler();
+        handler.state = 123;
+        ControllerChangeHandler copy = handler.copy();
+
+        assertNotSame(handler, copy);
+        assertEquals(123, ((StatefulChangeHandler) copy).state);
+        assertEquals(1, instantiations[0]);
+    }
+
+    @Test
+    public void testInstantiationRegistryIsConsultedFirst() {
+        final int[] created = new int[1];
+        Conductor.addInstantiationRegistry(new InstantiationRegistry() {
+            @Nullable @Override
+            public Controller newController(@NonNull String className, @Nullable Bundle args) {
+                if (className.equals(ArgsController.class.getName())) {
+                    created[0]++;
+                    return new ArgsController(args);
+                }
+                return null;
+            }
+
+            @Nullable @Override
+            public ControllerChangeHandler newChangeHandler(@NonNull String className) {
+                return null;
+            }
+        });
+
+        Bundle args = new Bundle();
+        args.putString("key", "value");
+        Controller restored = Controller.newInstance(new ArgsController(args).saveInstanceState());
+        Controller unknown = Controller.newInstance(new TestController().saveInstanceState());
+
+        assertEquals(1, created[0]);
+        assertEquals("value", restored.getArgs().getString("key"));
+        assertTrue(unknown instanceof TestController);
+    }
+
+    public static class ArgsController extends Controller {
+
+        public ArgsController(@Nullable Bundle args) {
+            super(args);
+        }
+
+        @NonNull @Override
+        protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container, @Nullable Bundle savedViewState) {
+            return new FrameLayout(inflater.getContext());
+        }
+    }
+
+    public static class StatefulChangeHandler extends ControllerChangeHandler {
+
+        private static final String KEY_STATE = "StatefulChangeHandler.state";
+
+        int state;
+
+        @Override
+        public void performChange(@NonNull ViewGroup container, @Nullable View from, @Nullable View to, boolean isPush, @NonNull ControllerChangeCompletedListener changeListener) {
+            changeListener.onChangeCompleted();
+        }
+
+        @Override
+        public void saveToBundle(@NonNull Bundle bundle) {
+            bundle.putInt(KEY_STATE, state);
+        }
+
+        @Override
+        public void restoreFromBundle(@NonNull Bundle bundle) {
+            state = bundle.getInt(KEY_STATE);
+        }
+    }
+
+    public static class InjectedController extends Controller {
+
+        final String dependency;
+
+        public InjectedController(@NonNull String dependency) {
+            this.dependency = dependency;
+        }
+
+        @NonNull @Override
+        protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container, @Nullable Bundle savedViewState) {
+            return new FrameLayout(inflater.getContext());
+        }
+    }
+
+}
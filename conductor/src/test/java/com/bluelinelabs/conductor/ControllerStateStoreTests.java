@@ -0,0 +1,188 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ControllerStateStoreTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Router router;
+    private MapStateStore store;
+
+    @Before
+    public void setup() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+        store = new MapStateStore();
+    }
+
+    @Test
+    public void testSpillsControllersBelowRetainedDepth() {
+        TestController root = new TestController();
+        TestController middle = new TestController();
+        TestController top = new TestController();
+        router.setStateStore(store, 2);
+
+        router.setRoot(RouterTransaction.with(root));
+        router.pushController(RouterTransaction.with(middle));
+        assertTrue(store.states.isEmpty());
+
+        router.pushController(RouterTransaction.with(top));
+        assertTrue(store.states.containsKey(root.viewStateSpillKey));
+        assertNull(middle.viewStateSpillKey);
+        assertEquals(1, store.states.size());
+        assertNull(root.viewState);
+        assertNotNull(middle.viewState);
+    }
+
+    @Test
+    public void testRehydratesOnInflate() {
+        TestController root = new TestController();
+        router.setStateStore(store, 1);
+
+        router.setRoot(RouterTransaction.with(root));
+        router.pushController(RouterTransaction.with(new TestController()));
+        String spillKey = root.viewStateSpillKey;
+        assertTrue(store.states.containsKey(spillKey));
+
+        router.popCurrentController();
+
+        assertEquals(1, root.currentCallState.restoreViewStateCalls);
+        assertFalse(store.states.containsKey(spillKey));
+    }
+
+    @Test
+    public void testSpilledStateIsLeftOutOfSavedState() {
+        TestController root = new TestController();
+        router.setRoot(RouterTransaction.with(root));
+        router.pushController(RouterTransaction.with(new TestController()));
+        router.setMeasuresSavedState(true);
+        router.setStateStore(store, 1);
+
+        router.saveInstanceState(new Bundle());
+
+        assertEquals(0, router.getSavedStateSizes().get(0).getViewStateBytes());
+        assertTrue(store.states.containsKey(root.viewStateSpillKey));
+    }
+
+    @Test
+    public void testKeepsStateWhenStoreRefusesIt() {
+        TestController root = new TestController();
+        store.refuseWrites = true;
+        router.setStateStore(store, 1);
+
+        router.setRoot(RouterTransaction.with(root));
+        router.pushController(RouterTransaction.with(new TestController()));
+
+        assertNotNull(root.viewState);
+        router.popCurrentController();
+        assertEquals(1, root.currentCallState.restoreViewStateCalls);
+    }
+
+    @Test
+    public void testDestroyRemovesSpilledState() {
+        TestController root = new TestController();
+        router.setStateStore(store, 1);
+
+        router.setRoot(RouterTransaction.with(root));
+        router.pushController(RouterTransaction.with(new TestController()));
+        assertTrue(store.states.containsKey(root.viewStateSpillKey));
+
+        router.setRoot(RouterTransaction.with(new TestController()));
+
+        assertTrue(root.isDestroyed());
+        assertTrue(store.states.isEmpty());
+    }
+
+    @Test
+    public void testControllersWithSameInstanceIdKeepSeparateState() {
+        TestController first = new TestController();
+        TestController second = (TestController) Controller.newInstance(first.saveInstanceState());
+        assertEquals(first.getInstanceId(), second.getInstanceId());
+
+        router.setStateStore(store, 1);
+        router.setRoot(RouterTransaction.with(first));
+        router.pushController(RouterTransaction.with(new TestController()));
+
+        TestController parent = new TestController();
+        router.pushController(RouterTransaction.with(parent));
+        Router childRouter = parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.VIEW_ID));
+        childRouter.setRoot(RouterTransaction.with(second));
+        childRouter.pushController(RouterTransaction.with(new TestController()));
+
+        assertEquals(2, store.states.size());
+        String firstKey = first.viewStateSpillKey;
+
+        childRouter.popCurrentController();
+
+        assertEquals(1, second.currentCallState.restoreViewStateCalls);
+        assertTrue(store.states.containsKey(firstKey));
+    }
+
+    @Test
+    public void testFileStoreRoundTrip() throws Exception {
+        FileControllerStateStore fileStore = new FileControllerStateStore(temporaryFolder.newFolder());
+        Bundle state = new Bundle();
+        state.putString("key", "value");
+
+        assertTrue(fileStore.write("some/instance.id", state));
+        Bundle read = fileStore.read("some/instance.id");
+        assertNotNull(read);
+        assertEquals("value", read.getString("key"));
+
+        fileStore.remove("some/instance.id");
+        assertNull(fileStore.read("some/instance.id"));
+    }
+
+    private static class MapStateStore implements ControllerStateStore {
+
+        final Map<String, Bundle> states = new HashMap<>();
+        boolean refuseWrites;
+
+        @Override
+        public boolean write(@NonNull String key, @NonNull Bundle state) {
+            if (refuseWrites) {
+                return false;
+            }
+            states.put(key, state);
+            return true;
+        }
+
+        @Override @Nullable
+        public Bundle read(@NonNull String key) {
+            return states.get(key);
+        }
+
+        @Override
+        public void remove(@NonNull String key) {
+            states.remove(key);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import com.bluelinelabs.conductor.Controller.RetainViewMode;
+import com.bluelinelabs.conductor.changehandler.SimpleSwapChangeHandler;
 import com.bluelinelabs.conductor.util.ActivityProxy;
 import com.bluelinelabs.conductor.util.CallState;
 import com.bluelinelabs.conductor.util.TestController;
@@ -18,7 +19,10 @@ import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import java.util.Arrays;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -263,6 +267,40 @@ public class ControllerTests {
         assertCalls(parentExpectedCallState, parent);
     }
 
+    @Test
+    public void testOptionsMenuSkipsDetachedControllers() {
+        TestController bottom = new TestController();
+        TestController child = new TestController();
+        TestController top = new TestController();
+
+        router.pushController(RouterTransaction.with(bottom));
+        ViewUtils.reportAttached(bottom.getView(), true);
+        bottom.getChildRouter((ViewGroup)bottom.getView().findViewById(TestController.VIEW_ID))
+                .setRoot(RouterTransaction.with(child));
+        bottom.setHasOptionsMenu(true);
+        child.setHasOptionsMenu(true);
+
+        router.onCreateOptionsMenu(null, null);
+        assertEquals(1, bottom.currentCallState.createOptionsMenuCalls);
+        assertEquals(1, child.currentCallState.createOptionsMenuCalls);
+
+        router.pushController(RouterTransaction.with(top));
+        top.setHasOptionsMenu(true);
+
+        router.onCreateOptionsMenu(null, null);
+        assertEquals(1, top.currentCallState.createOptionsMenuCalls);
+        assertEquals(1, bottom.currentCallState.createOptionsMenuCalls);
+        assertEquals(1, child.currentCallState.createOptionsMenuCalls);
+
+        router.popCurrentController();
+        ViewUtils.reportAttached(bottom.getView(), true);
+
+        router.onCreateOptionsMenu(null, null);
+        assertEquals(1, top.currentCallState.createOptionsMenuCalls);
+        assertEquals(2, bottom.currentCallState.createOptionsMenuCalls);
+        assertEquals(2, child.currentCallState.createOptionsMenuCalls);
+    }
+
     @Test
     public void testAddRemoveChildControllers() {
         TestController parent = new TestController();
@@ -405,6 +443,68 @@ public class ControllerTests {
         assertEquals(0, childRouter.getBackstackSize());
     }
 
+    @Test
+    public void testHandleBackDispatchesToMostRecentChildTransaction() {
+        TestController parent = new TestController();
+        router.pushController(RouterTransaction.with(parent));
+        ViewUtils.reportAttached(parent.getView(), true);
+
+        Router childRouter1 = parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.CHILD_VIEW_ID_1));
+        Router childRouter2 = parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.CHILD_VIEW_ID_2));
+        TestController top1 = new TestController();
+        TestController below1 = new TestController();
+        childRouter1.setRoot(RouterTransaction.with(top1));
+        childRouter2.setRoot(RouterTransaction.with(new TestController()));
+        childRouter2.pushController(RouterTransaction.with(new TestController()));
+
+        // Inserting below the attached top re-indexes it above everything in child router 2
+        childRouter1.setBackstack(Arrays.asList(RouterTransaction.with(below1), childRouter1.getBackstack().get(0)), null);
+
+        assertTrue(parent.handleBack());
+        assertEquals(1, childRouter1.getBackstackSize());
+        assertEquals(2, childRouter2.getBackstackSize());
+        assertTrue(below1.isAttached());
+
+        assertTrue(parent.handleBack());
+        assertEquals(1, childRouter1.getBackstackSize());
+        assertEquals(1, childRouter2.getBackstackSize());
+
+        assertFalse(parent.handleBack());
+    }
+
+    @Test
+    public void testDetachIsDeferredUntilAncestorExitTransitionEnds() {
+        TestController parent = new TestController();
+        TestController child = new TestController();
+        TestController grandchild = new TestController();
+
+        router.pushController(RouterTransaction.with(parent));
+        ViewUtils.reportAttached(parent.getView(), true);
+        parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.VIEW_ID))
+                .setRoot(RouterTransaction.with(child));
+        child.getChildRouter((ViewGroup)child.getView().findViewById(TestController.VIEW_ID))
+                .setRoot(RouterTransaction.with(grandchild));
+        assertTrue(child.isAttached());
+        assertTrue(grandchild.isAttached());
+
+        ControllerChangeHandler changeHandler = new SimpleSwapChangeHandler();
+        parent.changeStarted(changeHandler, ControllerChangeType.POP_EXIT);
+        child.changeStarted(changeHandler, ControllerChangeType.POP_EXIT);
+
+        ViewUtils.reportAttached(child.getView(), false);
+        assertTrue(child.isAttached());
+        assertTrue(grandchild.isAttached());
+
+        // The grandchild is still frozen by the parent's transition
+        child.changeEnded(changeHandler, ControllerChangeType.POP_EXIT);
+        assertTrue(child.isAttached());
+        assertTrue(grandchild.isAttached());
+
+        parent.changeEnded(changeHandler, ControllerChangeType.POP_EXIT);
+        assertFalse(child.isAttached());
+        assertFalse(grandchild.isAttached());
+    }
+
     private void assertCalls(CallState callState, TestController controller) {
         assertEquals("Expected call counts and controller call counts do not match.", callState, controller.currentCallState);
     }
@@ -0,0 +1,189 @@
+package com.bluelinelabs.conductor;
+
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class DeferredDestructionTests {
+
+    private ActivityProxy activityProxy;
+    private Router router;
+    private final List<Controller> destroyed = new ArrayList<>();
+
+    private final Controller.LifecycleListener destroyListener = new Controller.LifecycleListener() {
+        @Override
+        public void postDestroy(@NonNull Controller controller) {
+            destroyed.add(controller);
+        }
+    };
+
+    @Before
+    public void setup() {
+        activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+        router.setDefersDestruction(true);
+    }
+
+    @After
+    public void tearDown() {
+        DeferredDestroyer.getInstance().flush();
+    }
+
+    @Test
+    public void testPopToRootDefersOffscreenControllers() {
+        List<TestController> controllers = fill(30);
+        TestController top = controllers.get(controllers.size() - 1);
+
+        router.popToRoot();
+
+        assertTrue(top.isDestroyed());
+        for (int i = 1; i < controllers.size() - 1; i++) {
+            assertTrue(controllers.get(i).isBeingDestroyed());
+            assertFalse(controllers.get(i).isDestroyed());
+        }
+        assertEquals(28, DeferredDestroyer.getInstance().size());
+
+        DeferredDestroyer.getInstance().flush();
+
+        // The visible top goes right away, the rest in the order they were removed from the backstack
+        assertEquals(29, destroyed.size());
+        assertEquals(top, destroyed.get(0));
+        for (int i = 1; i < destroyed.size(); i++) {
+            assertEquals(controllers.get(i), destroyed.get(i));
+        }
+        assertTrue(controllers.get(0).isAttached());
+    }
+
+    @Test
+    public void testIdleSliceStopsAtBudget() {
+        router.setRoot(RouterTransaction.with(new TestController()));
+        for (int i = 0; i < 3; i++) {
+            router.pushController(RouterTransaction.with(new SlowController()));
+        }
+        router.pushController(RouterTransaction.with(new TestController()));
+
+        router.popToRoot();
+        assertEquals(3, DeferredDestroyer.getInstance().size());
+
+        assertTrue(DeferredDestroyer.getInstance().queueIdle());
+        assertEquals(2, DeferredDestroyer.getInstance().size());
+        assertTrue(DeferredDestroyer.getInstance().queueIdle());
+        assertFalse(DeferredDestroyer.getInstance().queueIdle());
+        assertEquals(0, DeferredDestroyer.getInstance().size());
+    }
+
+    @Test
+    public void testChildrenAreDestroyedBeforeParent() {
+        router.setRoot(RouterTransaction.with(new TestController()));
+        TestController parent = new TestController();
+        TestController child = new TestController();
+        parent.addLifecycleListener(destroyListener);
+        child.addLifecycleListener(destroyListener);
+        router.pushController(RouterTransaction.with(parent));
+        parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.CHILD_VIEW_ID_1))
+                .setRoot(RouterTransaction.with(child));
+        router.pushController(RouterTransaction.with(new TestController()));
+
+        router.beginTransaction().remove(parent).commit();
+        assertFalse(parent.isDestroyed());
+        assertFalse(child.isDestroyed());
+
+        DeferredDestroyer.getInstance().flush();
+
+        assertEquals(2, destroyed.size());
+        assertEquals(child, destroyed.get(0));
+        assertEquals(parent, destroyed.get(1));
+    }
+
+    @Test
+    public void testActivityDestroyFlushesQueue() {
+        List<TestController> controllers = fill(5);
+        router.popToRoot();
+        assertFalse(controllers.get(1).isDestroyed());
+
+        activityProxy.pause().stop(true).destroy();
+
+        for (TestController controller : controllers) {
+            assertTrue(controller.isDestroyed());
+        }
+        assertEquals(0, DeferredDestroyer.getInstance().size());
+    }
+
+    @Test
+    public void testActivityDestroyKeepsOtherActivitiesQueued() {
+        List<TestController> controllers = fill(5);
+        router.popToRoot();
+
+        ActivityProxy otherProxy = new ActivityProxy().create(null).start().resume();
+        Router otherRouter = Conductor.attachRouter(otherProxy.getActivity(), otherProxy.getView(), null);
+        otherRouter.setRoot(RouterTransaction.with(new TestController()));
+        otherProxy.pause().stop(true).destroy();
+
+        assertEquals(3, DeferredDestroyer.getInstance().size());
+        for (int i = 1; i < controllers.size() - 1; i++) {
+            assertFalse(controllers.get(i).isDestroyed());
+        }
+    }
+
+    @Test
+    public void testDestructionIsImmediateByDefault() {
+        router.setDefersDestruction(false);
+        List<TestController> controllers = fill(5);
+
+        router.popToRoot();
+
+        for (int i = 1; i < controllers.size(); i++) {
+            assertTrue(controllers.get(i).isDestroyed());
+        }
+        assertEquals(0, DeferredDestroyer.getInstance().size());
+    }
+
+    private List<TestController> fill(int count) {
+        List<TestController> controllers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TestController controller = new TestController();
+            controller.addLifecycleListener(destroyListener);
+            controllers.add(controller);
+            if (i == 0) {
+                router.setRoot(RouterTransaction.with(controller));
+            } else {
+                router.pushController(RouterTransaction.with(controller));
+            }
+        }
+        return controllers;
+    }
+
+    public static class SlowController extends TestController {
+
+        @Override
+        protected void onDestroy() {
+            super.onDestroy();
+            try {
+                Thread.sleep(TimeUnit.NANOSECONDS.toMillis(DeferredDestroyer.SLICE_BUDGET_NANOS) + 1);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.bluelinelabs.conductor;
+
+import com.bluelinelabs.conductor.Controller.RetainViewMode;
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class HibernationTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ActivityProxy activityProxy;
+    private Router router;
+
+    @Before
+    public void setup() {
+        activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+    }
+
+    @Test
+    public void testHibernatesControllersBeyondRetainedDepth() {
+        TestController root = new TestController();
+        root.setRetainViewMode(RetainViewMode.RETAIN_DETACH);
+        TestController middle = new TestController();
+        router.setHibernationPolicy(new HibernationPolicy(2));
+
+        router.setRoot(RouterTransaction.with(root).tag("root"));
+        router.pushController(RouterTransaction.with(middle));
+        router.pushController(RouterTransaction.with(new TestController()));
+        ShadowLooper.idleMainLooper();
+
+        List<RouterTransaction> backstack = router.getBackstack();
+        assertFalse(backstack.get(0).isMaterialized());
+        assertTrue(backstack.get(1).isMaterialized());
+        assertTrue(root.isDestroyed());
+        assertNull(root.getView());
+        assertFalse(middle.isDestroyed());
+        assertEquals("root", backstack.get(0).tag());
+        assertEquals(root.getInstanceId(), backstack.get(0).instanceId());
+        assertFalse(router.getControllers().contains(root));
+    }
+
+    @Test
+    public void testRecreatesHibernatedControllerOnPop() {
+        TestController root = new TestController();
+        router.setHibernationPolicy(new HibernationPolicy(1));
+
+        router.setRoot(RouterTransaction.with(root));
+        router.pushController(RouterTransaction.with(new TestController()));
+        ShadowLooper.idleMainLooper();
+        assertTrue(root.isDestroyed());
+
+        router.popCurrentController();
+
+        Controller restored = router.getBackstack().get(0).controller();
+        assertNotSame(root, restored);
+        assertEquals(root.getInstanceId(), restored.getInstanceId());
+        assertEquals(1, ((TestController) restored).currentCallState.restoreInstanceStateCalls);
+        assertNotNull(restored.getView());
+        assertTrue(restored.isAttached());
+        assertEquals(restored, router.getControllerWithInstanceId(root.getInstanceId()));
+    }
+
+    @Test
+    public void testHibernatesIdleControllers() {
+        TestController root = new TestController();
+        router.setHibernationPolicy(new HibernationPolicy(Integer.MAX_VALUE, 1000));
+
+        router.setRoot(RouterTransaction.with(root));
+        router.pushController(RouterTransaction.with(new TestController()));
+        ShadowLooper.idleMainLooper();
+        assertFalse(root.isDestroyed());
+
+        ShadowLooper.idleMainLooper(1000, TimeUnit.MILLISECONDS);
+        assertTrue(root.isDestroyed());
+        assertFalse(router.getBackstack().get(0).isMaterialized());
+        assertTrue(router.getBackstack().get(1).isMaterialized());
+    }
+
+    @Test
+    public void testFinishingRemovesSpilledStateOfHibernatedControllers() throws Exception {
+        File directory = temporaryFolder.newFolder();
+        router.setStateStore(new FileControllerStateStore(directory), 1);
+        router.setHibernationPolicy(new HibernationPolicy(1));
+
+        router.setRoot(RouterTransaction.with(new TestController()));
+        router.pushController(RouterTransaction.with(new TestController()));
+        ShadowLooper.idleMainLooper();
+        assertFalse(router.getBackstack().get(0).isMaterialized());
+        assertEquals(1, directory.list().length);
+
+        activityProxy.pause().stop(true).destroy();
+
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void testVisibleControllersAreNotHibernated() {
+        TestController root = new TestController();
+        router.setHibernationPolicy(new HibernationPolicy(1, 0));
+
+        router.setRoot(RouterTransaction.with(root));
+        ShadowLooper.idleMainLooper();
+
+        assertFalse(root.isDestroyed());
+        assertTrue(root.isAttached());
+    }
+
+}
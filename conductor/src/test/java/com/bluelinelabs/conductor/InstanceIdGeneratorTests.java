@@ -0,0 +1,118 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class InstanceIdGeneratorTests {
+
+    private final InstanceIdGenerator originalGenerator = Conductor.getInstanceIdGenerator();
+
+    @After
+    public void tearDown() {
+        Conductor.setInstanceIdGenerator(originalGenerator);
+    }
+
+    @Test
+    public void testMonotonicIdsAreUniqueAndCompact() {
+        InstanceIdGenerator generator = InstanceIdGenerator.monotonic();
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            String id = generator.nextInstanceId();
+            assertTrue(id.length() <= 13);
+            ids.add(id);
+        }
+        assertEquals(10_000, ids.size());
+    }
+
+    @Test
+    public void testGeneratorsOfSeparateProcessesHandOutDistinctIds() {
+        InstanceIdGenerator before = InstanceIdGenerator.monotonic();
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(before.nextInstanceId());
+        }
+
+        InstanceIdGenerator after = InstanceIdGenerator.monotonic();
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(ids.add(after.nextInstanceId()));
+        }
+    }
+
+    @Test
+    public void testIdsStayUniqueWhenRestoredAfterOtherActivities() {
+        Conductor.setInstanceIdGenerator(InstanceIdGenerator.monotonic());
+        ActivityProxy savedProxy = new ActivityProxy().create(null).start().resume();
+        Router savedRouter = Conductor.attachRouter(savedProxy.getActivity(), savedProxy.getView(), null);
+        savedRouter.setRoot(RouterTransaction.with(new TestController()));
+        savedRouter.pushController(RouterTransaction.with(new TestController()));
+        Bundle savedState = new Bundle();
+        savedProxy.saveInstanceState(savedState).pause().stop(true).destroy();
+
+        // A new process, where another Activity creates Controllers before the saved one is restored
+        Conductor.setInstanceIdGenerator(InstanceIdGenerator.monotonic());
+        ActivityProxy otherProxy = new ActivityProxy().create(null).start().resume();
+        Router otherRouter = Conductor.attachRouter(otherProxy.getActivity(), otherProxy.getView(), null);
+        otherRouter.setRoot(RouterTransaction.with(new TestController()));
+        otherRouter.pushController(RouterTransaction.with(new TestController()));
+
+        ActivityProxy restoredProxy = new ActivityProxy().create(savedState).start().resume();
+        Router restoredRouter = Conductor.attachRouter(restoredProxy.getActivity(), restoredProxy.getView(), savedState);
+
+        Set<String> ids = new HashSet<>();
+        for (RouterTransaction transaction : otherRouter.getBackstack()) {
+            assertTrue(ids.add(transaction.instanceId()));
+        }
+        for (RouterTransaction transaction : restoredRouter.getBackstack()) {
+            assertTrue(ids.add(transaction.instanceId()));
+        }
+        assertEquals(4, ids.size());
+        assertTrue(ids.add(new TestController().getInstanceId()));
+    }
+
+    @Test
+    public void testControllersUseInstalledGenerator() {
+        Conductor.setInstanceIdGenerator(new InstanceIdGenerator() {
+            private int count;
+
+            @NonNull @Override
+            public String nextInstanceId() {
+                return "custom-" + (++count);
+            }
+        });
+
+        assertEquals("custom-1", new TestController().getInstanceId());
+        assertEquals("custom-2", new TestController().getInstanceId());
+    }
+
+    @Test
+    public void testUuidIdsSurviveRestore() {
+        Conductor.setInstanceIdGenerator(InstanceIdGenerator.randomUuid());
+        TestController controller = new TestController();
+        String uuid = controller.getInstanceId();
+        assertEquals(36, uuid.length());
+
+        Conductor.setInstanceIdGenerator(InstanceIdGenerator.monotonic());
+        Controller restored = Controller.newInstance(controller.saveInstanceState());
+
+        assertEquals(uuid, restored.getInstanceId());
+    }
+}
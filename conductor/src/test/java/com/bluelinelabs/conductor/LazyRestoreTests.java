@@ -0,0 +1,159 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.view.ViewGroup;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class LazyRestoreTests {
+
+    private ActivityProxy activityProxy;
+    private Router router;
+
+    @Before
+    public void setup() {
+        activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+
+        router.setRoot(RouterTransaction.with(new TestController()).tag("root"));
+        router.pushController(RouterTransaction.with(new TestController()).tag("middle"));
+        router.pushController(RouterTransaction.with(new TestController()).tag("top"));
+    }
+
+    @Test
+    public void testOnlyVisibleControllerIsCreatedOnRestore() {
+        Router restoredRouter = recreate();
+
+        List<RouterTransaction> backstack = restoredRouter.getBackstack();
+        assertEquals(3, backstack.size());
+        assertFalse(backstack.get(0).isMaterialized());
+        assertFalse(backstack.get(1).isMaterialized());
+        assertTrue(backstack.get(2).isMaterialized());
+        assertEquals("middle", backstack.get(1).tag());
+        assertNotNull(backstack.get(2).controller().getView());
+    }
+
+    @Test
+    public void testPoppingCreatesNextController() {
+        Router restoredRouter = recreate();
+        restoredRouter.popCurrentController();
+
+        List<RouterTransaction> backstack = restoredRouter.getBackstack();
+        assertEquals(2, backstack.size());
+        assertFalse(backstack.get(0).isMaterialized());
+        assertTrue(backstack.get(1).isMaterialized());
+
+        TestController middle = (TestController) backstack.get(1).controller();
+        assertEquals(1, middle.currentCallState.restoreInstanceStateCalls);
+        assertNotNull(middle.getView());
+        assertEquals(restoredRouter, middle.getRouter());
+        assertEquals(middle, restoredRouter.getControllerWithInstanceId(middle.getInstanceId()));
+    }
+
+    @Test
+    public void testSavingAgainKeepsUncreatedState() {
+        Router restoredRouter = recreate();
+        String rootInstanceId = restoredRouter.getBackstack().get(0).instanceId();
+
+        Router secondRouter = recreate();
+
+        RouterTransaction root = secondRouter.getBackstack().get(0);
+        assertFalse(root.isMaterialized());
+        assertEquals(rootInstanceId, root.instanceId());
+        assertEquals("root", root.tag());
+    }
+
+    @Test
+    public void testSnapshotDoesNotCreateControllers() {
+        Router restoredRouter = recreate();
+
+        NavigationSnapshot snapshot = NavigationSnapshot.capture(restoredRouter);
+
+        assertFalse(snapshot.isEmpty());
+        assertFalse(restoredRouter.getBackstack().get(0).isMaterialized());
+        assertFalse(restoredRouter.getBackstack().get(1).isMaterialized());
+    }
+
+    @Test
+    public void testSnapshotOfUncreatedControllerMatchesCreatedOne() throws IOException {
+        TestController parent = new TestController();
+        router.pushController(RouterTransaction.with(parent).tag("parent"));
+        parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.VIEW_ID), "childRouter")
+                .setRoot(RouterTransaction.with(new TestController())
+                        .tag("child")
+                        .pushChangeHandler(MockChangeHandler.taggedHandler("push", true))
+                        .popChangeHandler(MockChangeHandler.defaultHandler()));
+        router.pushController(RouterTransaction.with(new TestController()));
+        byte[] expected = write(NavigationSnapshot.capture(router));
+
+        Router restoredRouter = recreate();
+        byte[] captured = write(NavigationSnapshot.capture(restoredRouter));
+
+        assertFalse(restoredRouter.getBackstack().get(3).isMaterialized());
+        assertArrayEquals(expected, captured);
+    }
+
+    @Test
+    public void testInstanceIdLookupOnlyCreatesMatchingEntry() {
+        TestController parent = new TestController();
+        TestController child = new TestController();
+        router.setRoot(RouterTransaction.with(parent));
+        parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.VIEW_ID))
+                .setRoot(RouterTransaction.with(child));
+        router.pushController(RouterTransaction.with(new TestController()));
+        router.pushController(RouterTransaction.with(new TestController()));
+
+        Router restoredRouter = recreate();
+        List<RouterTransaction> backstack = restoredRouter.getBackstack();
+
+        assertNull(restoredRouter.getControllerWithInstanceId("unknown"));
+        assertFalse(backstack.get(0).isMaterialized());
+        assertFalse(backstack.get(1).isMaterialized());
+
+        Controller restoredChild = restoredRouter.getControllerWithInstanceId(child.getInstanceId());
+        assertNotNull(restoredChild);
+        assertEquals(child.getInstanceId(), restoredChild.getInstanceId());
+        assertTrue(backstack.get(0).isMaterialized());
+        assertFalse(backstack.get(1).isMaterialized());
+    }
+
+    private static byte[] write(NavigationSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private Router recreate() {
+        activityProxy.getActivity().isChangingConfigurations = true;
+
+        Bundle bundle = new Bundle();
+        activityProxy.saveInstanceState(bundle);
+        activityProxy.pause().stop(true).destroy();
+
+        activityProxy = new ActivityProxy().create(bundle).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), bundle);
+        return router;
+    }
+
+}
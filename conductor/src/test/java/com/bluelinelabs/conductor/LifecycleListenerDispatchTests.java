@@ -0,0 +1,120 @@
+package com.bluelinelabs.conductor;
+
+import android.view.View;
+
+import androidx.annotation.NonNull;
+
+import com.bluelinelabs.conductor.Controller.LifecycleListener;
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class LifecycleListenerDispatchTests {
+
+    private static final int WARMUP_CYCLES = 10_000;
+    private static final int MEASURED_CYCLES = 1_000;
+
+    private Router router;
+
+    @Before
+    public void setup() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+    }
+
+    @Test
+    public void testAttachDetachDoesNotAllocate() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        TestController controller = new TestController();
+        for (int i = 0; i < 3; i++) {
+            controller.addLifecycleListener(new LifecycleListener() { });
+        }
+        router.pushController(RouterTransaction.with(controller));
+        View view = controller.getView();
+        assertTrue(controller.isAttached());
+
+        for (int i = 0; i < WARMUP_CYCLES; i++) {
+            controller.detach(view, false, true);
+            controller.attach(view);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_CYCLES; i++) {
+            controller.detach(view, false, true);
+            controller.attach(view);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        // Querying the MXBean allocates a small, constant amount. Anything per-cycle would be at least
+        // MEASURED_CYCLES * 16 bytes.
+        assertTrue("Allocated " + allocated + " bytes over " + MEASURED_CYCLES + " attach/detach cycles", allocated < MEASURED_CYCLES);
+        assertTrue(controller.isAttached());
+    }
+
+    @Test
+    public void testListenersMayRemoveThemselvesDuringDispatch() {
+        final int[] calls = new int[2];
+        TestController controller = new TestController();
+        controller.addLifecycleListener(new LifecycleListener() {
+            @Override
+            public void postAttach(@NonNull Controller controller, @NonNull View view) {
+                calls[0]++;
+                controller.removeLifecycleListener(this);
+            }
+        });
+        controller.addLifecycleListener(new LifecycleListener() {
+            @Override
+            public void postAttach(@NonNull Controller controller, @NonNull View view) {
+                calls[1]++;
+            }
+        });
+
+        router.pushController(RouterTransaction.with(controller));
+        View view = controller.getView();
+        controller.detach(view, false, true);
+        controller.attach(view);
+
+        assertEquals(1, calls[0]);
+        assertEquals(2, calls[1]);
+    }
+
+    @Test
+    public void testListenersMayAddListenersDuringDispatch() {
+        final int[] calls = new int[1];
+        final LifecycleListener added = new LifecycleListener() {
+            @Override
+            public void postAttach(@NonNull Controller controller, @NonNull View view) {
+                calls[0]++;
+            }
+        };
+        TestController controller = new TestController();
+        controller.addLifecycleListener(new LifecycleListener() {
+            @Override
+            public void preAttach(@NonNull Controller controller, @NonNull View view) {
+                controller.addLifecycleListener(added);
+            }
+        });
+
+        router.pushController(RouterTransaction.with(controller));
+
+        assertEquals(1, calls[0]);
+    }
+}
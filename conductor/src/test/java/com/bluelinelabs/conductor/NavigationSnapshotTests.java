@@ -0,0 +1,226 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+
+import com.bluelinelabs.conductor.ControllerFactoryTests.ArgsController;
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+import com.bluelinelabs.conductor.util.ViewUtils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class NavigationSnapshotTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Router router;
+
+    @Before
+    public void setup() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+    }
+
+    @Test
+    public void testRestoresBackstackOnColdStart() throws IOException {
+        Bundle args = new Bundle();
+        args.putString("key", "value");
+        router.setRoot(RouterTransaction.with(new TestController()).tag("root"));
+        router.pushController(RouterTransaction.with(new ArgsController(args))
+                .tag("top")
+                .pushChangeHandler(MockChangeHandler.taggedHandler("push", false))
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+
+        Router restoredRouter = attachRestoredRouter(roundTrip(NavigationSnapshot.capture(router)));
+
+        List<RouterTransaction> backstack = restoredRouter.getBackstack();
+        assertEquals(2, backstack.size());
+        assertTrue(backstack.get(0).controller() instanceof TestController);
+        assertEquals("root", backstack.get(0).tag());
+        assertTrue(backstack.get(1).controller() instanceof ArgsController);
+        assertEquals("top", backstack.get(1).tag());
+        assertEquals("value", backstack.get(1).controller().getArgs().getString("key"));
+        assertEquals("push", ((MockChangeHandler) backstack.get(1).pushChangeHandler()).tag);
+        assertTrue(backstack.get(1).popChangeHandler() instanceof MockChangeHandler);
+
+        // The push handler keeps the root's view, so both are shown again
+        assertNotNull(backstack.get(0).controller().getView());
+        assertNotNull(backstack.get(1).controller().getView());
+    }
+
+    @Test
+    public void testOnlyVisibleControllersAreCreatedOnRestore() throws IOException {
+        router.setRoot(RouterTransaction.with(new TestController()).tag("root"));
+        router.pushController(RouterTransaction.with(new TestController()).tag("middle"));
+        router.pushController(RouterTransaction.with(new TestController()).tag("top"));
+
+        Router restoredRouter = attachRestoredRouter(roundTrip(NavigationSnapshot.capture(router)));
+
+        List<RouterTransaction> backstack = restoredRouter.getBackstack();
+        assertEquals(3, backstack.size());
+        assertFalse(backstack.get(0).isMaterialized());
+        assertFalse(backstack.get(1).isMaterialized());
+        assertTrue(backstack.get(2).isMaterialized());
+        assertEquals("middle", backstack.get(1).tag());
+        assertNotNull(backstack.get(2).controller().getView());
+
+        restoredRouter.popCurrentController();
+        assertNotNull(restoredRouter.getControllerWithTag("middle").getView());
+    }
+
+    @Test
+    public void testRestoredIndicesStayOrdered() throws IOException {
+        router.setRoot(RouterTransaction.with(new TestController()));
+        router.pushController(RouterTransaction.with(new TestController()));
+        int topIndex = router.getBackstack().get(1).getTransactionIndex();
+
+        Router restoredRouter = attachRestoredRouter(roundTrip(NavigationSnapshot.capture(router)));
+        assertEquals(topIndex, restoredRouter.getBackstack().get(1).getTransactionIndex());
+
+        restoredRouter.pushController(RouterTransaction.with(new TestController()));
+        assertTrue(restoredRouter.getBackstack().get(2).getTransactionIndex() > topIndex);
+    }
+
+    @Test
+    public void testRestoresChildRouters() throws IOException {
+        TestController parent = new TestController();
+        router.setRoot(RouterTransaction.with(parent));
+        ViewUtils.reportAttached(parent.getView(), true);
+        parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.CHILD_VIEW_ID_1))
+                .setRoot(RouterTransaction.with(new TestController()).tag("child"));
+
+        Router restoredRouter = attachRestoredRouter(roundTrip(NavigationSnapshot.capture(router)));
+
+        Controller restoredParent = restoredRouter.getBackstack().get(0).controller();
+        List<Router> childRouters = restoredParent.getChildRouters();
+        assertEquals(1, childRouters.size());
+        Controller restoredChild = childRouters.get(0).getControllerWithTag("child");
+        assertNotNull(restoredChild);
+        assertEquals(restoredParent, restoredChild.getParentController());
+        assertNotNull(restoredChild.getView());
+    }
+
+    @Test
+    public void testSnapshotIsIgnoredWhenRouterHasBackstack() throws IOException {
+        router.setRoot(RouterTransaction.with(new TestController()).tag("snapshot"));
+        NavigationSnapshot snapshot = roundTrip(NavigationSnapshot.capture(router));
+
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        Router otherRouter = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+        otherRouter.setRoot(RouterTransaction.with(new TestController()).tag("existing"));
+
+        Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null, snapshot);
+
+        assertEquals(1, otherRouter.getBackstackSize());
+        assertNotNull(otherRouter.getControllerWithTag("existing"));
+    }
+
+    @Test
+    public void testJournalRecordsLatestBackstack() {
+        File file = new File(temporaryFolder.getRoot(), "journal");
+        NavigationJournal journal = newImmediateJournal(file, "1");
+        router.setNavigationJournal(journal);
+
+        router.setRoot(RouterTransaction.with(new TestController()));
+        router.pushController(RouterTransaction.with(new TestController()).tag("top"));
+        ShadowLooper.idleMainLooper();
+
+        NavigationSnapshot snapshot = journal.read();
+        assertNotNull(snapshot);
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+        assertEquals("top", attachRestoredRouter(snapshot).getBackstack().get(1).tag());
+
+        journal.clear();
+        assertNull(journal.read());
+    }
+
+    @Test
+    public void testUnreadableJournalReturnsNull() throws IOException {
+        File file = temporaryFolder.newFile("journal");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[] { 1, 2, 3 });
+        out.close();
+
+        assertNull(new NavigationJournal(file, "1").read());
+    }
+
+    @Test
+    public void testJournalDiscardsSnapshotsWrittenUnderAnotherKey() {
+        File file = new File(temporaryFolder.getRoot(), "journal");
+        router.setNavigationJournal(newImmediateJournal(file, "1"));
+        router.setRoot(RouterTransaction.with(new TestController()));
+        ShadowLooper.idleMainLooper();
+        assertNotNull(newImmediateJournal(file, "1").read());
+
+        assertNull(newImmediateJournal(file, "2").read());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testCaptureMarshallsArgsOnce() {
+        Bundle args = new Bundle();
+        args.putString("key", "value");
+        RouterTransaction transaction = RouterTransaction.with(new ArgsController(args));
+        router.setRoot(transaction);
+
+        NavigationSnapshot.capture(router);
+        byte[] marshalledArgs = transaction.getSnapshotArgs();
+        NavigationSnapshot.capture(router);
+
+        assertNotNull(marshalledArgs);
+        assertSame(marshalledArgs, transaction.getSnapshotArgs());
+    }
+
+    @NonNull
+    private static NavigationJournal newImmediateJournal(@NonNull File file, @NonNull String key) {
+        return new NavigationJournal(file, key, new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                command.run();
+            }
+        });
+    }
+
+    @NonNull
+    private static NavigationSnapshot roundTrip(@NonNull NavigationSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.writeTo(out);
+        return NavigationSnapshot.readFrom(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @NonNull
+    private static Router attachRestoredRouter(@NonNull NavigationSnapshot snapshot) {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        return Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null, snapshot);
+    }
+
+}
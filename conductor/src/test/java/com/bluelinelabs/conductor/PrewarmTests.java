@@ -0,0 +1,154 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class PrewarmTests {
+
+    private Router router;
+    private DeferredExecutor executor;
+
+    @Before
+    public void setup() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+        router.setRoot(RouterTransaction.with(new PrewarmController()));
+        executor = new DeferredExecutor();
+    }
+
+    @Test
+    public void testPushUsesPrewarmedView() {
+        PrewarmController controller = new PrewarmController();
+        RouterTransaction transaction = RouterTransaction.with(controller);
+
+        router.prewarm(transaction, executor);
+        executor.runAll();
+        router.pushController(transaction);
+
+        assertSame(controller.prewarmedView, controller.getView());
+        assertEquals(0, controller.createViewCalls);
+        assertEquals(1, controller.bindViewCalls);
+    }
+
+    @Test
+    public void testFallsBackWhenPrewarmIsNotFinished() {
+        PrewarmController controller = new PrewarmController();
+        RouterTransaction transaction = RouterTransaction.with(controller);
+
+        router.prewarm(transaction, executor);
+        router.pushController(transaction);
+        executor.runAll();
+
+        assertEquals(1, controller.createViewCalls);
+        assertEquals(0, controller.prewarmViewCalls);
+        assertEquals(0, controller.bindViewCalls);
+    }
+
+    @Test
+    public void testLateResultIsDiscarded() {
+        final PrewarmController controller = new PrewarmController();
+        RouterTransaction transaction = RouterTransaction.with(controller);
+
+        router.prewarm(transaction, executor);
+        controller.onPrewarm = new Runnable() {
+            @Override
+            public void run() {
+                // Simulates the push happening while the background inflation is still running
+                router.pushController(RouterTransaction.with(controller));
+            }
+        };
+        executor.runAll();
+
+        assertEquals(1, controller.createViewCalls);
+        assertNotSame(controller.prewarmedView, controller.getView());
+    }
+
+    @Test
+    public void testFallsBackWhenControllerDoesNotSupportPrewarm() {
+        PrewarmController controller = new PrewarmController();
+        controller.supportsPrewarm = false;
+        RouterTransaction transaction = RouterTransaction.with(controller);
+
+        router.prewarm(transaction, executor);
+        executor.runAll();
+        router.pushController(transaction);
+
+        assertEquals(1, controller.createViewCalls);
+        assertEquals(0, controller.bindViewCalls);
+    }
+
+    private static class DeferredExecutor implements Executor {
+
+        private final List<Runnable> runnables = new ArrayList<>();
+
+        @Override
+        public void execute(@NonNull Runnable runnable) {
+            runnables.add(runnable);
+        }
+
+        void runAll() {
+            for (Runnable runnable : runnables) {
+                runnable.run();
+            }
+            runnables.clear();
+        }
+    }
+
+    public static class PrewarmController extends Controller {
+
+        int createViewCalls;
+        int bindViewCalls;
+        int prewarmViewCalls;
+        boolean supportsPrewarm = true;
+        View prewarmedView;
+        Runnable onPrewarm;
+
+        @NonNull @Override
+        protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container, @Nullable Bundle savedViewState) {
+            createViewCalls++;
+            return new FrameLayout(inflater.getContext());
+        }
+
+        @Nullable @Override
+        protected View onPrewarmView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container) {
+            prewarmViewCalls++;
+            if (onPrewarm != null) {
+                onPrewarm.run();
+            }
+            if (!supportsPrewarm) {
+                return null;
+            }
+            prewarmedView = new FrameLayout(inflater.getContext());
+            return prewarmedView;
+        }
+
+        @Override
+        protected void onBindView(@NonNull View view, @Nullable Bundle savedViewState) {
+            bindViewCalls++;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.bluelinelabs.conductor.Controller.LifecycleListener;
 import com.bluelinelabs.conductor.changehandler.FadeChangeHandler;
@@ -30,11 +31,12 @@ import static org.junit.Assert.assertTrue;
 @Config(manifest = Config.NONE)
 public class RouterTests {
 
+    private ActivityProxy activityProxy;
     private Router router;
 
     @Before
     public void setup() {
-        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        activityProxy = new ActivityProxy().create(null).start().resume();
         router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
     }
 
@@ -78,6 +80,24 @@ public class RouterTests {
         assertNull(router.getControllerWithInstanceId("fake id"));
     }
 
+    @Test
+    public void testGetByInstanceIdInChildRouter() {
+        Controller parent = new TestController();
+        router.pushController(RouterTransaction.with(parent));
+
+        Controller child = new TestController();
+        Router childRouter = parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.VIEW_ID));
+        childRouter.setRoot(RouterTransaction.with(child));
+
+        assertEquals(child, router.getControllerWithInstanceId(child.getInstanceId()));
+        assertEquals(child, childRouter.getControllerWithInstanceId(child.getInstanceId()));
+        assertNull(childRouter.getControllerWithInstanceId(parent.getInstanceId()));
+
+        childRouter.popCurrentController();
+
+        assertNull(router.getControllerWithInstanceId(child.getInstanceId()));
+    }
+
     @Test
     public void testGetByTag() {
         String controller1Tag = "controller1";
@@ -460,6 +480,30 @@ public class RouterTests {
         assertEquals(0, router.container.getChildCount());
     }
 
+    @Test
+    public void testSetBackstackKeepsViewsOfRoutersSharingContainer() {
+        Controller parent = new TestController();
+        router.setRoot(RouterTransaction.with(parent));
+
+        ViewGroup container = parent.getView().findViewById(TestController.CHILD_VIEW_ID_1);
+        Router firstRouter = parent.getChildRouter(container, "first");
+        Router secondRouter = parent.getChildRouter(container, "second");
+
+        Controller sibling = new TestController();
+        secondRouter.setRoot(RouterTransaction.with(sibling));
+
+        View strayView = new View(container.getContext());
+        container.addView(strayView);
+
+        Controller child = new TestController();
+        firstRouter.setBackstack(Arrays.asList(RouterTransaction.with(child)), null);
+
+        assertEquals(2, container.getChildCount());
+        assertEquals(container, sibling.getView().getParent());
+        assertEquals(container, child.getView().getParent());
+        assertNull(strayView.getParent());
+    }
+
     @Test
     public void testIsBeingDestroyed() {
         final LifecycleListener lifecycleListener = new LifecycleListener() {
@@ -493,4 +537,67 @@ public class RouterTests {
         assertTrue(controller3.isBeingDestroyed());
     }
 
+    @Test
+    public void testInFlightChanges() {
+        TestController root = new TestController();
+        TestController top = new TestController();
+        PendingChangeHandler handler = new PendingChangeHandler();
+        router.setRoot(RouterTransaction.with(root));
+        assertTrue(router.getInFlightChanges().isEmpty());
+
+        router.pushController(RouterTransaction.with(top).pushChangeHandler(handler));
+
+        List<InFlightChange> changes = router.getInFlightChanges();
+        assertEquals(1, changes.size());
+        assertEquals(top, changes.get(0).getController());
+        assertEquals(handler, changes.get(0).getChangeHandler());
+        assertTrue(changes.get(0).isPush());
+
+        handler.listener.onChangeCompleted();
+        assertTrue(router.getInFlightChanges().isEmpty());
+    }
+
+    @Test
+    public void testInFlightChangeIsCompletedByNextPush() {
+        TestController top = new TestController();
+        PendingChangeHandler handler = new PendingChangeHandler();
+        router.setRoot(RouterTransaction.with(new TestController()));
+        router.pushController(RouterTransaction.with(top).pushChangeHandler(handler));
+
+        router.pushController(RouterTransaction.with(new TestController()));
+
+        assertTrue(handler.completedImmediately);
+        assertTrue(router.getInFlightChanges().isEmpty());
+    }
+
+    @Test
+    public void testInFlightChangesAreClearedWhenActivityIsDestroyed() {
+        router.setRoot(RouterTransaction.with(new TestController()));
+        router.pushController(RouterTransaction.with(new TestController()).pushChangeHandler(new PendingChangeHandler()));
+        assertEquals(1, router.getInFlightChanges().size());
+
+        activityProxy.pause().stop(false).destroy();
+
+        assertTrue(router.getInFlightChanges().isEmpty());
+    }
+
+    public static class PendingChangeHandler extends ControllerChangeHandler {
+
+        ControllerChangeCompletedListener listener;
+        boolean completedImmediately;
+
+        @Override
+        public void performChange(@NonNull ViewGroup container, @Nullable View from, @Nullable View to, boolean isPush, @NonNull ControllerChangeCompletedListener changeListener) {
+            if (to != null) {
+                container.addView(to);
+            }
+            listener = changeListener;
+        }
+
+        @Override
+        public void completeImmediately() {
+            completedImmediately = true;
+        }
+    }
+
 }
@@ -0,0 +1,133 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.view.ViewGroup;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class StateBudgetTests {
+
+    private Router router;
+
+    @Before
+    public void setup() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+    }
+
+    @Test
+    public void testNoSizesWithoutMeasuring() {
+        router.setRoot(RouterTransaction.with(new TestController()));
+
+        router.saveInstanceState(new Bundle());
+
+        assertTrue(router.getSavedStateSizes().isEmpty());
+    }
+
+    @Test
+    public void testMeasuresEntries() {
+        TestController root = new TestController();
+        TestController top = new TestController();
+        router.setRoot(RouterTransaction.with(root));
+        router.pushController(RouterTransaction.with(top).tag("top"));
+        router.setMeasuresSavedState(true);
+
+        router.saveInstanceState(new Bundle());
+
+        List<SavedStateSize> sizes = router.getSavedStateSizes();
+        assertEquals(2, sizes.size());
+        assertEquals(root.getInstanceId(), sizes.get(0).getInstanceId());
+        assertEquals("top", sizes.get(1).getTag());
+        assertTrue(sizes.get(1).getTotalBytes() > sizes.get(1).getViewStateBytes());
+        assertTrue(sizes.get(1).getViewStateBytes() > 0);
+    }
+
+    @Test
+    public void testMeasuresChildRouters() {
+        TestController parent = new TestController();
+        router.setRoot(RouterTransaction.with(parent));
+        TestController child = new TestController();
+        parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.CHILD_VIEW_ID_1))
+                .setRoot(RouterTransaction.with(child));
+        router.setMeasuresSavedState(true);
+
+        router.saveInstanceState(new Bundle());
+
+        SavedStateSize parentSize = router.getSavedStateSizes().get(0);
+        assertEquals(1, parentSize.getChildren().size());
+        assertEquals(child.getInstanceId(), parentSize.getChildren().get(0).getInstanceId());
+        assertTrue(parentSize.getTotalBytes() > parentSize.getChildren().get(0).getTotalBytes());
+    }
+
+    @Test
+    public void testBudgetDropsOffScreenViewState() {
+        router.setRoot(RouterTransaction.with(new TestController()));
+        router.pushController(RouterTransaction.with(new TestController()));
+        router.pushController(RouterTransaction.with(new TestController()));
+        router.setStateBudget(new StateBudget(0));
+
+        router.saveInstanceState(new Bundle());
+
+        List<SavedStateSize> sizes = router.getSavedStateSizes();
+        assertEquals(0, sizes.get(0).getViewStateBytes());
+        assertEquals(0, sizes.get(1).getViewStateBytes());
+        assertTrue(sizes.get(2).getViewStateBytes() > 0);
+    }
+
+    @Test
+    public void testBudgetDoesNotCreateHibernatedControllers() {
+        router.setHibernationPolicy(new HibernationPolicy(1));
+        router.setRoot(RouterTransaction.with(new TestController()));
+        router.pushController(RouterTransaction.with(new TestController()));
+        router.pushController(RouterTransaction.with(new TestController()));
+        ShadowLooper.idleMainLooper();
+        router.setStateBudget(new StateBudget(0));
+
+        router.saveInstanceState(new Bundle());
+
+        List<RouterTransaction> backstack = router.getBackstack();
+        assertFalse(backstack.get(0).isMaterialized());
+        assertFalse(backstack.get(1).isMaterialized());
+        assertEquals(0, router.getSavedStateSizes().get(0).getViewStateBytes());
+    }
+
+    @Test
+    public void testBudgetLeavesStateAloneWhenUnderBudget() {
+        router.setRoot(RouterTransaction.with(new TestController()));
+        router.pushController(RouterTransaction.with(new TestController()));
+        router.setStateBudget(new StateBudget(Integer.MAX_VALUE));
+
+        router.saveInstanceState(new Bundle());
+
+        assertTrue(router.getSavedStateSizes().get(0).getViewStateBytes() > 0);
+    }
+
+    @Test
+    public void testBudgetDoesNotAffectInMemoryViewState() {
+        TestController root = new TestController();
+        router.setRoot(RouterTransaction.with(root));
+        router.pushController(RouterTransaction.with(new TestController()));
+        router.setStateBudget(new StateBudget(0));
+
+        router.saveInstanceState(new Bundle());
+        router.popCurrentController();
+
+        assertEquals(1, root.currentCallState.restoreViewStateCalls);
+    }
+}
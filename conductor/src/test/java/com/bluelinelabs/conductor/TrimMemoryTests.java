@@ -0,0 +1,170 @@
+package com.bluelinelabs.conductor;
+
+import android.content.ComponentCallbacks2;
+
+import android.view.View;
+
+import androidx.annotation.NonNull;
+
+import com.bluelinelabs.conductor.Controller.RetainViewMode;
+import com.bluelinelabs.conductor.ViewPoolTests.PooledController;
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class TrimMemoryTests {
+
+    private ActivityProxy activityProxy;
+    private Router router;
+
+    @Before
+    public void setup() {
+        activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+    }
+
+    @After
+    public void tearDown() {
+        Conductor.setTrimMemoryListener(null);
+    }
+
+    @Test
+    public void testReleasesRetainedViews() {
+        TestController root = new TestController();
+        root.setRetainViewMode(RetainViewMode.RETAIN_DETACH);
+        router.setRoot(RouterTransaction.with(root));
+        router.pushController(RouterTransaction.with(new TestController()));
+        assertNotNull(root.getView());
+
+        TrimMemoryReport moderateReport = new TrimMemoryReport(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        router.onTrimMemory(moderateReport);
+        assertNotNull(root.getView());
+        assertEquals(0, moderateReport.getReleasedViews());
+
+        TrimMemoryReport report = new TrimMemoryReport(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        router.onTrimMemory(report);
+        assertNull(root.getView());
+        assertEquals(1, report.getReleasedViews());
+        assertTrue(root.currentCallState.saveViewStateCalls > 0);
+
+        router.popCurrentController();
+        assertNotNull(root.getView());
+        assertEquals(1, root.currentCallState.restoreViewStateCalls);
+    }
+
+    @Test
+    public void testHibernatesOffscreenControllersWhenCritical() {
+        TestController root = new TestController();
+        router.setHibernationPolicy(new HibernationPolicy(Integer.MAX_VALUE));
+        router.setRoot(RouterTransaction.with(root));
+        router.pushController(RouterTransaction.with(new TestController()));
+        ShadowLooper.idleMainLooper();
+        assertFalse(root.isDestroyed());
+
+        TrimMemoryReport report = new TrimMemoryReport(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+        router.onTrimMemory(report);
+
+        assertTrue(root.isDestroyed());
+        assertFalse(router.getBackstack().get(0).isMaterialized());
+        assertEquals(1, report.getHibernatedControllers());
+    }
+
+    @Test
+    public void testControllersAreKeptWithoutHibernationPolicy() {
+        TestController root = new TestController();
+        router.setRoot(RouterTransaction.with(root));
+        router.pushController(RouterTransaction.with(new TestController()));
+
+        TrimMemoryReport report = new TrimMemoryReport(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        router.onTrimMemory(report);
+
+        assertFalse(root.isDestroyed());
+        assertEquals(0, report.getHibernatedControllers());
+    }
+
+    @Test
+    public void testActivityTrimIsReported() {
+        final TrimMemoryReport[] reports = new TrimMemoryReport[1];
+        Conductor.setTrimMemoryListener(new TrimMemoryListener() {
+            @Override
+            public void onMemoryTrimmed(@NonNull TrimMemoryReport report) {
+                reports[0] = report;
+            }
+        });
+        TestController root = new TestController();
+        root.setRetainViewMode(RetainViewMode.RETAIN_DETACH);
+        router.setRoot(RouterTransaction.with(root));
+        router.pushController(RouterTransaction.with(new TestController()));
+        ShadowLooper.idleMainLooper();
+
+        activityProxy.getActivity().onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+        assertNotNull(reports[0]);
+        assertEquals(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND, reports[0].getLevel());
+        assertEquals(1, reports[0].getReleasedViews());
+    }
+
+    @Test
+    public void testUiHiddenKeepsRetainedViews() {
+        TestController root = new TestController();
+        root.setRetainViewMode(RetainViewMode.RETAIN_DETACH);
+        router.setRoot(RouterTransaction.with(root));
+        router.pushController(RouterTransaction.with(new TestController()));
+
+        TrimMemoryReport report = new TrimMemoryReport(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        router.onTrimMemory(report);
+
+        assertNotNull(root.getView());
+        assertEquals(0, report.getReleasedViews());
+    }
+
+    @Test
+    public void testReleasedViewsBypassAndTrimViewPool() {
+        ViewPool pool = new ViewPool(4);
+        router.setViewPool(pool);
+        PooledController root = new PooledController("root");
+        root.setRetainViewMode(RetainViewMode.RETAIN_DETACH);
+        router.setRoot(RouterTransaction.with(root));
+        router.pushController(RouterTransaction.with(new TestController()));
+        pool.release("other", new View(activityProxy.getActivity()));
+        pool.release("other", new View(activityProxy.getActivity()));
+
+        TrimMemoryReport report = new TrimMemoryReport(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        router.onTrimMemory(report);
+
+        assertNull(root.getView());
+        assertEquals(1, report.getReleasedViews());
+        assertEquals(1, report.getReleasedPooledViews());
+        assertEquals(1, pool.size());
+        assertNull(pool.acquire("root"));
+
+        TrimMemoryReport criticalReport = new TrimMemoryReport(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+        router.onTrimMemory(criticalReport);
+        assertEquals(1, criticalReport.getReleasedPooledViews());
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    public void testSavedStatesToKeep() {
+        assertEquals(10, new TrimMemoryReport(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN).savedStatesToKeep(10));
+        assertEquals(5, new TrimMemoryReport(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW).savedStatesToKeep(10));
+        assertEquals(1, new TrimMemoryReport(ComponentCallbacks2.TRIM_MEMORY_COMPLETE).savedStatesToKeep(10));
+        assertEquals(0, new TrimMemoryReport(ComponentCallbacks2.TRIM_MEMORY_COMPLETE).savedStatesToKeep(0));
+    }
+
+}
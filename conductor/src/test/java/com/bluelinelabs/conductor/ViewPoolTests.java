@@ -0,0 +1,156 @@
+package com.bluelinelabs.conductor;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ViewPoolTests {
+
+    private ActivityProxy activityProxy;
+    private Router router;
+
+    @Before
+    public void setup() {
+        activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+    }
+
+    @Test
+    public void testAcquireReturnsReleasedView() {
+        ViewPool pool = new ViewPool(4);
+        View view = newView();
+
+        assertNull(pool.acquire("a"));
+        pool.release("a", view);
+
+        assertNull(pool.acquire("b"));
+        assertSame(view, pool.acquire("a"));
+        assertEquals(0, pool.size());
+        assertEquals(1, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedKey() {
+        ViewPool pool = new ViewPool(2);
+        View a = newView();
+        View b = newView();
+
+        pool.release("a", a);
+        pool.release("b", b);
+        pool.release("b", newView());
+
+        assertEquals(2, pool.size());
+        assertEquals(1, pool.getEvictionCount());
+        assertNull(pool.acquire("a"));
+        pool.acquire("b");
+        assertSame(b, pool.acquire("b"));
+    }
+
+    @Test
+    public void testControllersReuseReleasedViews() {
+        ViewPool pool = new ViewPool(4);
+        router.setViewPool(pool);
+
+        PooledController first = new PooledController();
+        PooledController second = new PooledController();
+        router.setRoot(RouterTransaction.with(first));
+        View firstView = first.getView();
+
+        router.pushController(RouterTransaction.with(new PooledController("other")));
+        assertEquals(1, pool.size());
+
+        router.pushController(RouterTransaction.with(second));
+
+        assertSame(firstView, second.getView());
+        assertEquals(0, second.createViewCalls);
+        assertEquals(1, second.bindViewCalls);
+        assertEquals(1, pool.getHitCount());
+    }
+
+    @Test
+    public void testControllersWithoutKeyAreNotPooled() {
+        ViewPool pool = new ViewPool(4);
+        router.setViewPool(pool);
+
+        router.setRoot(RouterTransaction.with(new PooledController(null)));
+        router.pushController(RouterTransaction.with(new PooledController(null)));
+
+        assertEquals(0, pool.size());
+        assertEquals(0, pool.getMissCount());
+    }
+
+    @Test
+    public void testPoolIsClearedWhenActivityIsDestroyed() {
+        ViewPool pool = new ViewPool(4);
+        router.setViewPool(pool);
+
+        router.setRoot(RouterTransaction.with(new PooledController()));
+        router.pushController(RouterTransaction.with(new PooledController()));
+        activityProxy.pause().stop(false).destroy();
+
+        assertEquals(0, pool.size());
+    }
+
+    private View newView() {
+        return new View(RuntimeEnvironment.application);
+    }
+
+    public static class PooledController extends Controller {
+
+        int createViewCalls;
+        int bindViewCalls;
+
+        public PooledController() {
+            this(new Bundle());
+            getArgs().putString("key", "pooled");
+        }
+
+        public PooledController(Bundle args) {
+            super(args);
+        }
+
+        PooledController(@Nullable String key) {
+            this(new Bundle());
+            getArgs().putString("key", key);
+        }
+
+        @Nullable @Override
+        protected Object getViewPoolKey() {
+            return getArgs().getString("key");
+        }
+
+        @NonNull @Override
+        protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container, @Nullable Bundle savedViewState) {
+            createViewCalls++;
+            Context context = inflater.getContext();
+            return new FrameLayout(context);
+        }
+
+        @Override
+        protected void onBindView(@NonNull View view, @Nullable Bundle savedViewState) {
+            bindViewCalls++;
+        }
+    }
+}